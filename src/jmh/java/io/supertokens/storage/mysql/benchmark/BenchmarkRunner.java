@@ -0,0 +1,71 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks once per thread count, first for throughput (ops/s) and then for sampled latency (which reports
+ * p99 among other percentiles). Pool sizes are a @Param of the states, so every combination is covered.
+ * <p>
+ * Usage: BenchmarkRunner [include regex] [comma separated thread counts] [result directory]
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_INCLUDE = ".*Benchmark.*";
+
+    private static final String DEFAULT_THREADS = "1,8,32";
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 && !args[0].isEmpty() ? args[0] : DEFAULT_INCLUDE;
+        String threads = args.length > 1 && !args[1].isEmpty() ? args[1] : DEFAULT_THREADS;
+        File resultDir = new File(args.length > 2 ? args[2] : "build/reports/jmh");
+        resultDir.mkdirs();
+
+        for (String threadCount : threads.split(",")) {
+            int numThreads = Integer.parseInt(threadCount.trim());
+
+            run(include, numThreads, Mode.Throughput, TimeUnit.SECONDS, resultDir);
+            run(include, numThreads, Mode.SampleTime, TimeUnit.MILLISECONDS, resultDir);
+        }
+    }
+
+    private static void run(String include, int numThreads, Mode mode, TimeUnit timeUnit, File resultDir)
+            throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .threads(numThreads)
+                .mode(mode)
+                .timeUnit(timeUnit)
+                .forks(1)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(5))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(10))
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(resultDir, mode.shortLabel() + "-" + numThreads + "-threads.json").getPath());
+        new Runner(options.build()).run();
+    }
+}
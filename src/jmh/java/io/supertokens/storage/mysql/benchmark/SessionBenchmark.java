@@ -0,0 +1,93 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.benchmark;
+
+import com.google.gson.JsonObject;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.session.SessionInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SessionBenchmark {
+
+    private static final int NUM_SEEDED_SESSIONS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class SessionState extends StorageBenchmarkState {
+
+        // lookups by session handle in a partitioned table probe every partition
+        @Param({ "false", "true" })
+        public String partitioning;
+
+        @Param({ "30" })
+        public String partitionsAheadDays;
+
+        String[] sessionHandles;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            startProcess("mysql_session_info_partitioning", partitioning,
+                    "mysql_session_info_partitions_ahead_days", partitionsAheadDays);
+
+            sessionHandles = new String[NUM_SEEDED_SESSIONS];
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < NUM_SEEDED_SESSIONS; i++) {
+                sessionHandles[i] = UUID.randomUUID().toString();
+                start.createNewSession(TenantIdentifier.BASE_TENANT, sessionHandles[i], "user" + i,
+                        "refreshTokenHash2", payload(i), now + 3600_000, payload(i), now, false);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            stopProcess();
+        }
+
+        String randomSessionHandle() {
+            return sessionHandles[ThreadLocalRandom.current().nextInt(sessionHandles.length)];
+        }
+    }
+
+    private static JsonObject payload(int i) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("key", "value" + i);
+        return payload;
+    }
+
+    @Benchmark
+    public String createNewSession(SessionState state) throws Exception {
+        String sessionHandle = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        state.start.createNewSession(TenantIdentifier.BASE_TENANT, sessionHandle, "user", "refreshTokenHash2",
+                payload(0), now + 3600_000, payload(0), now, false);
+        return sessionHandle;
+    }
+
+    @Benchmark
+    public SessionInfo getSession(SessionState state) throws Exception {
+        return state.start.getSession(TenantIdentifier.BASE_TENANT, state.randomSessionHandle());
+    }
+
+    @Benchmark
+    public int updateSession(SessionState state) throws Exception {
+        int i = ThreadLocalRandom.current().nextInt(1000);
+        return state.start.updateSession(TenantIdentifier.BASE_TENANT, state.randomSessionHandle(), payload(i),
+                null);
+    }
+}
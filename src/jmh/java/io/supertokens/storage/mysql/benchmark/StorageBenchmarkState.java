@@ -0,0 +1,65 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.benchmark;
+
+import io.supertokens.ProcessState;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.test.TestingProcessManager;
+import io.supertokens.storage.mysql.test.Utils;
+import io.supertokens.storageLayer.StorageLayer;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Base class for benchmark states. Starts a core with this plugin against the MySQL instance from startDb.sh, the
+ * same way the tests do, and stops it (removing all data) at the end of the trial.
+ */
+public abstract class StorageBenchmarkState {
+
+    @Param({ "10", "50" })
+    public String poolSize;
+
+    protected TestingProcessManager.TestingProcess process;
+
+    protected Start start;
+
+    /**
+     * @param extraConfig pairs of config key and value to set in addition to the pool size
+     */
+    protected void startProcess(String... extraConfig) throws Exception {
+        Utils.reset();
+        Utils.setValueInConfig("mysql_connection_pool_size", poolSize);
+        for (int i = 0; i + 1 < extraConfig.length; i += 2) {
+            Utils.setValueInConfig(extraConfig[i], extraConfig[i + 1]);
+        }
+
+        String[] args = { "../" };
+        process = TestingProcessManager.start(args);
+        if (process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED) == null) {
+            throw new IllegalStateException("core did not start");
+        }
+        start = (Start) StorageLayer.getStorage(process.getProcess());
+    }
+
+    protected void stopProcess() throws Exception {
+        if (process != null) {
+            process.kill();
+            process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED);
+            process = null;
+        }
+        Utils.afterTesting();
+    }
+}
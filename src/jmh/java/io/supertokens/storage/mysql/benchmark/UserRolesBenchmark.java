@@ -0,0 +1,68 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.benchmark;
+
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class UserRolesBenchmark {
+
+    private static final int NUM_ROLES = 20;
+
+    private static final int NUM_USERS = 5_000;
+
+    private static final int ROLES_PER_USER = 3;
+
+    @State(Scope.Benchmark)
+    public static class UserRolesState extends StorageBenchmarkState {
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            startProcess();
+
+            start.startTransaction(con -> {
+                try {
+                    for (int i = 0; i < NUM_ROLES; i++) {
+                        start.createNewRoleOrDoNothingIfExists_Transaction(
+                                TenantIdentifier.BASE_TENANT.toAppIdentifier(), con, "role" + i);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+            for (int i = 0; i < NUM_USERS; i++) {
+                for (int j = 0; j < ROLES_PER_USER; j++) {
+                    start.addRoleToUser(TenantIdentifier.BASE_TENANT, "user" + i, "role" + ((i + j) % NUM_ROLES));
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            stopProcess();
+        }
+    }
+
+    @Benchmark
+    public String[] getRolesForUser(UserRolesState state) throws Exception {
+        return state.start.getRolesForUser(TenantIdentifier.BASE_TENANT,
+                "user" + ThreadLocalRandom.current().nextInt(NUM_USERS));
+    }
+}
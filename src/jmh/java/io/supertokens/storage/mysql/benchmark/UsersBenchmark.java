@@ -0,0 +1,105 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.benchmark;
+
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.bulkimport.BulkImportUser;
+import io.supertokens.storage.mysql.pagination.Page;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class UsersBenchmark {
+
+    private static final int NUM_SEEDED_USERS = 20_000;
+
+    private static final int PAGE_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class UsersState extends StorageBenchmarkState {
+
+        /**
+         * 0 writes every last active update straight to the database, anything else goes through the write buffer.
+         */
+        @Param({ "0", "1000" })
+        public String lastActiveFlushIntervalMs;
+
+        String middleUserId;
+
+        long middleTimeJoined;
+
+        String middleCursor;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            startProcess("mysql_last_active_flush_interval_ms", lastActiveFlushIntervalMs);
+
+            List<BulkImportUser> users = new ArrayList<>(NUM_SEEDED_USERS);
+            for (int i = 0; i < NUM_SEEDED_USERS; i++) {
+                users.add(BulkImportUser.emailPassword("seeded" + i, "seeded" + i + "@example.com", "hash", i));
+            }
+            start.bulkImportUsers(TenantIdentifier.BASE_TENANT, users);
+
+            // a cursor and a pagination token that point to the middle of the user list
+            Page<AuthRecipeUserInfo> firstHalf = start.getUsersPage(TenantIdentifier.BASE_TENANT,
+                    NUM_SEEDED_USERS / 2, "ASC", null, null);
+            AuthRecipeUserInfo lastUser = firstHalf.results.get(firstHalf.results.size() - 1);
+            middleUserId = lastUser.getSupertokensUserId();
+            middleTimeJoined = lastUser.timeJoined;
+            middleCursor = firstHalf.nextCursor;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            stopProcess();
+        }
+    }
+
+    @Benchmark
+    public AuthRecipeUserInfo signUp(UsersState state) throws Exception {
+        String userId = UUID.randomUUID().toString();
+        return state.start.signUp(TenantIdentifier.BASE_TENANT, userId, userId + "@example.com", "passwordHash",
+                System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public AuthRecipeUserInfo[] getUsersFirstPage(UsersState state) throws Exception {
+        return state.start.getUsers(TenantIdentifier.BASE_TENANT, PAGE_SIZE, "ASC", null, null, null, null);
+    }
+
+    @Benchmark
+    public AuthRecipeUserInfo[] getUsersFromPaginationToken(UsersState state) throws Exception {
+        return state.start.getUsers(TenantIdentifier.BASE_TENANT, PAGE_SIZE, "ASC", null, state.middleUserId,
+                state.middleTimeJoined, null);
+    }
+
+    @Benchmark
+    public Page<AuthRecipeUserInfo> getUsersPageFromCursor(UsersState state) throws Exception {
+        return state.start.getUsersPage(TenantIdentifier.BASE_TENANT, PAGE_SIZE, "ASC", null, state.middleCursor);
+    }
+
+    @Benchmark
+    public void updateLastActive(UsersState state) throws Exception {
+        state.start.updateLastActive(new AppIdentifier(null, null),
+                "seeded" + ThreadLocalRandom.current().nextInt(NUM_SEEDED_USERS));
+    }
+}
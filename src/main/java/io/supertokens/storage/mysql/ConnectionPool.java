@@ -17,24 +17,63 @@
 
 package io.supertokens.storage.mysql;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import io.supertokens.pluginInterface.exceptions.DbInitException;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.storage.mysql.config.Config;
 import io.supertokens.storage.mysql.config.MySQLConfig;
+import io.supertokens.storage.mysql.metrics.ConnectionPoolMetrics;
 import io.supertokens.storage.mysql.output.Logging;
+import org.jetbrains.annotations.TestOnly;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.supertokens.storage.mysql.PreparedStatementValueSetter.NO_OP_SETTER;
 
 public class ConnectionPool extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.ConnectionPool";
     private HikariDataSource hikariDataSource = null;
 
+    // how often the replication lag of each read replica is read
+    static final long REPLICA_LAG_CHECK_INTERVAL_MS = 1000;
+
+    // pools for the hosts in mysql_read_replica_hosts. These are only used for reads that happen outside of a
+    // transaction (see QueryExecutorTemplate.execute(Start, ...)).
+    private List<ReadReplica> readReplicas = new ArrayList<>();
+    private final AtomicInteger nextReadReplica = new AtomicInteger(0);
+    private ScheduledExecutorService replicaLagChecker = null;
+    private final AtomicLong readsFromReplicas = new AtomicLong();
+    private final AtomicLong readsFromPrimary = new AtomicLong();
+    // per thread, so that a write only keeps the reads that the same caller makes right after it off the replicas
+    private final ThreadLocal<Long> lastWriteTime = ThreadLocal.withInitial(() -> 0L);
+    // the isolation level that connections from the primary pool have when they are handed out. This is read
+    // once from the first connection so that transactions do not need a round trip to find it out each time.
+    private volatile Integer defaultTransactionIsolation = null;
+
+    // set if mysql_shared_connection_pools is enabled. The pools are then shared with other Start instances (see
+    // SharedDataSources), and this limits how many connections of the primary pool this one may hold at once.
+    private boolean shared = false;
+    private Semaphore bulkhead = null;
+
     private final Start start;
 
     private ConnectionPool(Start start) {
@@ -92,6 +131,9 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // lets the driver send a JDBC batch of INSERTs (see QueryExecutorTemplate.batchUpdate) as a single
+        // multi-row statement
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
         if (userConfig.isCloudSql()) {
             config.addDataSourceProperty("socketFactory", "com.google.cloud.sql.mysql.SocketFactory");
             config.addDataSourceProperty("cloudSqlInstance", userConfig.getInstanceConnectionName());
@@ -102,11 +144,101 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         // - Failed to validate connection org.mariadb.jdbc.MariaDbConnection@79af83ae (Connection.setNetworkTimeout
         // cannot be called on a closed connection). Possibly consider using a shorter maxLifetime value.
         config.setPoolName(start.getUserPoolId() + "~" + start.getConnectionPoolId());
+        shared = userConfig.isSharedConnectionPoolsEnabled();
         try {
-            hikariDataSource = new HikariDataSource(config);
+            if (shared) {
+                // the connection pool id differs between Start instances that share the pool
+                config.setPoolName(start.getUserPoolId() + "~shared");
+                hikariDataSource = SharedDataSources.acquire(config);
+                bulkhead = new Semaphore(userConfig.getConnectionPoolSize(), true);
+            } else {
+                hikariDataSource = new HikariDataSource(config);
+            }
         } catch (Exception e) {
             throw new SQLException(e);
         }
+
+        List<ReadReplica> replicas = new ArrayList<>();
+        List<String> replicaHosts = userConfig.getReadReplicaHosts();
+        for (int i = 0; i < replicaHosts.size(); i++) {
+            try {
+                replicas.add(new ReadReplica(createReadReplicaDataSource(userConfig, replicaHosts.get(i), i)));
+            } catch (Exception e) {
+                for (ReadReplica replica : replicas) {
+                    closeDataSource(replica.dataSource);
+                }
+                closeDataSource(hikariDataSource);
+                hikariDataSource = null;
+                bulkhead = null;
+                throw new SQLException(e);
+            }
+        }
+        readReplicas = replicas;
+        if (!replicas.isEmpty()) {
+            // replicas are not used until their lag has been read once
+            replicaLagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mysql-replica-lag-checker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            replicaLagChecker.scheduleWithFixedDelay(this::checkReplicaLag, 0, REPLICA_LAG_CHECK_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkReplicaLag() {
+        try {
+            long maxStalenessMs = Config.getConfig(start).getReadReplicaMaxStalenessMs();
+            for (ReadReplica replica : readReplicas) {
+                replica.checkLag(start, maxStalenessMs);
+            }
+        } catch (RuntimeException e) {
+            // else the scheduled task would not run again
+            Logging.error(start, "Error while checking the lag of the read replicas: " + e.getMessage(), false);
+        }
+    }
+
+    private HikariDataSource createReadReplicaDataSource(MySQLConfig userConfig, String hostAndPort, int index) {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName("org.mariadb.jdbc.Driver");
+
+        String attributes = userConfig.getConnectionAttributes();
+        if (!attributes.equals("")) {
+            attributes = "?" + attributes;
+        }
+        config.setJdbcUrl("jdbc:" + userConfig.getConnectionScheme() + "://" + hostAndPort + "/"
+                + userConfig.getDatabaseName() + attributes);
+
+        if (userConfig.getUser() != null) {
+            config.setUsername(userConfig.getUser());
+        }
+
+        if (userConfig.getPassword() != null && !userConfig.getPassword().equals("")) {
+            config.setPassword(userConfig.getPassword());
+        }
+        config.setMaximumPoolSize(userConfig.getConnectionPoolSize());
+        config.setConnectionTimeout(5000);
+        // a replica that is down during startup should not stop the core from starting. Reads will fall back to
+        // the primary until it is reachable.
+        config.setInitializationFailTimeout(-1);
+        config.setReadOnly(true);
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        if (shared) {
+            config.setPoolName(start.getUserPoolId() + "~shared~replica" + index);
+            return SharedDataSources.acquire(config);
+        }
+        config.setPoolName(start.getUserPoolId() + "~" + start.getConnectionPoolId() + "~replica" + index);
+        return new HikariDataSource(config);
+    }
+
+    private void closeDataSource(HikariDataSource dataSource) {
+        if (shared) {
+            SharedDataSources.release(dataSource);
+        } else {
+            dataSource.close();
+        }
     }
 
     private static int getTimeToWaitToInit(Start start) {
@@ -152,6 +284,7 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
                 + "you have"
                 + " specified the correct values for ('mysql_host' and 'mysql_port') or for 'mysql_connection_uri'";
         try {
+            ConnectionPoolMetrics.init(start);
             ConnectionPool con = new ConnectionPool(start);
             start.getResourceDistributor().setResource(RESOURCE_KEY, con);
             while (true) {
@@ -195,6 +328,22 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
     }
 
     public static Connection getConnection(Start start) throws SQLException {
+        // we do not know what the caller will do with a connection to the primary, so we treat it as a write
+        // to keep reads that follow it off the replicas
+        Connection con = getPrimaryConnection(start);
+        recordWrite(start);
+        return con;
+    }
+
+    /**
+     * A connection to the primary for reads that must see the latest committed data. Unlike getConnection, this
+     * does not keep the reads that follow it off the read replicas.
+     */
+    public static Connection getPrimaryConnectionForRead(Start start) throws SQLException {
+        return getPrimaryConnection(start);
+    }
+
+    private static Connection getPrimaryConnection(Start start) throws SQLException {
         if (getInstance(start) == null) {
             throw new IllegalStateException("Please call initPool before getConnection");
         }
@@ -204,7 +353,200 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         if (getInstance(start).hikariDataSource == null) {
             getInstance(start).initialiseHikariDataSource();
         }
-        return getInstance(start).hikariDataSource.getConnection();
+        ConnectionPool instance = getInstance(start);
+        HikariDataSource dataSource = instance.hikariDataSource;
+        Semaphore bulkhead = instance.bulkhead;
+        int pendingThreads = getPendingThreads(dataSource, bulkhead);
+        long startTime = System.nanoTime();
+        boolean failed = true;
+        try {
+            Connection con = bulkhead == null ? dataSource.getConnection()
+                    : getConnectionWithinBulkhead(dataSource, bulkhead);
+            failed = false;
+            return con;
+        } finally {
+            ConnectionPoolMetrics.recordAcquire(start, System.nanoTime() - startTime, failed, pendingThreads);
+        }
+    }
+
+    private static int getPendingThreads(HikariDataSource dataSource, Semaphore bulkhead) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        int pendingThreads = pool == null ? 0 : pool.getThreadsAwaitingConnection();
+        if (bulkhead != null) {
+            pendingThreads += bulkhead.getQueueLength();
+        }
+        return pendingThreads;
+    }
+
+    /**
+     * Takes a permit from the bulkhead before getting a connection from the shared pool, and gives it back when the
+     * returned connection is closed. This way a tenant cannot use more than its mysql_connection_pool_size
+     * connections of a pool it shares with other tenants.
+     */
+    private static Connection getConnectionWithinBulkhead(HikariDataSource dataSource, Semaphore bulkhead)
+            throws SQLException {
+        try {
+            if (!bulkhead.tryAcquire(dataSource.getConnectionTimeout(), TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Connection is not available, all the connections of the shared pool "
+                        + dataSource.getPoolName() + " that this storage may use are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+        Connection con;
+        try {
+            con = dataSource.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+        return new BulkheadConnection(con, bulkhead);
+    }
+
+    /**
+     * Returns a connection to one of the read replicas (round robin) that is at most
+     * mysql_read_replica_max_staleness_ms behind the primary, as last read by the lag checker. The primary is used
+     * instead if no replica is caught up or reachable, or if the calling thread wrote via this pool within the last
+     * mysql_read_replica_max_staleness_ms, so that a caller always reads its own writes. Connections returned by
+     * this must only be used for reads outside of a transaction or in a read only one (see
+     * Start.startReadOnlyTransaction).
+     */
+    static Connection getConnectionForRead(Start start) throws SQLException {
+        ConnectionPool instance = getInstance(start);
+        if (instance == null || !start.enabled || instance.hikariDataSource == null) {
+            return getPrimaryConnection(start);
+        }
+        List<ReadReplica> replicas = instance.readReplicas;
+        if (replicas.isEmpty()) {
+            return getPrimaryConnection(start);
+        }
+        long maxStaleness = Config.getConfig(start).getReadReplicaMaxStalenessMs();
+        if (System.currentTimeMillis() - instance.lastWriteTime.get() < maxStaleness) {
+            instance.readsFromPrimary.incrementAndGet();
+            return getPrimaryConnection(start);
+        }
+        int first = instance.nextReadReplica.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            ReadReplica replica = replicas.get(Math.floorMod(first + i, replicas.size()));
+            if (!replica.caughtUp) {
+                continue;
+            }
+            try {
+                Connection con = replica.dataSource.getConnection();
+                instance.readsFromReplicas.incrementAndGet();
+                return con;
+            } catch (SQLException e) {
+                Logging.debug(start, "Could not get a connection from read replica pool "
+                        + replica.dataSource.getPoolName() + ", trying the next one: " + e.getMessage());
+            }
+        }
+        instance.readsFromPrimary.incrementAndGet();
+        return getPrimaryConnection(start);
+    }
+
+    /**
+     * Returns the session isolation level of connections from the primary pool, using con to read it the first
+     * time this is called. Transactions never change the session isolation level (see
+     * Start.startTransactionHelper), so this stays the same for every connection in the pool.
+     */
+    static int getDefaultTransactionIsolation(Start start, Connection con) throws SQLException {
+        ConnectionPool instance = getInstance(start);
+        if (instance == null) {
+            return con.getTransactionIsolation();
+        }
+        Integer isolation = instance.defaultTransactionIsolation;
+        if (isolation == null) {
+            isolation = con.getTransactionIsolation();
+            instance.defaultTransactionIsolation = isolation;
+        }
+        return isolation;
+    }
+
+    /**
+     * Marks that the calling thread has just written to the primary, so that the reads it makes in the following
+     * mysql_read_replica_max_staleness_ms are not served by a replica that may not have its write yet. Other
+     * threads keep reading from the replicas.
+     */
+    static void recordWrite(Start start) {
+        ConnectionPool instance = getInstance(start);
+        if (instance != null && !instance.readReplicas.isEmpty()) {
+            instance.lastWriteTime.set(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return when the calling thread last wrote via this pool (see recordWrite), or 0
+     */
+    static long getLastWriteTime(Start start) {
+        ConnectionPool instance = getInstance(start);
+        return instance == null ? 0 : instance.lastWriteTime.get();
+    }
+
+    /**
+     * Sets when the calling thread last wrote via this pool. Used by ParallelQueryExecutor, so that the reads its
+     * threads make on behalf of a caller are routed as if the caller made them.
+     */
+    static void setLastWriteTime(Start start, long lastWriteTime) {
+        ConnectionPool instance = getInstance(start);
+        if (instance != null) {
+            instance.lastWriteTime.set(lastWriteTime);
+        }
+    }
+
+    /**
+     * @return active, idle, pending and total connections of the primary and read replica pools, and the time it
+     * takes to get a connection from the primary pool
+     */
+    static JsonObject getPoolMetrics(Start start) {
+        JsonObject metrics = new JsonObject();
+        ConnectionPool instance = getInstance(start);
+        if (instance != null && instance.hikariDataSource != null) {
+            JsonObject primary = getPoolGauges(instance.hikariDataSource);
+            primary.addProperty("shared", instance.shared);
+            Semaphore bulkhead = instance.bulkhead;
+            if (bulkhead != null) {
+                primary.addProperty("bulkheadAvailable", bulkhead.availablePermits());
+                primary.addProperty("bulkheadPending", bulkhead.getQueueLength());
+            }
+            metrics.add("primary", primary);
+
+            JsonArray replicas = new JsonArray();
+            for (ReadReplica replica : instance.readReplicas) {
+                JsonObject gauges = getPoolGauges(replica.dataSource);
+                gauges.addProperty("caughtUp", replica.caughtUp);
+                gauges.addProperty("secondsBehindSource", replica.secondsBehindSource);
+                replicas.add(gauges);
+            }
+            metrics.add("replicas", replicas);
+
+            // reads outside of transactions, by where they were served
+            JsonObject reads = new JsonObject();
+            reads.addProperty("replicas", instance.readsFromReplicas.get());
+            reads.addProperty("primary", instance.readsFromPrimary.get());
+            metrics.add("reads", reads);
+        }
+        metrics.add("acquire", ConnectionPoolMetrics.getSnapshot(start));
+        return metrics;
+    }
+
+    private static JsonObject getPoolGauges(HikariDataSource dataSource) {
+        JsonObject gauges = new JsonObject();
+        gauges.addProperty("name", dataSource.getPoolName());
+        gauges.addProperty("max", dataSource.getMaximumPoolSize());
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            gauges.addProperty("active", pool.getActiveConnections());
+            gauges.addProperty("idle", pool.getIdleConnections());
+            gauges.addProperty("pending", pool.getThreadsAwaitingConnection());
+            gauges.addProperty("total", pool.getTotalConnections());
+        }
+        return gauges;
+    }
+
+    @TestOnly
+    public static int getNumberOfSharedPools() {
+        return SharedDataSources.getNumberOfPools();
     }
 
     static void close(Start start) {
@@ -213,12 +555,105 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         }
         if (getInstance(start).hikariDataSource != null) {
             try {
-                getInstance(start).hikariDataSource.close();
+                if (getInstance(start).replicaLagChecker != null) {
+                    getInstance(start).replicaLagChecker.shutdownNow();
+                    getInstance(start).replicaLagChecker = null;
+                }
+                for (ReadReplica replica : getInstance(start).readReplicas) {
+                    getInstance(start).closeDataSource(replica.dataSource);
+                }
+                getInstance(start).closeDataSource(getInstance(start).hikariDataSource);
             } finally {
                 // we mark it as null so that next time it's being initialised, it will be initialised again
+                getInstance(start).readReplicas = new ArrayList<>();
                 getInstance(start).hikariDataSource = null;
+                getInstance(start).bulkhead = null;
                 removeInstance(start);
             }
         }
     }
+
+    private static class ReadReplica {
+        // returned by the server for a statement it does not know
+        private static final int ER_PARSE_ERROR = 1064;
+
+        final HikariDataSource dataSource;
+
+        // set by the lag checker. Reads only go to this replica while caughtUp is true.
+        volatile boolean caughtUp = false;
+        volatile Long secondsBehindSource = null;
+
+        private String statusQuery = null;
+        private boolean lagUnreadable = false;
+
+        ReadReplica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void checkLag(Start start, long maxStalenessMs) {
+            Long secondsBehind;
+            try (Connection con = dataSource.getConnection()) {
+                secondsBehind = getSecondsBehindSource(con);
+            } catch (SQLException | StorageQueryException e) {
+                if (!lagUnreadable) {
+                    Logging.warn(start, "Not using read replica " + dataSource.getPoolName()
+                            + " since its replication lag could not be read: " + e.getMessage());
+                    lagUnreadable = true;
+                }
+                secondsBehindSource = null;
+                caughtUp = false;
+                return;
+            }
+            lagUnreadable = false;
+            secondsBehindSource = secondsBehind;
+            // null if replication is not running, in which case the replica falls further behind
+            caughtUp = secondsBehind != null && secondsBehind * 1000 <= maxStalenessMs;
+        }
+
+        private Long getSecondsBehindSource(Connection con) throws SQLException, StorageQueryException {
+            // SHOW REPLICA STATUS needs MySQL 8.0.22 or MariaDB 10.5.1. Older servers only know SHOW SLAVE STATUS,
+            // which newer MySQL versions no longer support.
+            String[] queries = statusQuery != null ? new String[]{statusQuery}
+                    : new String[]{"SHOW REPLICA STATUS", "SHOW SLAVE STATUS"};
+            for (int i = 0; ; i++) {
+                try {
+                    Long secondsBehind = QueryExecutorTemplate.execute(con, queries[i], NO_OP_SETTER,
+                            ReadReplica::readSecondsBehindSource);
+                    statusQuery = queries[i];
+                    return secondsBehind;
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != ER_PARSE_ERROR || i == queries.length - 1) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        private static Long readSecondsBehindSource(ResultSet result) throws SQLException {
+            ResultSetMetaData metaData = result.getMetaData();
+            String column = null;
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String label = metaData.getColumnLabel(i);
+                if (label.equalsIgnoreCase("Seconds_Behind_Source")
+                        || label.equalsIgnoreCase("Seconds_Behind_Master")) {
+                    column = label;
+                }
+            }
+            // with more than one replication channel, the one that is furthest behind counts
+            long secondsBehind = 0;
+            while (result.next()) {
+                if (column == null) {
+                    return null;
+                }
+                long value = result.getLong(column);
+                if (result.wasNull()) {
+                    return null;
+                }
+                secondsBehind = Math.max(secondsBehind, value);
+            }
+            // no rows means that the host is not a replica (for example a primary that is listed as a replica), so
+            // it is never behind
+            return secondsBehind;
+        }
+    }
 }
@@ -0,0 +1,288 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.output.Logging;
+import io.supertokens.storage.mysql.queries.ActiveUsersQueries;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces last active updates in memory so that a user who makes many requests within
+ * mysql_last_active_flush_interval_ms causes one write instead of one per request. Only the latest time per
+ * (app_id, user_id) is kept, and a background thread writes the buffer out with multi-row upserts. The map is a
+ * ConcurrentHashMap, so updates for different users only contend on the same bin, not on a global lock.
+ */
+public class LastActiveWriteBuffer extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.LastActiveWriteBuffer";
+
+    // beyond this, updates are written directly so that a database outage does not grow the buffer without bound
+    static final int MAX_BUFFERED_USERS = 100_000;
+
+    static final int MAX_ROWS_PER_FLUSH_QUERY = 500;
+
+    private final Start start;
+    private final ConcurrentHashMap<Key, Long> lastActiveTimes = new ConcurrentHashMap<>();
+    // entries removed by a transaction that has not ended yet, so that they can be put back if it rolls back
+    private final ConcurrentHashMap<Connection, List<Map.Entry<Key, Long>>> removedInTransaction =
+            new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    private LastActiveWriteBuffer(Start start, long flushIntervalMs) {
+        this.start = start;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mysql-last-active-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushAndLogErrors, flushIntervalMs, flushIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static LastActiveWriteBuffer getInstance(Start start) {
+        return (LastActiveWriteBuffer) start.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    static void init(Start start) {
+        long flushIntervalMs = Config.getConfig(start).getLastActiveFlushIntervalMs();
+        if (flushIntervalMs == 0 || getInstance(start) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new LastActiveWriteBuffer(start, flushIntervalMs));
+    }
+
+    /**
+     * @return false if the update was not buffered (buffering is disabled or the buffer is full), in which case the
+     * caller should write it directly
+     */
+    static boolean add(Start start, AppIdentifier appIdentifier, String userId, long lastActiveTime) {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance == null) {
+            return false;
+        }
+        Key key = new Key(appIdentifier.getAppId(), userId);
+        if (instance.lastActiveTimes.size() >= MAX_BUFFERED_USERS && !instance.lastActiveTimes.containsKey(key)) {
+            return false;
+        }
+        instance.lastActiveTimes.merge(key, lastActiveTime, Math::max);
+        return true;
+    }
+
+    static Long get(Start start, AppIdentifier appIdentifier, String userId) {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance == null) {
+            return null;
+        }
+        return instance.lastActiveTimes.get(new Key(appIdentifier.getAppId(), userId));
+    }
+
+    /**
+     * For a transaction that deletes the user's last active row. This takes the flush lock, so that a flush which
+     * already copied the entry has written it before the caller deletes the row. Else that flush could write the row
+     * again after the delete commits. The entry is put back if the transaction rolls back.
+     */
+    static void remove_Transaction(Start start, Connection con, AppIdentifier appIdentifier, String userId) {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        Key key = new Key(appIdentifier.getAppId(), userId);
+        Long removed;
+        synchronized (instance) {
+            removed = instance.lastActiveTimes.remove(key);
+        }
+        if (removed != null) {
+            instance.removedInTransaction.computeIfAbsent(con, k -> new ArrayList<>()).add(Map.entry(key, removed));
+        }
+    }
+
+    /**
+     * Called by Start when a transaction on the connection has been committed or rolled back.
+     */
+    static void onTransactionEnd(Start start, Connection con, boolean rolledBack) {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        List<Map.Entry<Key, Long>> removed = instance.removedInTransaction.remove(con);
+        if (removed != null && rolledBack) {
+            for (Map.Entry<Key, Long> entry : removed) {
+                instance.lastActiveTimes.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+        }
+    }
+
+    /**
+     * Drops the buffered times of an app that was deleted, since writing them would fail on its foreign key.
+     */
+    static void removeApp(Start start, AppIdentifier appIdentifier) {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        String appId = appIdentifier.getAppId();
+        synchronized (instance) {
+            instance.lastActiveTimes.keySet().removeIf(key -> key.appId.equals(appId));
+        }
+    }
+
+    static void flush(Start start) throws StorageQueryException {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance != null) {
+            instance.flush();
+        }
+    }
+
+    static void clear(Start start) {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance != null) {
+            instance.lastActiveTimes.clear();
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes out whatever is still buffered. Must be called before the connection
+     * pool is closed.
+     */
+    static void close(Start start) {
+        LastActiveWriteBuffer instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        start.getResourceDistributor().removeResource(RESOURCE_KEY);
+        instance.flusher.shutdown();
+        try {
+            instance.flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        instance.flushAndLogErrors();
+    }
+
+    private void flushAndLogErrors() {
+        try {
+            flush();
+        } catch (StorageQueryException | RuntimeException e) {
+            Logging.error(start, "Error while writing buffered last active times: " + e.getMessage(), false);
+        }
+    }
+
+    /*
+     * synchronized so that the scheduled flush and an explicit flush don't write the same entries twice. A batch that
+     * fails does not stop the batches after it from being written. The first error is thrown at the end.
+     */
+    private synchronized void flush() throws StorageQueryException {
+        // entries that are updated after this point are picked up by the next flush
+        List<Map.Entry<Key, Long>> entries = new ArrayList<>(lastActiveTimes.size());
+        for (Map.Entry<Key, Long> entry : lastActiveTimes.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+
+        Exception firstError = null;
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_FLUSH_QUERY) {
+            List<Map.Entry<Key, Long>> batch = entries.subList(from,
+                    Math.min(from + MAX_ROWS_PER_FLUSH_QUERY, entries.size()));
+            try {
+                write(batch);
+                removeWritten(batch);
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // usually the users of an app that was deleted after their times were buffered. We write the rows
+                // one by one so that only the ones that fail the foreign key are dropped.
+                for (Map.Entry<Key, Long> entry : batch) {
+                    try {
+                        write(List.of(entry));
+                    } catch (SQLIntegrityConstraintViolationException rowError) {
+                        Logging.debug(start, "Dropping the buffered last active time of user "
+                                + entry.getKey().userId + " in app " + entry.getKey().appId + ": "
+                                + rowError.getMessage());
+                    } catch (SQLException | StorageQueryException rowError) {
+                        firstError = firstError == null ? rowError : firstError;
+                        continue;
+                    }
+                    removeWritten(List.of(entry));
+                }
+            } catch (SQLException | StorageQueryException e) {
+                // the batch stays in the buffer and is retried by the next flush
+                firstError = firstError == null ? e : firstError;
+            }
+        }
+        if (firstError != null) {
+            throw new StorageQueryException(firstError);
+        }
+    }
+
+    private void write(List<Map.Entry<Key, Long>> batch) throws SQLException, StorageQueryException {
+        List<String> appIds = new ArrayList<>(batch.size());
+        List<String> userIds = new ArrayList<>(batch.size());
+        List<Long> times = new ArrayList<>(batch.size());
+        for (Map.Entry<Key, Long> entry : batch) {
+            appIds.add(entry.getKey().appId);
+            userIds.add(entry.getKey().userId);
+            times.add(entry.getValue());
+        }
+        ActiveUsersQueries.updateUsersLastActive(start, appIds, userIds, times);
+    }
+
+    // only removes an entry if it was not updated while we were writing it. Otherwise the newer time stays in the
+    // buffer for the next flush.
+    private void removeWritten(List<Map.Entry<Key, Long>> batch) {
+        for (Map.Entry<Key, Long> entry : batch) {
+            lastActiveTimes.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static class Key {
+        private final String appId;
+        private final String userId;
+
+        private Key(String appId, String userId) {
+            this.appId = appId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return appId.equals(key.appId) && userId.equals(key.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appId, userId);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.storage.mysql.config.Config;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent read queries (that each borrow their own pool connection) at the same time, if
+ * mysql_parallel_recipe_lookups is enabled. The pool has at most mysql_connection_pool_size threads and no queue:
+ * when all threads are busy, the task runs on the calling thread instead, so this never waits longer than running
+ * the queries one after another would.
+ * <p>
+ * Tasks see the read-your-writes window of the calling thread (see ConnectionPool.recordWrite), so that if the
+ * caller has just written, none of the queries is served by a read replica that may not have the write yet.
+ */
+public class ParallelQueryExecutor extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.ParallelQueryExecutor";
+
+    private final ThreadPoolExecutor executor;
+
+    private ParallelQueryExecutor(int maxThreads) {
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mysql-parallel-query-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static ParallelQueryExecutor getInstance(Start start) {
+        return (ParallelQueryExecutor) start.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    static void init(Start start) {
+        if (!Config.getConfig(start).isParallelRecipeLookupsEnabled() || getInstance(start) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY,
+                new ParallelQueryExecutor(Config.getConfig(start).getConnectionPoolSize()));
+    }
+
+    static void close(Start start) {
+        ParallelQueryExecutor instance = getInstance(start);
+        if (instance != null) {
+            start.getResourceDistributor().removeResource(RESOURCE_KEY);
+            instance.executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs all the tasks and returns their results in the same order. Tasks run one after another on the calling
+     * thread if parallel lookups are disabled. The first exception thrown by a task is rethrown.
+     */
+    public static <T> List<T> runAll(Start start, List<QueryTask<T>> tasks)
+            throws SQLException, StorageQueryException {
+        ParallelQueryExecutor instance = getInstance(start);
+        List<T> results = new ArrayList<>(tasks.size());
+        if (instance == null || tasks.size() < 2) {
+            for (QueryTask<T> task : tasks) {
+                results.add(task.run());
+            }
+            return results;
+        }
+
+        long lastWriteTime = ConnectionPool.getLastWriteTime(start);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            // the last task runs on this thread, since it would only wait otherwise
+            for (int i = 0; i < tasks.size() - 1; i++) {
+                QueryTask<T> task = tasks.get(i);
+                futures.add(instance.executor.submit(() -> runAsCaller(start, lastWriteTime, task)));
+            }
+            T lastResult = tasks.get(tasks.size() - 1).run();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            results.add(lastResult);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageQueryException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof StorageQueryException) {
+                throw (StorageQueryException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new StorageQueryException((Exception) cause);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // the task may also run on the calling thread (if all threads are busy), so the previous value is restored
+    private static <T> T runAsCaller(Start start, long lastWriteTime, QueryTask<T> task)
+            throws SQLException, StorageQueryException {
+        long previousLastWriteTime = ConnectionPool.getLastWriteTime(start);
+        ConnectionPool.setLastWriteTime(start, lastWriteTime);
+        try {
+            return task.run();
+        } finally {
+            ConnectionPool.setLastWriteTime(start, previousLastWriteTime);
+        }
+    }
+
+    @FunctionalInterface
+    public interface QueryTask<T> {
+        T run() throws SQLException, StorageQueryException;
+    }
+}
@@ -17,45 +17,159 @@
 package io.supertokens.storage.mysql;
 
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.storage.mysql.metrics.QueryMetrics;
+import io.supertokens.storage.mysql.metrics.QueryMetricsRecorder;
+import io.supertokens.storage.mysql.metrics.RowCountingResultSet;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 
 public interface QueryExecutorTemplate {
 
     static <T> T execute(Start start, String QUERY, PreparedStatementValueSetter setter,
             ResultSetValueExtractor<T> mapper) throws SQLException, StorageQueryException {
-        try (Connection con = ConnectionPool.getConnection(start)) {
-            return execute(con, QUERY, setter, mapper);
+        // reads outside of a transaction can be served by a read replica, if one is configured
+        try (Connection con = ConnectionPool.getConnectionForRead(start)) {
+            return execute(QueryMetrics.getRecorder(start), con, QUERY, setter, mapper);
         }
     }
 
     static <T> T execute(Connection con, String QUERY, PreparedStatementValueSetter setter,
             ResultSetValueExtractor<T> mapper) throws SQLException, StorageQueryException {
+        return execute(QueryMetrics.getRecorderForCurrentThread(), con, QUERY, setter, mapper);
+    }
+
+    private static <T> T execute(QueryMetricsRecorder recorder, Connection con, String QUERY,
+            PreparedStatementValueSetter setter, ResultSetValueExtractor<T> mapper)
+            throws SQLException, StorageQueryException {
         if (setter == null)
             setter = PreparedStatementValueSetter.NO_OP_SETTER;
+        if (recorder == null) {
+            try (PreparedStatement pst = con.prepareStatement(QUERY)) {
+                setter.setValues(pst);
+                try (ResultSet result = pst.executeQuery()) {
+                    return mapper.extract(result);
+                }
+            }
+        }
+
+        long startTime = System.nanoTime();
+        boolean failed = false;
+        RowCountingResultSet countingResultSet = null;
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             setter.setValues(pst);
             try (ResultSet result = pst.executeQuery()) {
-                return mapper.extract(result);
+                countingResultSet = new RowCountingResultSet(result);
+                return mapper.extract(countingResultSet);
             }
+        } catch (SQLException e) {
+            failed = true;
+            throw e;
+        } finally {
+            recorder.recordQuery(QUERY, System.nanoTime() - startTime,
+                    countingResultSet == null ? 0 : countingResultSet.getRows(), failed);
         }
     }
 
     static int update(Start start, String QUERY, PreparedStatementValueSetter setter)
             throws SQLException, StorageQueryException {
         try (Connection con = ConnectionPool.getConnection(start)) {
-            return update(con, QUERY, setter);
+            return update(QueryMetrics.getRecorder(start), con, QUERY, setter);
+        } finally {
+            ConnectionPool.recordWrite(start);
         }
     }
 
     static int update(Connection con, String QUERY, PreparedStatementValueSetter setter)
             throws SQLException, StorageQueryException {
+        return update(QueryMetrics.getRecorderForCurrentThread(), con, QUERY, setter);
+    }
+
+    private static int update(QueryMetricsRecorder recorder, Connection con, String QUERY,
+            PreparedStatementValueSetter setter) throws SQLException, StorageQueryException {
+        if (recorder == null) {
+            try (PreparedStatement pst = con.prepareStatement(QUERY)) {
+                setter.setValues(pst);
+                return pst.executeUpdate();
+            }
+        }
+
+        long startTime = System.nanoTime();
+        boolean failed = false;
+        int rows = 0;
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             setter.setValues(pst);
-            return pst.executeUpdate();
+            rows = pst.executeUpdate();
+            return rows;
+        } catch (SQLException e) {
+            failed = true;
+            throw e;
+        } finally {
+            recorder.recordQuery(QUERY, System.nanoTime() - startTime, rows, failed);
+        }
+    }
+
+    static int[] batchUpdate(Start start, String QUERY, List<PreparedStatementValueSetter> setters)
+            throws SQLException, StorageQueryException {
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            return batchUpdate(QueryMetrics.getRecorder(start), con, QUERY, setters);
+        } finally {
+            ConnectionPool.recordWrite(start);
+        }
+    }
+
+    /**
+     * Runs QUERY once per setter as a single JDBC batch. Since the pool enables rewriteBatchedStatements, the driver
+     * sends INSERTs as one multi-row statement, so the returned counts may be Statement.SUCCESS_NO_INFO instead of
+     * the per statement update counts.
+     * If one of the statements fails, the underlying SQLException (for example a
+     * SQLIntegrityConstraintViolationException) is thrown, just like update would, so that callers can map it.
+     */
+    static int[] batchUpdate(Connection con, String QUERY, List<PreparedStatementValueSetter> setters)
+            throws SQLException, StorageQueryException {
+        return batchUpdate(QueryMetrics.getRecorderForCurrentThread(), con, QUERY, setters);
+    }
+
+    private static int[] batchUpdate(QueryMetricsRecorder recorder, Connection con, String QUERY,
+            List<PreparedStatementValueSetter> setters) throws SQLException, StorageQueryException {
+        if (setters.isEmpty()) {
+            return new int[0];
+        }
+
+        long startTime = System.nanoTime();
+        boolean failed = false;
+        int[] updateCounts = null;
+        try (PreparedStatement pst = con.prepareStatement(QUERY)) {
+            for (PreparedStatementValueSetter setter : setters) {
+                setter.setValues(pst);
+                pst.addBatch();
+            }
+            updateCounts = pst.executeBatch();
+            return updateCounts;
+        } catch (BatchUpdateException e) {
+            failed = true;
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        } catch (SQLException e) {
+            failed = true;
+            throw e;
+        } finally {
+            if (recorder != null) {
+                long rows = 0;
+                if (updateCounts != null) {
+                    for (int count : updateCounts) {
+                        rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+                    }
+                }
+                recorder.recordQuery(QUERY, System.nanoTime() - startTime, rows, failed);
+            }
         }
     }
 
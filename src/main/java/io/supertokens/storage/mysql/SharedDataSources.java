@@ -0,0 +1,124 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process wide registry of Hikari pools used when mysql_shared_connection_pools is enabled. All Start instances
+ * that connect to the same database with the same user and driver settings get the same pool, no matter how
+ * their other configs differ, so the number of connections grows with the number of databases and not with the
+ * number of tenants. Pools are reference counted and closed when the last Start using them is closed.
+ *
+ * A shared pool is as large as the largest mysql_connection_pool_size among the Start instances using it. How many
+ * of its connections each Start may hold at once is limited separately (see ConnectionPool).
+ */
+final class SharedDataSources {
+
+    private static final Map<String, SharedDataSource> dataSources = new HashMap<>();
+
+    private SharedDataSources() {
+    }
+
+    static synchronized HikariDataSource acquire(HikariConfig config) {
+        String key = getKey(config);
+        SharedDataSource shared = dataSources.get(key);
+        if (shared == null) {
+            shared = new SharedDataSource(key, new HikariDataSource(config));
+            dataSources.put(key, shared);
+        } else if (config.getMaximumPoolSize() > shared.dataSource.getMaximumPoolSize()) {
+            shared.dataSource.getHikariConfigMXBean().setMaximumPoolSize(config.getMaximumPoolSize());
+        }
+        shared.references++;
+        return shared.dataSource;
+    }
+
+    static void release(HikariDataSource dataSource) {
+        synchronized (SharedDataSources.class) {
+            SharedDataSource shared = null;
+            for (SharedDataSource candidate : dataSources.values()) {
+                if (candidate.dataSource == dataSource) {
+                    shared = candidate;
+                    break;
+                }
+            }
+            if (shared == null) {
+                // not a shared pool (or already closed)
+                return;
+            }
+            shared.references--;
+            if (shared.references > 0) {
+                return;
+            }
+            dataSources.remove(shared.key);
+        }
+        dataSource.close();
+    }
+
+    static synchronized int getNumberOfPools() {
+        return dataSources.size();
+    }
+
+    /**
+     * Two configs get the same pool only if the connections they would open are interchangeable, so everything
+     * that is passed on to the driver is part of the key. The password is hashed so that it is not kept around in
+     * yet another string.
+     */
+    private static String getKey(HikariConfig config) {
+        return config.getDriverClassName()
+                + "|" + config.getJdbcUrl()
+                + "|" + config.getUsername()
+                + "|" + sha256(config.getPassword())
+                + "|" + config.isReadOnly()
+                + "|" + new TreeMap<>(config.getDataSourceProperties());
+    }
+
+    private static String sha256(String value) {
+        if (value == null) {
+            return "";
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class SharedDataSource {
+        final String key;
+        final HikariDataSource dataSource;
+        int references = 0;
+
+        SharedDataSource(String key, HikariDataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+}
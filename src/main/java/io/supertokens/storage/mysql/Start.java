@@ -83,10 +83,20 @@ import io.supertokens.pluginInterface.userroles.UserRolesStorage;
 import io.supertokens.pluginInterface.userroles.exception.DuplicateUserRoleMappingException;
 import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
 import io.supertokens.pluginInterface.userroles.sqlStorage.UserRolesSQLStorage;
+import io.supertokens.storage.mysql.bulkimport.BulkImportResult;
+import io.supertokens.storage.mysql.bulkimport.BulkImportUser;
+import io.supertokens.storage.mysql.cache.SessionInfoCache;
+import io.supertokens.storage.mysql.cache.UserRolesCache;
 import io.supertokens.storage.mysql.config.Config;
 import io.supertokens.storage.mysql.config.MySQLConfig;
+import io.supertokens.storage.mysql.metrics.QueryMetrics;
+import io.supertokens.storage.mysql.metrics.QueryMetricsRecorder;
+import io.supertokens.storage.mysql.metrics.TransactionRetryMetrics;
 import io.supertokens.storage.mysql.output.Logging;
+import io.supertokens.storage.mysql.pagination.Page;
 import io.supertokens.storage.mysql.queries.*;
+import io.supertokens.storage.mysql.queries.multitenancy.TenantConfigCache;
+import io.supertokens.storage.mysql.userroles.UserRolesAndPermissions;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.TestOnly;
 import org.slf4j.LoggerFactory;
@@ -97,6 +107,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -153,6 +164,49 @@ public class Start
     @Override
     public void loadConfig(JsonObject configJson, Set<LOG_LEVEL> logLevels, TenantIdentifier tenantIdentifier) throws InvalidConfigException {
         Config.loadConfig(this, configJson, logLevels, tenantIdentifier);
+        QueryCatalog.init(this);
+        QueryMetrics.init(this);
+        TransactionRetryMetrics.init(this);
+    }
+
+    /**
+     * @return per query counts, errors, rows and latency percentiles, if mysql_query_metrics_enabled is true
+     */
+    public JsonObject getQueryMetricsSnapshot() {
+        return QueryMetrics.getSnapshot(this);
+    }
+
+    public void addQueryMetricsRecorder(QueryMetricsRecorder recorder) {
+        QueryMetrics.addRecorder(this, recorder);
+    }
+
+    /**
+     * @return hits, misses, hit rate, evictions and invalidations of the session cache (mysql_session_cache_size)
+     */
+    public JsonObject getSessionCacheStats() {
+        return SessionInfoCache.getStats(this);
+    }
+
+    /**
+     * @return hits, misses, evictions and invalidations of the user roles cache (mysql_user_roles_cache_size)
+     */
+    public JsonObject getUserRolesCacheStats() {
+        return UserRolesCache.getStats(this);
+    }
+
+    /**
+     * @return deadlocks, retries and give ups of transactions, in total and per calling method
+     */
+    public JsonObject getTransactionRetryMetrics() {
+        return TransactionRetryMetrics.getSnapshot(this);
+    }
+
+    /**
+     * @return active, idle, pending and total connections per pool, and latency percentiles and failures of
+     * getting a connection from the primary pool
+     */
+    public JsonObject getConnectionPoolMetrics() {
+        return ConnectionPool.getPoolMetrics(this);
     }
 
     @Override
@@ -226,6 +280,11 @@ public class Start
         try {
             ConnectionPool.initPool(this, shouldWait);
             GeneralQueries.createTablesIfNotExists(this);
+            SchemaMigrations.migrate(this);
+            LastActiveWriteBuffer.init(this);
+            ParallelQueryExecutor.init(this);
+            SessionInfoCache.init(this);
+            UserRolesCache.init(this);
         } catch (Exception e) {
             throw new DbInitException(e);
         }
@@ -240,28 +299,60 @@ public class Start
     @Override
     public <T> T startTransaction(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel)
             throws StorageTransactionLogicException, StorageQueryException {
-        final int NUM_TRIES = 50;
+        return startTransaction(logic, isolationLevel, false);
+    }
+
+    /**
+     * Like startTransaction, but for logic that only reads. The transaction is started as READ ONLY, which lets
+     * InnoDB skip assigning it a transaction ID, and it may run on a read replica (see
+     * ConnectionPool.getConnectionForRead). Any write done via the connection fails.
+     *
+     * This uses REPEATABLE_READ since a SERIALIZABLE transaction turns every plain SELECT into a locking read,
+     * which would defeat the purpose.
+     */
+    public <T> T startReadOnlyTransaction(TransactionLogic<T> logic)
+            throws StorageTransactionLogicException, StorageQueryException {
+        return startReadOnlyTransaction(logic, TransactionIsolationLevel.REPEATABLE_READ);
+    }
+
+    public <T> T startReadOnlyTransaction(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel)
+            throws StorageTransactionLogicException, StorageQueryException {
+        return startTransaction(logic, isolationLevel, true);
+    }
+
+    private <T> T startTransaction(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel,
+                                   boolean readOnly)
+            throws StorageTransactionLogicException, StorageQueryException {
         int tries = 0;
+        long startTime = System.currentTimeMillis();
+        long delay = 0;
+        TransactionRetryPolicy retryPolicy = null;
+        String caller = null;
         while (true) {
             tries++;
             try {
-                return startTransactionHelper(logic, isolationLevel);
+                return startTransactionHelper(logic, isolationLevel, readOnly);
             } catch (SQLException | StorageQueryException | StorageTransactionLogicException e) {
                 // check according to:
                 // https://github.com/supertokens/supertokens-mysql-plugin/pull/2
-                if ((e instanceof SQLTransactionRollbackException
-                        || (e.getMessage() != null && e.getMessage().toLowerCase().contains("deadlock")))
-                        && tries < NUM_TRIES) {
-                    try {
-                        Thread.sleep((long) (10 + (250 + Math.min(Math.pow(2, tries), 3000)) * Math.random()));
-                    } catch (InterruptedException ignored) {
+                if (e instanceof SQLTransactionRollbackException
+                        || (e.getMessage() != null && e.getMessage().toLowerCase().contains("deadlock"))) {
+                    if (retryPolicy == null) {
+                        retryPolicy = TransactionRetryPolicy.fromConfig(Config.getConfig(this));
+                        caller = TransactionRetryMetrics.getCaller();
+                    }
+                    delay = retryPolicy.getNextDelayMs(delay);
+                    boolean retry = retryPolicy.shouldRetry(tries, System.currentTimeMillis() - startTime, delay);
+                    TransactionRetryMetrics.recordDeadlock(this, caller, retry);
+                    if (retry) {
+                        try {
+                            Thread.sleep(delay);
+                        } catch (InterruptedException ignored) {
+                        }
+                        ProcessState.getInstance(this).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
+                        continue; // this because deadlocks are not necessarily a result of faulty logic. They can
+                        // happen
                     }
-                    ProcessState.getInstance(this).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
-                    continue; // this because deadlocks are not necessarily a result of faulty logic. They can
-                    // happen
-                }
-                if ((e instanceof SQLTransactionRollbackException
-                        || (e.getMessage() != null && e.getMessage().toLowerCase().contains("deadlock"))) && tries == NUM_TRIES) {
                     ProcessState.getInstance(this).addState(ProcessState.PROCESS_STATE.DEADLOCK_NOT_RESOLVED, e);
                 }
                 if (e instanceof StorageQueryException) {
@@ -274,46 +365,76 @@ public class Start
         }
     }
 
-    private <T> T startTransactionHelper(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel)
+    private <T> T startTransactionHelper(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel,
+                                         boolean readOnly)
             throws StorageQueryException, StorageTransactionLogicException, SQLException {
         Connection con = null;
-        Integer defaultTransactionIsolation = null;
+        boolean rolledBack = false;
+        QueryMetricsRecorder previousRecorder = QueryMetrics.bindToCurrentThread(this);
         try {
-            con = ConnectionPool.getConnection(this);
-            defaultTransactionIsolation = con.getTransactionIsolation();
+            con = readOnly ? ConnectionPool.getConnectionForRead(this) : ConnectionPool.getConnection(this);
             int libIsolationLevel = Connection.TRANSACTION_SERIALIZABLE;
+            String isolationLevelSql = "SERIALIZABLE";
             switch (isolationLevel) {
                 case SERIALIZABLE:
                     libIsolationLevel = Connection.TRANSACTION_SERIALIZABLE;
+                    isolationLevelSql = "SERIALIZABLE";
                     break;
                 case REPEATABLE_READ:
                     libIsolationLevel = Connection.TRANSACTION_REPEATABLE_READ;
+                    isolationLevelSql = "REPEATABLE READ";
                     break;
                 case READ_COMMITTED:
                     libIsolationLevel = Connection.TRANSACTION_READ_COMMITTED;
+                    isolationLevelSql = "READ COMMITTED";
                     break;
                 case READ_UNCOMMITTED:
                     libIsolationLevel = Connection.TRANSACTION_READ_UNCOMMITTED;
+                    isolationLevelSql = "READ UNCOMMITTED";
                     break;
                 case NONE:
                     libIsolationLevel = Connection.TRANSACTION_NONE;
+                    isolationLevelSql = null;
                     break;
             }
-            con.setTransactionIsolation(libIsolationLevel);
             con.setAutoCommit(false);
+            // SET TRANSACTION (without SESSION) only applies to the transaction that is about to start, so the
+            // connection goes back to the pool with its default isolation level and access mode and nothing needs
+            // to be restored afterwards. We also skip it entirely if the defaults are already what we want. A
+            // read only transaction always sends it, so we state the isolation level too: its connection may be
+            // from a replica whose default differs from the primary's, and it costs no extra round trip.
+            List<String> characteristics = new ArrayList<>();
+            if (isolationLevelSql != null && (readOnly
+                    || libIsolationLevel != ConnectionPool.getDefaultTransactionIsolation(this, con))) {
+                characteristics.add("ISOLATION LEVEL " + isolationLevelSql);
+            }
+            if (readOnly) {
+                characteristics.add("READ ONLY");
+            }
+            if (!characteristics.isEmpty()) {
+                try (Statement statement = con.createStatement()) {
+                    statement.execute("SET TRANSACTION " + String.join(", ", characteristics));
+                }
+            }
             return logic.mainLogicAndCommit(new TransactionConnection(con));
         } catch (Exception e) {
             if (con != null) {
+                rolledBack = true;
                 con.rollback();
             }
             throw e;
         } finally {
+            QueryMetrics.unbindFromCurrentThread(previousRecorder);
             if (con != null) {
+                SessionInfoCache.onTransactionEnd(this, con);
+                UserRolesCache.onTransactionEnd(this, con);
+                LastActiveWriteBuffer.onTransactionEnd(this, con, rolledBack);
                 con.setAutoCommit(true);
-                if (defaultTransactionIsolation != null) {
-                    con.setTransactionIsolation(defaultTransactionIsolation);
-                }
                 con.close();
+                if (!readOnly) {
+                    // the transaction may have committed just now, so reads that follow should not go to a replica
+                    ConnectionPool.recordWrite(this);
+                }
             }
         }
     }
@@ -432,6 +553,7 @@ public class Start
         try {
             initStorage(false);
             enabled = true; // Allow get connection to work, to delete the data
+            LastActiveWriteBuffer.clear(this);
             GeneralQueries.deleteAllTables(this);
 
             // had initStorage with false, so stop logging needs to be forced here
@@ -453,6 +575,11 @@ public class Start
 
     @Override
     public void close() {
+        LastActiveWriteBuffer.close(this);
+        ParallelQueryExecutor.close(this);
+        TenantConfigCache.clear(this);
+        SessionInfoCache.clear(this);
+        UserRolesCache.clear(this);
         ConnectionPool.close(this);
     }
 
@@ -537,8 +664,19 @@ public class Start
 
     @Override
     public void deleteAllExpiredSessions() throws StorageQueryException {
+        if (Config.getConfig(this).isSessionInfoPartitioningEnabled()) {
+            try {
+                int dropped = SessionQueries.maintainSessionInfoPartitions(this);
+                Logging.debug(this, "Dropped " + dropped + " session_info partitions with only expired sessions");
+            } catch (SQLException | StorageQueryException e) {
+                // for example if another core changed the partitions at the same time. The next run will catch up,
+                // and expired sessions are still deleted below.
+                Logging.warn(this, "Could not maintain the session_info partitions: " + e.getMessage());
+            }
+        }
         try {
-            SessionQueries.deleteAllExpiredSessions(this);
+            int deleted = SessionQueries.deleteAllExpiredSessions(this);
+            Logging.debug(this, "Deleted " + deleted + " expired sessions");
         } catch (SQLException e) {
             throw new StorageQueryException(e);
         }
@@ -725,7 +863,8 @@ public class Start
         } else if (className.equals(JWTRecipeStorage.class.getName())) {
             return false;
         } else if (className.equals(ActiveUsersStorage.class.getName())) {
-            return ActiveUsersQueries.getLastActiveByUserId(this, appIdentifier, userId) != null;
+            return LastActiveWriteBuffer.get(this, appIdentifier, userId) != null
+                    || ActiveUsersQueries.getLastActiveByUserId(this, appIdentifier, userId) != null;
         } else {
             throw new IllegalStateException("ClassName: " + className + " is not part of NonAuthRecipeStorage");
         }
@@ -980,7 +1119,8 @@ public class Start
     @Override
     public void deleteExpiredEmailVerificationTokens() throws StorageQueryException {
         try {
-            EmailVerificationQueries.deleteExpiredEmailVerificationTokens(this);
+            int deleted = EmailVerificationQueries.deleteExpiredEmailVerificationTokens(this);
+            Logging.debug(this, "Deleted " + deleted + " expired email verification tokens");
         } catch (SQLException e) {
             throw new StorageQueryException(e);
         }
@@ -1147,7 +1287,8 @@ public class Start
     @Override
     public void deleteExpiredPasswordResetTokens() throws StorageQueryException {
         try {
-            EmailPasswordQueries.deleteExpiredPasswordResetTokens(this);
+            int deleted = EmailPasswordQueries.deleteExpiredPasswordResetTokens(this);
+            Logging.debug(this, "Deleted " + deleted + " expired password reset tokens");
         } catch (SQLException e) {
             throw new StorageQueryException(e);
         }
@@ -1252,6 +1393,32 @@ public class Start
         }
     }
 
+    /**
+     * Pages through the users of a tenant with keyset pagination. Pass null as the cursor for the first page, and
+     * the nextCursor of a page to get the one after it.
+     *
+     * @throws IllegalArgumentException if the limit is less than 1, timeJoinedOrder is not "ASC" or "DESC", or the
+     *                                  cursor is not valid or was created with another timeJoinedOrder
+     */
+    public Page<AuthRecipeUserInfo> getUsersPage(TenantIdentifier tenantIdentifier, int limit,
+                                                 @NotNull String timeJoinedOrder,
+                                                 @Nullable RECIPE_ID[] includeRecipeIds, @Nullable String cursor)
+            throws StorageQueryException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1");
+        }
+        // it is put into the query as is
+        if (!"ASC".equals(timeJoinedOrder) && !"DESC".equals(timeJoinedOrder)) {
+            throw new IllegalArgumentException("timeJoinedOrder must be ASC or DESC");
+        }
+        try {
+            return GeneralQueries.getUsersPage(this, tenantIdentifier, limit, timeJoinedOrder, includeRecipeIds,
+                    cursor);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public boolean doesUserIdExist(AppIdentifier appIdentifier, String userId) throws StorageQueryException {
         try {
@@ -1263,6 +1430,9 @@ public class Start
 
     @Override
     public void updateLastActive(AppIdentifier appIdentifier, String userId) throws StorageQueryException {
+        if (LastActiveWriteBuffer.add(this, appIdentifier, userId, System.currentTimeMillis())) {
+            return;
+        }
         try {
             ActiveUsersQueries.updateUserLastActive(this, appIdentifier, userId);
         } catch (SQLException e) {
@@ -1272,6 +1442,7 @@ public class Start
 
     @Override
     public int countUsersActiveSince(AppIdentifier appIdentifier, long time) throws StorageQueryException {
+        LastActiveWriteBuffer.flush(this);
         try {
             return ActiveUsersQueries.countUsersActiveSince(this, appIdentifier, time);
         } catch (SQLException e) {
@@ -1291,6 +1462,7 @@ public class Start
     @Override
     public int countUsersEnabledTotpAndActiveSince(AppIdentifier appIdentifier, long time)
             throws StorageQueryException {
+        LastActiveWriteBuffer.flush(this);
         try {
             return ActiveUsersQueries.countUsersEnabledTotpAndActiveSince(this, appIdentifier, time);
         } catch (SQLException e) {
@@ -1303,6 +1475,7 @@ public class Start
             throws StorageQueryException {
         try {
             Connection sqlCon = (Connection) con.getConnection();
+            LastActiveWriteBuffer.remove_Transaction(this, sqlCon, appIdentifier, userId);
             ActiveUsersQueries.deleteUserActive_Transaction(sqlCon, this, appIdentifier, userId);
         } catch (SQLException e) {
             throw new StorageQueryException(e);
@@ -1717,6 +1890,74 @@ public class Start
         }
     }
 
+    /**
+     * Creates many users of the email password, third party and passwordless recipes in the given tenant.
+     * The users are written in chunks of mysql_bulk_import_chunk_size, one transaction per chunk. Users that cannot
+     * be created (invalid input, duplicate user id, email, phone number or third party user) are reported in the
+     * result and do not stop the others from being created.
+     * <p>
+     * Chunks are committed as they go, so if this throws, the users of the chunks before the failing one have
+     * already been created.
+     */
+    public BulkImportResult bulkImportUsers(TenantIdentifier tenantIdentifier, List<BulkImportUser> users)
+            throws StorageQueryException, TenantOrAppNotFoundException {
+        int chunkSize = Config.getConfig(this).getBulkImportChunkSize();
+        List<BulkImportResult.Failure> failures = new ArrayList<>();
+
+        for (int from = 0; from < users.size(); from += chunkSize) {
+            List<BulkImportUser> chunk = users.subList(from, Math.min(from + chunkSize, users.size()));
+            try {
+                failures.addAll(BulkImportQueries.importUsers(this, tenantIdentifier, chunk, from));
+            } catch (StorageTransactionLogicException e) {
+                if (!(e.actualException instanceof SQLIntegrityConstraintViolationException)) {
+                    throw new StorageQueryException(e.actualException);
+                }
+                // Something that was not there during the duplicate checks (like a user that signed up at the
+                // same time) or a tenant that does not exist. We go through the regular sign up path for this
+                // chunk so that we know which user failed and why.
+                for (int i = 0; i < chunk.size(); i++) {
+                    BulkImportResult.FailureReason reason = importUser(tenantIdentifier, chunk.get(i));
+                    if (reason != null) {
+                        failures.add(new BulkImportResult.Failure(from + i, chunk.get(i).userId, reason));
+                    }
+                }
+            }
+        }
+
+        return new BulkImportResult(users.size() - failures.size(), failures);
+    }
+
+    private BulkImportResult.FailureReason importUser(TenantIdentifier tenantIdentifier, BulkImportUser user)
+            throws StorageQueryException, TenantOrAppNotFoundException {
+        if (!user.isValid()) {
+            return BulkImportResult.FailureReason.INVALID_INPUT;
+        }
+        try {
+            switch (user.recipeId) {
+                case EMAIL_PASSWORD:
+                    signUp(tenantIdentifier, user.userId, user.email, user.passwordHash, user.timeJoined);
+                    break;
+                case THIRD_PARTY:
+                    signUp(tenantIdentifier, user.userId, user.email,
+                            new LoginMethod.ThirdParty(user.thirdPartyId, user.thirdPartyUserId), user.timeJoined);
+                    break;
+                default:
+                    createUser(tenantIdentifier, user.userId, user.email, user.phoneNumber, user.timeJoined);
+                    break;
+            }
+            return null;
+        } catch (DuplicateUserIdException
+                 | io.supertokens.pluginInterface.thirdparty.exception.DuplicateUserIdException e) {
+            return BulkImportResult.FailureReason.DUPLICATE_USER_ID;
+        } catch (DuplicateEmailException e) {
+            return BulkImportResult.FailureReason.DUPLICATE_EMAIL;
+        } catch (DuplicatePhoneNumberException e) {
+            return BulkImportResult.FailureReason.DUPLICATE_PHONE_NUMBER;
+        } catch (DuplicateThirdPartyUserException e) {
+            return BulkImportResult.FailureReason.DUPLICATE_THIRD_PARTY_USER;
+        }
+    }
+
     @Override
     public void deletePasswordlessUser_Transaction(TransactionConnection con, AppIdentifier appIdentifier,
                                                    String userId, boolean deleteUserIdMappingToo) throws
@@ -1842,6 +2083,41 @@ public class Start
         }
     }
 
+    /**
+     * Merges the patch into the user's metadata on the database server with JSON_MERGE_PATCH, creating the metadata
+     * if the user has none. Null values in the patch remove keys, and nested objects are merged recursively.
+     */
+    public int mergeUserMetadata(AppIdentifier appIdentifier, String userId, JsonObject patch)
+            throws StorageQueryException, TenantOrAppNotFoundException {
+        try {
+            return UserMetadataQueries.mergeUserMetadata(this, appIdentifier, userId, patch);
+        } catch (SQLException e) {
+            if (e instanceof SQLIntegrityConstraintViolationException) {
+                MySQLConfig config = Config.getConfig(this);
+                String serverMessage = e.getMessage();
+
+                if (isForeignKeyConstraintError(serverMessage, config.getUserMetadataTable(), "app_id")) {
+                    throw new TenantOrAppNotFoundException(appIdentifier);
+                }
+            }
+            throw new StorageQueryException(e);
+        }
+    }
+
+    /**
+     * Reads only the given top level keys of the user's metadata. Keys that are not set are left out, and null is
+     * returned if the user has no metadata.
+     */
+    @Nullable
+    public JsonObject getUserMetadataKeys(AppIdentifier appIdentifier, String userId, List<String> keys)
+            throws StorageQueryException {
+        try {
+            return UserMetadataQueries.getUserMetadataKeys(this, appIdentifier, userId, keys);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public int deleteUserMetadata_Transaction(TransactionConnection con, AppIdentifier appIdentifier, String userId)
             throws StorageQueryException {
@@ -1888,6 +2164,59 @@ public class Start
         }
     }
 
+    /**
+     * Gives the role to all the given users of the tenant, in chunks of mysql_user_roles_bulk_chunk_size users with
+     * one multi-row INSERT and one transaction per chunk. Users that already have the role are skipped.
+     * <p>
+     * Chunks are committed as they go, so if this throws, the users of the chunks before the failing one already
+     * have the role.
+     *
+     * @return the number of users that were given the role
+     */
+    public int addRoleToUsers(TenantIdentifier tenantIdentifier, List<String> userIds, String role)
+            throws StorageQueryException, UnknownRoleException, TenantOrAppNotFoundException {
+        int chunkSize = Config.getConfig(this).getUserRolesBulkChunkSize();
+        int added = 0;
+
+        for (int from = 0; from < userIds.size(); from += chunkSize) {
+            List<String> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+            try {
+                added += UserRolesQueries.addRoleToUsers(this, tenantIdentifier, chunk, role);
+            } catch (StorageTransactionLogicException e) {
+                if (e.actualException instanceof UnknownRoleException) {
+                    throw (UnknownRoleException) e.actualException;
+                }
+                if (e.actualException instanceof TenantOrAppNotFoundException) {
+                    throw (TenantOrAppNotFoundException) e.actualException;
+                }
+                throw new StorageQueryException(e.actualException);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Takes the role away from all the given users of the tenant, in chunks of mysql_user_roles_bulk_chunk_size users
+     * with one DELETE per chunk.
+     *
+     * @return the number of users that had the role
+     */
+    public int removeRoleFromUsers(TenantIdentifier tenantIdentifier, List<String> userIds, String role)
+            throws StorageQueryException {
+        int chunkSize = Config.getConfig(this).getUserRolesBulkChunkSize();
+        int removed = 0;
+
+        try {
+            for (int from = 0; from < userIds.size(); from += chunkSize) {
+                List<String> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+                removed += UserRolesQueries.removeRoleFromUsers(this, tenantIdentifier, chunk, role);
+            }
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+        return removed;
+    }
+
     @Override
     public String[] getRolesForUser(TenantIdentifier tenantIdentifier, String userId) throws
             StorageQueryException {
@@ -1898,6 +2227,19 @@ public class Start
         }
     }
 
+    /**
+     * Reads the roles of the user in the tenant together with the permissions of each role in one query, instead of
+     * one query for the roles and another one per role. Served from the user roles cache when it is enabled.
+     */
+    public UserRolesAndPermissions getRolesAndPermissionsForUser(TenantIdentifier tenantIdentifier, String userId)
+            throws StorageQueryException {
+        try {
+            return UserRolesQueries.getRolesAndPermissionsForUser(this, tenantIdentifier, userId);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     private String[] getRolesForUser(AppIdentifier appIdentifier, String userId) throws
             StorageQueryException {
         try {
@@ -1917,6 +2259,26 @@ public class Start
         }
     }
 
+    /**
+     * Pages through the users that have the role in the tenant, ordered by user id, with keyset pagination. Unlike
+     * getUsersForRole, this never loads more than one page. Pass null as the cursor for the first page, and the
+     * nextCursor of a page to get the one after it.
+     *
+     * @throws IllegalArgumentException if the limit is less than 1, or the cursor is not valid or was created for
+     *                                  another role
+     */
+    public Page<String> getUsersForRolePage(TenantIdentifier tenantIdentifier, String role, int limit,
+                                            @Nullable String cursor) throws StorageQueryException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1");
+        }
+        try {
+            return UserRolesQueries.getUsersForRolePage(this, tenantIdentifier, role, limit, cursor);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public String[] getPermissionsForRole(AppIdentifier appIdentifier, String role) throws
             StorageQueryException {
@@ -2256,6 +2618,10 @@ public class Start
     @Override
     public void deleteTenantIdInTargetStorage(TenantIdentifier tenantIdentifier) throws StorageQueryException {
         MultitenancyQueries.deleteTenantIdInTargetStorage(this, tenantIdentifier);
+        if (tenantIdentifier.getTenantId().equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
+            // the app is gone, so its buffered last active times can no longer be written
+            LastActiveWriteBuffer.removeApp(this, tenantIdentifier.toAppIdentifier());
+        }
     }
 
     @Override
@@ -2538,7 +2904,8 @@ public class Start
     @Override
     public void revokeExpiredSessions() throws StorageQueryException {
         try {
-            DashboardQueries.deleteExpiredSessions(this);
+            int deleted = DashboardQueries.deleteExpiredSessions(this);
+            Logging.debug(this, "Deleted " + deleted + " expired dashboard sessions");
         } catch (SQLException e) {
             throw new StorageQueryException(e);
         }
@@ -2825,6 +3192,8 @@ public class Start
             // we do not bother returning if a row was updated here or not, cause it's happening
             // in a transaction anyway.
             GeneralQueries.linkAccounts_Transaction(this, sqlCon, appIdentifier, recipeUserId, primaryUserId);
+            // sessions of the recipe user now belong to the primary user
+            SessionInfoCache.invalidateUser_Transaction(this, sqlCon, appIdentifier, recipeUserId);
         } catch (SQLException e) {
             throw new StorageQueryException(e);
         }
@@ -2838,6 +3207,7 @@ public class Start
             // we do not bother returning if a row was updated here or not, cause it's happening
             // in a transaction anyway.
             GeneralQueries.unlinkAccounts_Transaction(this, sqlCon, appIdentifier, primaryUserId, recipeUserId);
+            SessionInfoCache.invalidateUser_Transaction(this, sqlCon, appIdentifier, recipeUserId);
         } catch (SQLException e) {
             throw new StorageQueryException(e);
         }
@@ -2865,6 +3235,7 @@ public class Start
 
     @Override
     public int countUsersThatHaveMoreThanOneLoginMethodAndActiveSince(AppIdentifier appIdentifier, long sinceTime) throws StorageQueryException {
+        LastActiveWriteBuffer.flush(this);
         try {
             return ActiveUsersQueries.countUsersActiveSinceAndHasMoreThanOneLoginMethod(this, appIdentifier, sinceTime);
         } catch (SQLException e) {
@@ -0,0 +1,69 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql;
+
+import io.supertokens.storage.mysql.config.MySQLConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides if and when Start.startTransaction retries a transaction that failed because of a deadlock. Delays use
+ * decorrelated jitter: each delay is picked at random between the base delay and three times the previous delay,
+ * capped at the max delay. This spreads out transactions that deadlocked with each other without making every retry
+ * wait for a long fixed minimum. Retrying stops after max attempts, or once the next retry would start after the
+ * time budget has been used up.
+ */
+public class TransactionRetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long timeBudgetMs;
+
+    public TransactionRetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long timeBudgetMs) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.timeBudgetMs = timeBudgetMs;
+    }
+
+    public static TransactionRetryPolicy fromConfig(MySQLConfig config) {
+        return new TransactionRetryPolicy(config.getDeadlockRetryMaxAttempts(), config.getDeadlockRetryBaseDelayMs(),
+                config.getDeadlockRetryMaxDelayMs(), config.getDeadlockRetryTimeBudgetMs());
+    }
+
+    /**
+     * @param previousDelayMs the delay before the previous retry, or 0 before the first retry
+     */
+    public long getNextDelayMs(long previousDelayMs) {
+        // with a base delay of 0, a floor of 1ms keeps the delays from staying at 0 forever
+        long upperBound = Math.max(1, Math.max(baseDelayMs, previousDelayMs)) * 3;
+        return Math.min(maxDelayMs, ThreadLocalRandom.current().nextLong(baseDelayMs, upperBound + 1));
+    }
+
+    /**
+     * @param attempts  the number of attempts made so far
+     * @param elapsedMs the time since the first attempt started
+     * @param delayMs   the delay before the next attempt
+     */
+    public boolean shouldRetry(int attempts, long elapsedMs, long delayMs) {
+        if (attempts >= maxAttempts) {
+            return false;
+        }
+        return timeBudgetMs == 0 || elapsedMs + delayMs <= timeBudgetMs;
+    }
+}
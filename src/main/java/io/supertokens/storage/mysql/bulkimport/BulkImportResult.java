@@ -0,0 +1,51 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.bulkimport;
+
+import java.util.List;
+
+public class BulkImportResult {
+
+    public enum FailureReason {
+        INVALID_INPUT, DUPLICATE_USER_ID, DUPLICATE_EMAIL, DUPLICATE_PHONE_NUMBER, DUPLICATE_THIRD_PARTY_USER
+    }
+
+    public static class Failure {
+        // position of the user in the list that was passed in
+        public final int index;
+
+        public final String userId;
+
+        public final FailureReason reason;
+
+        public Failure(int index, String userId, FailureReason reason) {
+            this.index = index;
+            this.userId = userId;
+            this.reason = reason;
+        }
+    }
+
+    public final int importedCount;
+
+    // sorted by index
+    public final List<Failure> failures;
+
+    public BulkImportResult(int importedCount, List<Failure> failures) {
+        this.importedCount = importedCount;
+        this.failures = failures;
+    }
+}
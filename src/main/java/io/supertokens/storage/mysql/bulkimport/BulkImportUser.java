@@ -0,0 +1,93 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.bulkimport;
+
+import io.supertokens.pluginInterface.RECIPE_ID;
+
+import javax.annotation.Nullable;
+
+/**
+ * One user to be created by {@link io.supertokens.storage.mysql.Start#bulkImportUsers}. Use the static factory
+ * methods to create an instance for the recipe the user signed up with.
+ */
+public class BulkImportUser {
+
+    public final RECIPE_ID recipeId;
+
+    public final String userId;
+
+    @Nullable
+    public final String email;
+
+    @Nullable
+    public final String passwordHash;
+
+    @Nullable
+    public final String thirdPartyId;
+
+    @Nullable
+    public final String thirdPartyUserId;
+
+    @Nullable
+    public final String phoneNumber;
+
+    public final long timeJoined;
+
+    private BulkImportUser(RECIPE_ID recipeId, String userId, @Nullable String email, @Nullable String passwordHash,
+                           @Nullable String thirdPartyId, @Nullable String thirdPartyUserId,
+                           @Nullable String phoneNumber, long timeJoined) {
+        this.recipeId = recipeId;
+        this.userId = userId;
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.thirdPartyId = thirdPartyId;
+        this.thirdPartyUserId = thirdPartyUserId;
+        this.phoneNumber = phoneNumber;
+        this.timeJoined = timeJoined;
+    }
+
+    public static BulkImportUser emailPassword(String userId, String email, String passwordHash, long timeJoined) {
+        return new BulkImportUser(RECIPE_ID.EMAIL_PASSWORD, userId, email, passwordHash, null, null, null, timeJoined);
+    }
+
+    public static BulkImportUser thirdParty(String userId, String email, String thirdPartyId, String thirdPartyUserId,
+                                            long timeJoined) {
+        return new BulkImportUser(RECIPE_ID.THIRD_PARTY, userId, email, null, thirdPartyId, thirdPartyUserId, null,
+                timeJoined);
+    }
+
+    public static BulkImportUser passwordless(String userId, @Nullable String email, @Nullable String phoneNumber,
+                                              long timeJoined) {
+        return new BulkImportUser(RECIPE_ID.PASSWORDLESS, userId, email, null, null, null, phoneNumber, timeJoined);
+    }
+
+    public boolean isValid() {
+        if (userId == null) {
+            return false;
+        }
+        switch (recipeId) {
+            case EMAIL_PASSWORD:
+                return email != null && passwordHash != null;
+            case THIRD_PARTY:
+                return email != null && thirdPartyId != null && thirdPartyUserId != null;
+            case PASSWORDLESS:
+                return email != null || phoneNumber != null;
+            default:
+                return false;
+        }
+    }
+}
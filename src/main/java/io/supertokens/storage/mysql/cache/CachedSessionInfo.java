@@ -0,0 +1,58 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.cache;
+
+import com.google.gson.JsonParser;
+import io.supertokens.pluginInterface.session.SessionInfo;
+
+/**
+ * A row of the session info table as it is kept in the {@link SessionInfoCache}. The JSON columns are kept as
+ * strings, so every read gets its own SessionInfo and callers can not change what is cached.
+ */
+public class CachedSessionInfo {
+    public final String sessionHandle;
+    public final String primaryOrRecipeUserId;
+    public final String recipeUserId;
+    public final String refreshTokenHash2;
+    public final String sessionData;
+    public final long expiry;
+    public final String jwtUserPayload;
+    public final long createdAtTime;
+    public final boolean useStaticKey;
+
+    public CachedSessionInfo(String sessionHandle, String primaryOrRecipeUserId, String recipeUserId,
+                             String refreshTokenHash2, String sessionData, long expiry, String jwtUserPayload,
+                             long createdAtTime, boolean useStaticKey) {
+        this.sessionHandle = sessionHandle;
+        this.primaryOrRecipeUserId = primaryOrRecipeUserId;
+        this.recipeUserId = recipeUserId;
+        this.refreshTokenHash2 = refreshTokenHash2;
+        this.sessionData = sessionData;
+        this.expiry = expiry;
+        this.jwtUserPayload = jwtUserPayload;
+        this.createdAtTime = createdAtTime;
+        this.useStaticKey = useStaticKey;
+    }
+
+    public SessionInfo toSessionInfo() {
+        JsonParser jp = new JsonParser();
+        // if primaryOrRecipeUserId is null, it will be handled by SessionInfo constructor
+        return new SessionInfo(sessionHandle, primaryOrRecipeUserId, recipeUserId, refreshTokenHash2,
+                jp.parse(sessionData).getAsJsonObject(), expiry, jp.parse(jwtUserPayload).getAsJsonObject(),
+                createdAtTime, useStaticKey);
+    }
+}
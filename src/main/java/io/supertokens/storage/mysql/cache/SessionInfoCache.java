@@ -0,0 +1,298 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.cache;
+
+import com.google.gson.JsonObject;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.ResourceDistributor;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An optional in-process cache for SessionQueries.getSession, enabled with mysql_session_cache_size. Entries live
+ * for at most mysql_session_cache_ttl_ms, which also bounds how long a change made by another core stays unseen.
+ * <p>
+ * Changes made through this core invalidate entries synchronously. To make sure that a read that raced with a change
+ * does not put the old row back, reads take a ticket before going to the database, and the row is only cached if no
+ * invalidation happened for that key (or rather, its stripe) since. Changes made inside a transaction are invalidated
+ * again once the transaction ends, since until then other connections still read the old row.
+ * <p>
+ * The entries are split by key across independent segments, each with its own lock, so that concurrent reads of
+ * different sessions do not all wait on one monitor.
+ */
+public class SessionInfoCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.cache.SessionInfoCache";
+
+    private static final int NUM_STRIPES = 1024;
+
+    // must divide NUM_STRIPES, so that each stripe belongs to exactly one segment
+    private static final int NUM_SEGMENTS = 16;
+
+    private final WTinyLfuCache<Key, CachedSessionInfo>[] segments;
+    private final long ttlMillis;
+    private final AtomicLongArray stripeVersions = new AtomicLongArray(NUM_STRIPES);
+    private final AtomicLong invalidations = new AtomicLong();
+    // invalidations to repeat when the transaction on the connection ends
+    private final Map<Connection, List<Runnable>> pendingInvalidations = new ConcurrentHashMap<>();
+
+    private SessionInfoCache(int maximumSize, long ttlMillis) {
+        @SuppressWarnings("unchecked")
+        WTinyLfuCache<Key, CachedSessionInfo>[] segments = new WTinyLfuCache[NUM_SEGMENTS];
+        int segmentSize = Math.max(1, (maximumSize + NUM_SEGMENTS - 1) / NUM_SEGMENTS);
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = new WTinyLfuCache<>(segmentSize);
+        }
+        this.segments = segments;
+        this.ttlMillis = ttlMillis;
+    }
+
+    private static SessionInfoCache getInstance(Start start) {
+        return (SessionInfoCache) start.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    public static void init(Start start) {
+        int size = Config.getConfig(start).getSessionCacheSize();
+        if (size == 0 || getInstance(start) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY,
+                new SessionInfoCache(size, Config.getConfig(start).getSessionCacheTtlMs()));
+    }
+
+    public static void clear(Start start) {
+        start.getResourceDistributor().removeResource(RESOURCE_KEY);
+    }
+
+    public static boolean isEnabled(Start start) {
+        return getInstance(start) != null;
+    }
+
+    /**
+     * @return the cached session, or null if there is none or the cache is disabled
+     */
+    public static CachedSessionInfo get(Start start, TenantIdentifier tenantIdentifier, String sessionHandle) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return null;
+        }
+        Key key = new Key(tenantIdentifier, sessionHandle);
+        return instance.segmentOf(key).get(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Must be called before reading the session from the database, and the result passed to {@link #put}.
+     */
+    public static long getTicket(Start start, TenantIdentifier tenantIdentifier, String sessionHandle) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return 0;
+        }
+        return instance.stripeVersions.get(stripeOf(new Key(tenantIdentifier, sessionHandle)));
+    }
+
+    public static void put(Start start, TenantIdentifier tenantIdentifier, CachedSessionInfo sessionInfo,
+                           long ticket) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        Key key = new Key(tenantIdentifier, sessionInfo.sessionHandle);
+        long expiresAt = Math.min(System.currentTimeMillis() + instance.ttlMillis, sessionInfo.expiry);
+        // checked under the segment's lock, so that an invalidation can not happen between the check and the put
+        WTinyLfuCache<Key, CachedSessionInfo> segment = instance.segmentOf(key);
+        synchronized (segment) {
+            if (instance.stripeVersions.get(stripeOf(key)) == ticket) {
+                segment.put(key, sessionInfo, expiresAt);
+            }
+        }
+    }
+
+    public static void invalidate(Start start, TenantIdentifier tenantIdentifier, String sessionHandle) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidate(new Key(tenantIdentifier, sessionHandle));
+    }
+
+    public static void invalidate_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier,
+                                              String sessionHandle) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        Key key = new Key(tenantIdentifier, sessionHandle);
+        instance.invalidate(key);
+        instance.addPendingInvalidation(con, () -> instance.invalidate(key));
+    }
+
+    /**
+     * Invalidates the sessions of a user in an app, whether the user is the recipe user of the session or its
+     * primary user.
+     */
+    public static void invalidateUser(Start start, AppIdentifier appIdentifier, String userId) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidateUser(appIdentifier.getAppId(), userId);
+    }
+
+    public static void invalidateUser_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
+                                                  String userId) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidateUser(appIdentifier.getAppId(), userId);
+        instance.addPendingInvalidation(con, () -> instance.invalidateUser(appIdentifier.getAppId(), userId));
+    }
+
+    public static void invalidateAll(Start start) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        // the stripes are bumped first, so that a put that checks its ticket after a segment was cleared fails
+        instance.bumpAllStripes();
+        for (WTinyLfuCache<Key, CachedSessionInfo> segment : instance.segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Called by Start when a transaction on the connection has been committed or rolled back.
+     */
+    public static void onTransactionEnd(Start start, Connection con) {
+        SessionInfoCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        List<Runnable> pending = instance.pendingInvalidations.remove(con);
+        if (pending != null) {
+            pending.forEach(Runnable::run);
+        }
+    }
+
+    public static JsonObject getStats(Start start) {
+        JsonObject stats = new JsonObject();
+        SessionInfoCache instance = getInstance(start);
+        stats.addProperty("enabled", instance != null);
+        if (instance == null) {
+            return stats;
+        }
+        long hits = 0;
+        long misses = 0;
+        long size = 0;
+        long evictions = 0;
+        for (WTinyLfuCache<Key, CachedSessionInfo> segment : instance.segments) {
+            synchronized (segment) {
+                hits += segment.getHits();
+                misses += segment.getMisses();
+                size += segment.size();
+                evictions += segment.getEvictions();
+            }
+        }
+        stats.addProperty("size", size);
+        stats.addProperty("evictions", evictions);
+        stats.addProperty("hits", hits);
+        stats.addProperty("misses", misses);
+        stats.addProperty("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        stats.addProperty("invalidations", instance.invalidations.get());
+        return stats;
+    }
+
+    private void invalidate(Key key) {
+        WTinyLfuCache<Key, CachedSessionInfo> segment = segmentOf(key);
+        synchronized (segment) {
+            stripeVersions.incrementAndGet(stripeOf(key));
+            segment.remove(key);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private void invalidateUser(String appId, String userId) {
+        // the handles of the user's sessions are not known, so every read that is in flight is treated as stale.
+        // The stripes are bumped before the segments are swept, so a put either fails its ticket check or happens
+        // before the sweep of its segment.
+        bumpAllStripes();
+        for (WTinyLfuCache<Key, CachedSessionInfo> segment : segments) {
+            segment.removeIf((key, sessionInfo) -> key.appId.equals(appId)
+                    && (userId.equals(sessionInfo.recipeUserId) || userId.equals(sessionInfo.primaryOrRecipeUserId)));
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private void bumpAllStripes() {
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripeVersions.incrementAndGet(i);
+        }
+    }
+
+    private void addPendingInvalidation(Connection con, Runnable invalidation) {
+        pendingInvalidations.computeIfAbsent(con, k -> new ArrayList<>()).add(invalidation);
+    }
+
+    private WTinyLfuCache<Key, CachedSessionInfo> segmentOf(Key key) {
+        return segments[stripeOf(key) % NUM_SEGMENTS];
+    }
+
+    private static int stripeOf(Key key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % NUM_STRIPES;
+    }
+
+    private static class Key {
+        final String appId;
+        final String tenantId;
+        final String sessionHandle;
+
+        Key(TenantIdentifier tenantIdentifier, String sessionHandle) {
+            this.appId = tenantIdentifier.getAppId();
+            this.tenantId = tenantIdentifier.getTenantId();
+            this.sessionHandle = sessionHandle;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return appId.equals(other.appId) && tenantId.equals(other.tenantId)
+                    && sessionHandle.equals(other.sessionHandle);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appId, tenantId, sessionHandle);
+        }
+    }
+}
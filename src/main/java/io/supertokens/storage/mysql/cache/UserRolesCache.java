@@ -0,0 +1,404 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.cache;
+
+import com.google.gson.JsonObject;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.ResourceDistributor;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An optional in-process cache for UserRolesQueries, enabled with mysql_user_roles_cache_size. It holds:
+ * - per app, an immutable snapshot of all role to permissions mappings, which are loaded with one query and
+ * replaced as a whole when any role or permission of the app changes, and
+ * - up to mysql_user_roles_cache_size user to roles lists, evicted with W-TinyLFU.
+ * <p>
+ * Like SessionInfoCache, entries live for at most mysql_user_roles_cache_ttl_ms (which bounds how long a change made
+ * by another core stays unseen), reads take a ticket before going to the database so that a read racing with a
+ * change does not cache the old data, and changes made in a transaction are invalidated again when it ends.
+ */
+public class UserRolesCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.cache.UserRolesCache";
+
+    private static final int NUM_STRIPES = 1024;
+
+    private final WTinyLfuCache<UserKey, String[]> userRoles;
+    private final long ttlMillis;
+    private final AtomicLongArray userStripeVersions = new AtomicLongArray(NUM_STRIPES);
+
+    // role changes are rare, so a single version for all apps is enough
+    private final Map<String, PermissionsSnapshot> permissions = new ConcurrentHashMap<>();
+    private final AtomicLong permissionsVersion = new AtomicLong();
+
+    private final AtomicLong permissionsHits = new AtomicLong();
+    private final AtomicLong permissionsMisses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    // invalidations to repeat when the transaction on the connection ends
+    private final Map<Connection, List<Runnable>> pendingInvalidations = new ConcurrentHashMap<>();
+
+    private UserRolesCache(int maximumSize, long ttlMillis) {
+        this.userRoles = new WTinyLfuCache<>(maximumSize);
+        this.ttlMillis = ttlMillis;
+    }
+
+    private static UserRolesCache getInstance(Start start) {
+        return (UserRolesCache) start.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    public static void init(Start start) {
+        int size = Config.getConfig(start).getUserRolesCacheSize();
+        if (size == 0 || getInstance(start) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY,
+                new UserRolesCache(size, Config.getConfig(start).getUserRolesCacheTtlMs()));
+    }
+
+    public static boolean isEnabled(Start start) {
+        return getInstance(start) != null;
+    }
+
+    public static void clear(Start start) {
+        start.getResourceDistributor().removeResource(RESOURCE_KEY);
+    }
+
+    /**
+     * @return the permissions of the role (empty if the role has none or does not exist), or null if the
+     * permissions of the app are not cached or the cache is disabled
+     */
+    public static String[] getPermissionsForRole(Start start, AppIdentifier appIdentifier, String role) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return null;
+        }
+        PermissionsSnapshot snapshot = instance.permissions.get(appIdentifier.getAppId());
+        if (snapshot == null || snapshot.expiresAt <= System.currentTimeMillis()) {
+            instance.permissionsMisses.incrementAndGet();
+            return null;
+        }
+        instance.permissionsHits.incrementAndGet();
+        String[] result = snapshot.permissionsByRole.get(role);
+        return result == null ? new String[0] : result.clone();
+    }
+
+    /**
+     * Must be called before reading the permissions of an app from the database, and the result passed to
+     * {@link #putPermissions}.
+     */
+    public static long getPermissionsTicket(Start start) {
+        UserRolesCache instance = getInstance(start);
+        return instance == null ? 0 : instance.permissionsVersion.get();
+    }
+
+    /**
+     * @param permissionsByRole the permissions of every role of the app that has at least one
+     */
+    public static void putPermissions(Start start, AppIdentifier appIdentifier,
+                                      Map<String, String[]> permissionsByRole, long ticket) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        PermissionsSnapshot snapshot = new PermissionsSnapshot(Collections.unmodifiableMap(permissionsByRole),
+                System.currentTimeMillis() + instance.ttlMillis);
+        synchronized (instance.permissions) {
+            if (instance.permissionsVersion.get() == ticket) {
+                instance.permissions.put(appIdentifier.getAppId(), snapshot);
+            }
+        }
+    }
+
+    /**
+     * @param tenantIdentifier the tenant, or null for the roles of the user across all tenants of the app
+     * @return the roles of the user, or null if they are not cached or the cache is disabled
+     */
+    public static String[] getRolesForUser(Start start, AppIdentifier appIdentifier,
+                                           TenantIdentifier tenantIdentifier, String userId) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return null;
+        }
+        String[] roles = instance.userRoles.get(new UserKey(appIdentifier, tenantIdentifier, userId),
+                System.currentTimeMillis());
+        return roles == null ? null : roles.clone();
+    }
+
+    /**
+     * Must be called before reading the roles of a user from the database, and the result passed to
+     * {@link #putRolesForUser}.
+     */
+    public static long getRolesForUserTicket(Start start, AppIdentifier appIdentifier, String userId) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return 0;
+        }
+        return instance.userStripeVersions.get(stripeOf(appIdentifier.getAppId(), userId));
+    }
+
+    public static void putRolesForUser(Start start, AppIdentifier appIdentifier, TenantIdentifier tenantIdentifier,
+                                       String userId, String[] roles, long ticket) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        UserKey key = new UserKey(appIdentifier, tenantIdentifier, userId);
+        long expiresAt = System.currentTimeMillis() + instance.ttlMillis;
+        // checked under the cache's lock, so that an invalidation can not happen between the check and the put
+        synchronized (instance.userRoles) {
+            if (instance.userStripeVersions.get(stripeOf(key.appId, userId)) == ticket) {
+                instance.userRoles.put(key, roles.clone(), expiresAt);
+            }
+        }
+    }
+
+    /**
+     * For changes to the roles of an app or to their permissions.
+     */
+    public static void invalidatePermissions(Start start, AppIdentifier appIdentifier) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidatePermissions(appIdentifier.getAppId());
+    }
+
+    public static void invalidatePermissions_Transaction(Start start, Connection con, AppIdentifier appIdentifier) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidatePermissions(appIdentifier.getAppId());
+        instance.addPendingInvalidation(con, () -> instance.invalidatePermissions(appIdentifier.getAppId()));
+    }
+
+    /**
+     * For changes to the roles of a user. If tenantIdentifier is null, the user's roles in all tenants of the app
+     * are invalidated.
+     */
+    public static void invalidateUser(Start start, AppIdentifier appIdentifier, TenantIdentifier tenantIdentifier,
+                                      String userId) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidateUser(appIdentifier.getAppId(), tenantIdentifier, userId);
+    }
+
+    public static void invalidateUser_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
+                                                  TenantIdentifier tenantIdentifier, String userId) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidateUser(appIdentifier.getAppId(), tenantIdentifier, userId);
+        instance.addPendingInvalidation(con,
+                () -> instance.invalidateUser(appIdentifier.getAppId(), tenantIdentifier, userId));
+    }
+
+    /**
+     * For changes to the roles of many users of a tenant at once.
+     */
+    public static void invalidateUsers(Start start, AppIdentifier appIdentifier, TenantIdentifier tenantIdentifier,
+                                       List<String> userIds) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        for (String userId : userIds) {
+            instance.invalidateUser(appIdentifier.getAppId(), tenantIdentifier, userId);
+        }
+    }
+
+    public static void invalidateUsers_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
+                                                   TenantIdentifier tenantIdentifier, List<String> userIds) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        Runnable invalidation = () -> {
+            for (String userId : userIds) {
+                instance.invalidateUser(appIdentifier.getAppId(), tenantIdentifier, userId);
+            }
+        };
+        invalidation.run();
+        instance.addPendingInvalidation(con, invalidation);
+    }
+
+    /**
+     * For deleting a role, which also removes it from all of its users.
+     */
+    public static void invalidateRole(Start start, AppIdentifier appIdentifier) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.invalidatePermissions(appIdentifier.getAppId());
+        String appId = appIdentifier.getAppId();
+        synchronized (instance.userRoles) {
+            instance.bumpAllUserStripes();
+            instance.userRoles.removeIf((key, roles) -> key.appId.equals(appId));
+        }
+    }
+
+    public static void invalidateAll(Start start) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        synchronized (instance.permissions) {
+            instance.permissionsVersion.incrementAndGet();
+            instance.permissions.clear();
+        }
+        synchronized (instance.userRoles) {
+            instance.bumpAllUserStripes();
+            instance.userRoles.clear();
+        }
+        instance.invalidations.incrementAndGet();
+    }
+
+    /**
+     * Called by Start when a transaction on the connection has been committed or rolled back.
+     */
+    public static void onTransactionEnd(Start start, Connection con) {
+        UserRolesCache instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        List<Runnable> pending = instance.pendingInvalidations.remove(con);
+        if (pending != null) {
+            pending.forEach(Runnable::run);
+        }
+    }
+
+    public static JsonObject getStats(Start start) {
+        JsonObject stats = new JsonObject();
+        UserRolesCache instance = getInstance(start);
+        stats.addProperty("enabled", instance != null);
+        if (instance == null) {
+            return stats;
+        }
+        long hits;
+        long misses;
+        synchronized (instance.userRoles) {
+            hits = instance.userRoles.getHits();
+            misses = instance.userRoles.getMisses();
+            stats.addProperty("userRolesSize", instance.userRoles.size());
+            stats.addProperty("userRolesEvictions", instance.userRoles.getEvictions());
+        }
+        stats.addProperty("userRolesHits", hits);
+        stats.addProperty("userRolesMisses", misses);
+        stats.addProperty("permissionsApps", instance.permissions.size());
+        stats.addProperty("permissionsHits", instance.permissionsHits.get());
+        stats.addProperty("permissionsMisses", instance.permissionsMisses.get());
+        stats.addProperty("invalidations", instance.invalidations.get());
+        return stats;
+    }
+
+    private void invalidatePermissions(String appId) {
+        synchronized (permissions) {
+            permissionsVersion.incrementAndGet();
+            permissions.remove(appId);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private void invalidateUser(String appId, TenantIdentifier tenantIdentifier, String userId) {
+        synchronized (userRoles) {
+            userStripeVersions.incrementAndGet(stripeOf(appId, userId));
+            if (tenantIdentifier == null) {
+                userRoles.removeIf((key, roles) -> key.appId.equals(appId) && key.userId.equals(userId));
+            } else {
+                userRoles.remove(new UserKey(appId, tenantIdentifier.getTenantId(), userId));
+                // the roles of the user across the app include the ones of this tenant
+                userRoles.remove(new UserKey(appId, null, userId));
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private void bumpAllUserStripes() {
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            userStripeVersions.incrementAndGet(i);
+        }
+    }
+
+    private void addPendingInvalidation(Connection con, Runnable invalidation) {
+        pendingInvalidations.computeIfAbsent(con, k -> new ArrayList<>()).add(invalidation);
+    }
+
+    private static int stripeOf(String appId, String userId) {
+        return (Objects.hash(appId, userId) & Integer.MAX_VALUE) % NUM_STRIPES;
+    }
+
+    private static class PermissionsSnapshot {
+        final Map<String, String[]> permissionsByRole;
+        final long expiresAt;
+
+        PermissionsSnapshot(Map<String, String[]> permissionsByRole, long expiresAt) {
+            this.permissionsByRole = permissionsByRole;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class UserKey {
+        final String appId;
+        // null for the roles of the user across all tenants of the app
+        final String tenantId;
+        final String userId;
+
+        UserKey(AppIdentifier appIdentifier, TenantIdentifier tenantIdentifier, String userId) {
+            this(appIdentifier.getAppId(), tenantIdentifier == null ? null : tenantIdentifier.getTenantId(), userId);
+        }
+
+        UserKey(String appId, String tenantId, String userId) {
+            this.appId = appId;
+            this.tenantId = tenantId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof UserKey)) {
+                return false;
+            }
+            UserKey other = (UserKey) o;
+            return appId.equals(other.appId) && Objects.equals(tenantId, other.tenantId)
+                    && userId.equals(other.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appId, tenantId, userId);
+        }
+    }
+}
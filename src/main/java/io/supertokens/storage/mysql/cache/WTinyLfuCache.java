@@ -0,0 +1,194 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * A bounded cache with expiry and W-TinyLFU eviction. New entries go into a small LRU window (1% of the size).
+ * Entries evicted from the window are only admitted to the main segment if they were accessed more often (according
+ * to a {@link FrequencySketch}) than the entry they would replace. The main segment is a segmented LRU: entries start
+ * in probation and move to the protected segment (80% of the main segment) when they are read again. This keeps
+ * one-off reads from pushing out entries that are read all the time.
+ * <p>
+ * All methods are synchronized on the cache.
+ */
+public class WTinyLfuCache<K, V> {
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAtMillis;
+
+        Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final FrequencySketch sketch;
+
+    // access ordered, so the eldest entry is the least recently used one
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public WTinyLfuCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be >= 1");
+        }
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.protectedCapacity = mainCapacity * 8 / 10;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @return the value, or null if there is none or it has expired
+     */
+    public synchronized V get(K key, long nowMillis) {
+        sketch.increment(key);
+
+        Entry<V> entry = window.get(key);
+        if (entry == null) {
+            entry = protectedSegment.get(key);
+        }
+        if (entry == null) {
+            entry = probation.remove(key);
+            if (entry != null) {
+                promote(key, entry);
+            }
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAtMillis <= nowMillis) {
+            remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value, long expiresAtMillis) {
+        sketch.increment(key);
+        Entry<V> entry = new Entry<>(value, expiresAtMillis);
+
+        if (window.containsKey(key)) {
+            window.put(key, entry);
+        } else if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, entry);
+        } else if (probation.containsKey(key)) {
+            probation.put(key, entry);
+        } else {
+            window.put(key, entry);
+            if (window.size() > windowCapacity) {
+                Map.Entry<K, Entry<V>> candidate = removeEldest(window);
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        }
+    }
+
+    public synchronized void remove(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    /**
+     * Removes all entries for which the predicate returns true. This goes through every entry.
+     */
+    public synchronized void removeIf(BiPredicate<K, V> predicate) {
+        removeIf(window, predicate);
+        removeIf(probation, predicate);
+        removeIf(protectedSegment, predicate);
+    }
+
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void promote(K key, Entry<V> entry) {
+        protectedSegment.put(key, entry);
+        if (protectedSegment.size() > protectedCapacity) {
+            Map.Entry<K, Entry<V>> demoted = removeEldest(protectedSegment);
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    private void admit(K candidateKey, Entry<V> candidate) {
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(candidateKey, candidate);
+            return;
+        }
+
+        LinkedHashMap<K, Entry<V>> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        if (victimSegment.isEmpty()) {
+            // the main segment has no room at all
+            evictions++;
+            return;
+        }
+        K victimKey = victimSegment.keySet().iterator().next();
+        if (sketch.frequency(candidateKey) > sketch.frequency(victimKey)) {
+            victimSegment.remove(victimKey);
+            probation.put(candidateKey, candidate);
+        }
+        evictions++;
+    }
+
+    private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> segment) {
+        Iterator<Map.Entry<K, V>> iterator = segment.entrySet().iterator();
+        Map.Entry<K, V> eldest = iterator.next();
+        Map.Entry<K, V> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return copy;
+    }
+
+    private static <K, V> void removeIf(LinkedHashMap<K, Entry<V>> segment, BiPredicate<K, V> predicate) {
+        segment.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue().value));
+    }
+}
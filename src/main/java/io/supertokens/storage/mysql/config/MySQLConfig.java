@@ -30,7 +30,9 @@ import io.supertokens.storage.mysql.annotations.UserPoolProperty;
 
 import java.lang.reflect.Field;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -98,6 +100,18 @@ public class MySQLConfig {
     @NotConflictingWithinUserPool
     private String mysql_thirdparty_users_table_name = null;
 
+    @JsonProperty
+    @NotConflictingWithinUserPool
+    private boolean mysql_session_info_partitioning = false;
+
+    @JsonProperty
+    @NotConflictingWithinUserPool
+    private boolean mysql_user_metadata_json_column = false;
+
+    @JsonProperty
+    @NotConflictingWithinUserPool
+    private int mysql_session_info_partitions_ahead_days = 30;
+
     @JsonProperty
     @IgnoreForAnnotationCheck
     private String mysql_connection_uri = null;
@@ -105,6 +119,90 @@ public class MySQLConfig {
     @JsonProperty
     private String instance_connection_name = null;
 
+    @JsonProperty
+    @ConnectionPoolProperty
+    private String mysql_read_replica_hosts = null;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_read_replica_max_staleness_ms = 1000;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private boolean mysql_query_metrics_enabled = false;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_bulk_import_chunk_size = 1000;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_last_active_flush_interval_ms = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private boolean mysql_parallel_recipe_lookups = false;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_expired_rows_delete_batch_size = 1000;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_expired_rows_delete_rate = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private long mysql_expired_rows_delete_max_duration_ms = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_session_cache_size = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private long mysql_session_cache_ttl_ms = 30000;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_deadlock_retry_max_attempts = 50;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private long mysql_deadlock_retry_base_delay_ms = 10;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private long mysql_deadlock_retry_max_delay_ms = 3000;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private long mysql_deadlock_retry_time_budget_ms = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private boolean mysql_shared_connection_pools = false;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_connection_pool_pending_threads_warn_threshold = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private long mysql_connection_pool_acquire_p99_warn_threshold_ms = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_user_roles_cache_size = 0;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private long mysql_user_roles_cache_ttl_ms = 30000;
+
+    @JsonProperty
+    @ConnectionPoolProperty
+    private int mysql_user_roles_bulk_chunk_size = 1000;
+
     @ConnectionPoolProperty
     private String mysql_connection_attributes = "allowPublicKeyRetrieval=true";
 
@@ -174,6 +272,112 @@ public class MySQLConfig {
         return instance_connection_name != null;
     }
 
+    public List<String> getReadReplicaHosts() {
+        List<String> hosts = new ArrayList<>();
+        if (mysql_read_replica_hosts == null) {
+            return hosts;
+        }
+        for (String host : mysql_read_replica_hosts.split(",")) {
+            host = host.trim();
+            if (!host.isEmpty()) {
+                hosts.add(host);
+            }
+        }
+        return hosts;
+    }
+
+    public int getReadReplicaMaxStalenessMs() {
+        return mysql_read_replica_max_staleness_ms;
+    }
+
+    public boolean isQueryMetricsEnabled() {
+        return mysql_query_metrics_enabled;
+    }
+
+    public int getBulkImportChunkSize() {
+        return mysql_bulk_import_chunk_size;
+    }
+
+    public int getLastActiveFlushIntervalMs() {
+        return mysql_last_active_flush_interval_ms;
+    }
+
+    public boolean isParallelRecipeLookupsEnabled() {
+        return mysql_parallel_recipe_lookups;
+    }
+
+    public int getExpiredRowsDeleteBatchSize() {
+        return mysql_expired_rows_delete_batch_size;
+    }
+
+    public int getExpiredRowsDeleteRate() {
+        return mysql_expired_rows_delete_rate;
+    }
+
+    public long getExpiredRowsDeleteMaxDurationMs() {
+        return mysql_expired_rows_delete_max_duration_ms;
+    }
+
+    public int getSessionCacheSize() {
+        return mysql_session_cache_size;
+    }
+
+    public long getSessionCacheTtlMs() {
+        return mysql_session_cache_ttl_ms;
+    }
+
+    public int getDeadlockRetryMaxAttempts() {
+        return mysql_deadlock_retry_max_attempts;
+    }
+
+    public long getDeadlockRetryBaseDelayMs() {
+        return mysql_deadlock_retry_base_delay_ms;
+    }
+
+    public long getDeadlockRetryMaxDelayMs() {
+        return mysql_deadlock_retry_max_delay_ms;
+    }
+
+    public long getDeadlockRetryTimeBudgetMs() {
+        return mysql_deadlock_retry_time_budget_ms;
+    }
+
+    public boolean isSharedConnectionPoolsEnabled() {
+        return mysql_shared_connection_pools;
+    }
+
+    public int getConnectionPoolPendingThreadsWarnThreshold() {
+        return mysql_connection_pool_pending_threads_warn_threshold;
+    }
+
+    public long getConnectionPoolAcquireP99WarnThresholdMs() {
+        return mysql_connection_pool_acquire_p99_warn_threshold_ms;
+    }
+
+    public int getUserRolesCacheSize() {
+        return mysql_user_roles_cache_size;
+    }
+
+    public long getUserRolesCacheTtlMs() {
+        return mysql_user_roles_cache_ttl_ms;
+    }
+
+    public int getUserRolesBulkChunkSize() {
+        return mysql_user_roles_bulk_chunk_size;
+    }
+
+    public boolean isSessionInfoPartitioningEnabled() {
+        return mysql_session_info_partitioning;
+    }
+
+    public boolean isUserMetadataJsonColumnEnabled() {
+        return mysql_user_metadata_json_column;
+    }
+
+    public int getSessionInfoPartitionsAheadDays() {
+        return mysql_session_info_partitions_ahead_days;
+    }
+
     public String getUsersTable() {
         return addPrefixToTableName("all_auth_recipe_users");
     }
@@ -199,6 +403,14 @@ public class MySQLConfig {
         return addPrefixToTableName("tenant_thirdparty_provider_clients");
     }
 
+    public String getTenantConfigsVersionTable() {
+        return addPrefixToTableName("tenant_configs_version");
+    }
+
+    public String getSchemaVersionTable() {
+        return addPrefixToTableName("schema_version");
+    }
+
     public String getKeyValueTable() {
         return mysql_key_value_table_name;
     }
@@ -338,6 +550,119 @@ public class MySQLConfig {
                     "'mysql_connection_pool_size' in the config.yaml file must be > 0");
         }
 
+        if (mysql_read_replica_hosts != null) {
+            if (isCloudSql()) {
+                throw new InvalidConfigException(
+                        "'mysql_read_replica_hosts' cannot be used along with 'instance_connection_name'");
+            }
+            for (String host : getReadReplicaHosts()) {
+                String[] hostAndPort = host.split(":");
+                boolean isValid = hostAndPort.length <= 2 && !hostAndPort[0].isEmpty();
+                if (isValid && hostAndPort.length == 2) {
+                    try {
+                        isValid = Integer.parseInt(hostAndPort[1]) > 0;
+                    } catch (NumberFormatException e) {
+                        isValid = false;
+                    }
+                }
+                if (!isValid) {
+                    throw new InvalidConfigException(
+                            "'mysql_read_replica_hosts' in the config.yaml file must be a comma separated list of "
+                                    + "host[:port] values");
+                }
+            }
+        }
+
+        if (mysql_read_replica_max_staleness_ms < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_read_replica_max_staleness_ms' in the config.yaml file must be >= 0");
+        }
+
+        // a chunk is inserted with one statement per table, and a statement can have at most 65535 parameters
+        if (mysql_bulk_import_chunk_size < 1 || mysql_bulk_import_chunk_size > 5000) {
+            throw new InvalidConfigException(
+                    "'mysql_bulk_import_chunk_size' in the config.yaml file must be between 1 and 5000");
+        }
+
+        if (mysql_last_active_flush_interval_ms < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_last_active_flush_interval_ms' in the config.yaml file must be >= 0");
+        }
+
+        if (mysql_expired_rows_delete_batch_size < 1) {
+            throw new InvalidConfigException(
+                    "'mysql_expired_rows_delete_batch_size' in the config.yaml file must be >= 1");
+        }
+
+        if (mysql_expired_rows_delete_rate < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_expired_rows_delete_rate' in the config.yaml file must be >= 0");
+        }
+
+        if (mysql_expired_rows_delete_max_duration_ms < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_expired_rows_delete_max_duration_ms' in the config.yaml file must be >= 0");
+        }
+
+        if (mysql_session_cache_size < 0 || mysql_session_cache_size > 10_000_000) {
+            throw new InvalidConfigException(
+                    "'mysql_session_cache_size' in the config.yaml file must be between 0 and 10000000");
+        }
+
+        if (mysql_session_cache_ttl_ms < 1) {
+            throw new InvalidConfigException("'mysql_session_cache_ttl_ms' in the config.yaml file must be > 0");
+        }
+
+        if (mysql_user_roles_cache_size < 0 || mysql_user_roles_cache_size > 10_000_000) {
+            throw new InvalidConfigException(
+                    "'mysql_user_roles_cache_size' in the config.yaml file must be between 0 and 10000000");
+        }
+
+        if (mysql_user_roles_cache_ttl_ms < 1) {
+            throw new InvalidConfigException("'mysql_user_roles_cache_ttl_ms' in the config.yaml file must be > 0");
+        }
+
+        // a chunk is inserted with one statement, and a statement can have at most 65535 parameters
+        if (mysql_user_roles_bulk_chunk_size < 1 || mysql_user_roles_bulk_chunk_size > 10000) {
+            throw new InvalidConfigException(
+                    "'mysql_user_roles_bulk_chunk_size' in the config.yaml file must be between 1 and 10000");
+        }
+
+        if (mysql_deadlock_retry_max_attempts < 1) {
+            throw new InvalidConfigException(
+                    "'mysql_deadlock_retry_max_attempts' in the config.yaml file must be >= 1");
+        }
+
+        if (mysql_deadlock_retry_base_delay_ms < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_deadlock_retry_base_delay_ms' in the config.yaml file must be >= 0");
+        }
+
+        if (mysql_deadlock_retry_max_delay_ms < mysql_deadlock_retry_base_delay_ms) {
+            throw new InvalidConfigException("'mysql_deadlock_retry_max_delay_ms' in the config.yaml file must be >= "
+                    + "mysql_deadlock_retry_base_delay_ms");
+        }
+
+        if (mysql_deadlock_retry_time_budget_ms < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_deadlock_retry_time_budget_ms' in the config.yaml file must be >= 0");
+        }
+
+        if (mysql_connection_pool_pending_threads_warn_threshold < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_connection_pool_pending_threads_warn_threshold' in the config.yaml file must be >= 0");
+        }
+
+        if (mysql_connection_pool_acquire_p99_warn_threshold_ms < 0) {
+            throw new InvalidConfigException(
+                    "'mysql_connection_pool_acquire_p99_warn_threshold_ms' in the config.yaml file must be >= 0");
+        }
+
+        if (mysql_session_info_partitions_ahead_days < 1 || mysql_session_info_partitions_ahead_days > 1000) {
+            throw new InvalidConfigException(
+                    "'mysql_session_info_partitions_ahead_days' in the config.yaml file must be between 1 and 1000");
+        }
+
         // Normalisation
         if (mysql_connection_uri != null) {
             { // mysql_connection_attributes
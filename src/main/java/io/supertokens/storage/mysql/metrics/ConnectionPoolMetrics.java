@@ -0,0 +1,134 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.metrics;
+
+import com.google.gson.JsonObject;
+import io.supertokens.storage.mysql.ResourceDistributor;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.config.MySQLConfig;
+import io.supertokens.storage.mysql.output.Logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How long getting a connection from the primary pool takes (including the wait for the bulkhead if the pool is
+ * shared), and how often it times out. This is always on: recording is a few atomic adds next to a pool checkout.
+ *
+ * It also logs a warning if too many threads are waiting for a connection
+ * (mysql_connection_pool_pending_threads_warn_threshold) or if the p99 of the time to get one over the last
+ * WINDOW_MS is too high (mysql_connection_pool_acquire_p99_warn_threshold_ms). Each kind of warning is logged at
+ * most once per WINDOW_MS.
+ */
+public class ConnectionPoolMetrics extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.metrics.ConnectionPoolMetrics";
+
+    static final long WINDOW_MS = 60_000;
+
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private final long createdAt = System.currentTimeMillis();
+
+    // acquire times since windowStart, used for the p99 warning
+    private volatile LatencyHistogram recentAcquireTime = new LatencyHistogram();
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong lastPendingThreadsWarning = new AtomicLong(0);
+
+    private ConnectionPoolMetrics() {
+    }
+
+    private static ConnectionPoolMetrics getInstance(Start start) {
+        return (ConnectionPoolMetrics) start.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    /**
+     * Called by ConnectionPool.initPool before any connection can be taken, so that recordAcquire only has to read
+     * the instance. It is kept when the pool is closed and initialised again.
+     */
+    public static void init(Start start) {
+        if (getInstance(start) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new ConnectionPoolMetrics());
+    }
+
+    /**
+     * @param pendingThreads the number of other threads that were already waiting for a connection when this
+     *                       one started to wait
+     */
+    public static void recordAcquire(Start start, long durationNanos, boolean failed, int pendingThreads) {
+        ConnectionPoolMetrics instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        instance.acquireTime.recordMicros(durationNanos / 1000);
+        instance.recentAcquireTime.recordMicros(durationNanos / 1000);
+        if (failed) {
+            instance.failures.increment();
+        }
+        instance.checkThresholds(start, pendingThreads);
+    }
+
+    private void checkThresholds(Start start, int pendingThreads) {
+        MySQLConfig config = Config.getConfig(start);
+        long now = System.currentTimeMillis();
+
+        int pendingThreadsThreshold = config.getConnectionPoolPendingThreadsWarnThreshold();
+        if (pendingThreadsThreshold > 0 && pendingThreads >= pendingThreadsThreshold) {
+            long lastWarning = lastPendingThreadsWarning.get();
+            if (now - lastWarning >= WINDOW_MS && lastPendingThreadsWarning.compareAndSet(lastWarning, now)) {
+                Logging.warn(start, pendingThreads + " threads are waiting for a database connection (threshold: "
+                        + pendingThreadsThreshold + "). Consider increasing mysql_connection_pool_size.");
+            }
+        }
+
+        long windowStartedAt = windowStart.get();
+        if (now - windowStartedAt < WINDOW_MS || !windowStart.compareAndSet(windowStartedAt, now)) {
+            return;
+        }
+        LatencyHistogram window = recentAcquireTime;
+        recentAcquireTime = new LatencyHistogram();
+        long p99ThresholdMs = config.getConnectionPoolAcquireP99WarnThresholdMs();
+        if (p99ThresholdMs > 0 && window.getCount() > 0) {
+            long p99Micros = window.getValueAtPercentileMicros(99);
+            if (p99Micros > p99ThresholdMs * 1000) {
+                Logging.warn(start, "p99 of the time to get a database connection over the last "
+                        + ((now - windowStartedAt) / 1000) + "s was " + (p99Micros / 1000.0) + "ms (threshold: "
+                        + p99ThresholdMs + "ms). Consider increasing mysql_connection_pool_size.");
+            }
+        }
+    }
+
+    public static JsonObject getSnapshot(Start start) {
+        ConnectionPoolMetrics instance = getInstance(start);
+        JsonObject snapshot = new JsonObject();
+        if (instance == null) {
+            return snapshot;
+        }
+        snapshot.addProperty("since", instance.createdAt);
+        snapshot.addProperty("count", instance.acquireTime.getCount());
+        snapshot.addProperty("failures", instance.failures.sum());
+        snapshot.addProperty("meanMs", instance.acquireTime.getMeanMicros() / 1000.0);
+        snapshot.addProperty("p50Ms", instance.acquireTime.getValueAtPercentileMicros(50) / 1000.0);
+        snapshot.addProperty("p90Ms", instance.acquireTime.getValueAtPercentileMicros(90) / 1000.0);
+        snapshot.addProperty("p99Ms", instance.acquireTime.getValueAtPercentileMicros(99) / 1000.0);
+        snapshot.addProperty("maxMs", instance.acquireTime.getMaxMicros() / 1000.0);
+        return snapshot;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.metrics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.storage.mysql.ResourceDistributor;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per query statistics for all statements that go via QueryExecutorTemplate for a Start instance. Queries are
+ * grouped by their fingerprint (whitespace collapsed and variable length placeholder lists folded), so that, for
+ * example, an IN (?, ?, ?) query with a different number of ids is counted as the same query.
+ *
+ * This is only created if mysql_query_metrics_enabled is true. Additional recorders (for example, one that
+ * exports to the core's telemetry) can be added via addRecorder and receive every statement as well.
+ */
+public class QueryMetrics extends ResourceDistributor.SingletonResource implements QueryMetricsRecorder {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.metrics.QueryMetrics";
+
+    // beyond these, new queries are grouped under OTHER_QUERIES_FINGERPRINT / fingerprinted on every call, so that
+    // queries with unbounded variations can't grow memory without limit
+    static final int MAX_FINGERPRINTS = 500;
+    static final int MAX_CACHED_FINGERPRINTS = 2000;
+    static final String OTHER_QUERIES_FINGERPRINT = "<other>";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final Pattern VALUES_LIST = Pattern.compile("(\\([^()]*\\))(\\s*,\\s*\\([^()]*\\))+");
+
+    // the recorder of the transaction that is running on the current thread, if any. Queries that are run on a
+    // Connection (and not a Start) are attributed to it.
+    private static final ThreadLocal<QueryMetricsRecorder> transactionRecorder = new ThreadLocal<>();
+
+    private final Map<String, String> fingerprintCache = new ConcurrentHashMap<>();
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final List<QueryMetricsRecorder> additionalRecorders = new CopyOnWriteArrayList<>();
+    private final long createdAt = System.currentTimeMillis();
+
+    private QueryMetrics() {
+    }
+
+    private static QueryMetrics getInstance(Start start) {
+        return (QueryMetrics) start.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    public static void init(Start start) {
+        if (getInstance(start) != null || !Config.getConfig(start).isQueryMetricsEnabled()) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new QueryMetrics());
+    }
+
+    /**
+     * @return the recorder for the given Start, or null if metrics are disabled
+     */
+    public static QueryMetricsRecorder getRecorder(Start start) {
+        return getInstance(start);
+    }
+
+    public static QueryMetricsRecorder getRecorderForCurrentThread() {
+        return transactionRecorder.get();
+    }
+
+    /**
+     * Attributes queries run on a Connection in this thread to the given Start until unbindFromCurrentThread is
+     * called with the returned value.
+     */
+    public static QueryMetricsRecorder bindToCurrentThread(Start start) {
+        QueryMetricsRecorder previous = transactionRecorder.get();
+        transactionRecorder.set(getRecorder(start));
+        return previous;
+    }
+
+    public static void unbindFromCurrentThread(QueryMetricsRecorder previous) {
+        if (previous == null) {
+            transactionRecorder.remove();
+        } else {
+            transactionRecorder.set(previous);
+        }
+    }
+
+    public static void addRecorder(Start start, QueryMetricsRecorder recorder) {
+        QueryMetrics instance = getInstance(start);
+        if (instance == null) {
+            throw new IllegalStateException("Please set mysql_query_metrics_enabled to true to add a recorder");
+        }
+        instance.additionalRecorders.add(recorder);
+    }
+
+    public static JsonObject getSnapshot(Start start) {
+        QueryMetrics instance = getInstance(start);
+        JsonObject snapshot = new JsonObject();
+        snapshot.addProperty("enabled", instance != null);
+        if (instance == null) {
+            return snapshot;
+        }
+        snapshot.addProperty("since", instance.createdAt);
+
+        List<Map.Entry<String, QueryStats>> entries = new ArrayList<>(instance.stats.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<String, QueryStats> e) -> e.getValue().totalDurationNanos.sum()).reversed());
+
+        JsonArray queries = new JsonArray();
+        for (Map.Entry<String, QueryStats> entry : entries) {
+            queries.add(entry.getValue().toJson(entry.getKey()));
+        }
+        snapshot.add("queries", queries);
+        return snapshot;
+    }
+
+    @Override
+    public void recordQuery(String query, long durationNanos, long rows, boolean failed) {
+        String fingerprint = getFingerprint(query);
+        QueryStats queryStats = stats.get(fingerprint);
+        if (queryStats == null) {
+            if (stats.size() >= MAX_FINGERPRINTS) {
+                fingerprint = OTHER_QUERIES_FINGERPRINT;
+            }
+            queryStats = stats.computeIfAbsent(fingerprint, k -> new QueryStats());
+        }
+        queryStats.record(durationNanos, rows, failed);
+
+        for (QueryMetricsRecorder recorder : additionalRecorders) {
+            recorder.recordQuery(query, durationNanos, rows, failed);
+        }
+    }
+
+    private String getFingerprint(String query) {
+        String fingerprint = fingerprintCache.get(query);
+        if (fingerprint != null) {
+            return fingerprint;
+        }
+        fingerprint = fingerprint(query);
+        if (fingerprintCache.size() < MAX_CACHED_FINGERPRINTS) {
+            fingerprintCache.put(query, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    static String fingerprint(String query) {
+        String fingerprint = WHITESPACE.matcher(query.trim()).replaceAll(" ");
+        fingerprint = PLACEHOLDER_LIST.matcher(fingerprint).replaceAll("?, ...");
+        fingerprint = VALUES_LIST.matcher(fingerprint).replaceAll("$1, ...");
+        return fingerprint;
+    }
+
+    private static class QueryStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalDurationNanos = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(long durationNanos, long rowCount, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            rows.add(rowCount);
+            totalDurationNanos.add(durationNanos);
+            latency.recordMicros(durationNanos / 1000);
+        }
+
+        JsonObject toJson(String fingerprint) {
+            JsonObject result = new JsonObject();
+            result.addProperty("query", fingerprint);
+            result.addProperty("count", count.sum());
+            result.addProperty("errors", errors.sum());
+            result.addProperty("rows", rows.sum());
+            result.addProperty("totalTimeMs", totalDurationNanos.sum() / 1_000_000.0);
+            result.addProperty("meanMs", latency.getMeanMicros() / 1000.0);
+            result.addProperty("p50Ms", latency.getValueAtPercentileMicros(50) / 1000.0);
+            result.addProperty("p90Ms", latency.getValueAtPercentileMicros(90) / 1000.0);
+            result.addProperty("p99Ms", latency.getValueAtPercentileMicros(99) / 1000.0);
+            result.addProperty("maxMs", latency.getMaxMicros() / 1000.0);
+            return result;
+        }
+    }
+}
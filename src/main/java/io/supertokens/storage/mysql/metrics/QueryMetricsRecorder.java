@@ -0,0 +1,32 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.metrics;
+
+/**
+ * Receives one call per SQL statement executed via QueryExecutorTemplate. Implementations must be thread safe and
+ * cheap, since they are called on the request path.
+ */
+public interface QueryMetricsRecorder {
+
+    /**
+     * @param query         the SQL as it was passed to QueryExecutorTemplate (not fingerprinted)
+     * @param durationNanos time taken to prepare, execute and read the result of the statement
+     * @param rows          rows read from the result set for queries, or rows affected for updates
+     * @param failed        true if the statement failed with an SQLException
+     */
+    void recordQuery(String query, long durationNanos, long rows, boolean failed);
+}
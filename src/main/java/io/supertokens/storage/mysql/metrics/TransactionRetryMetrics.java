@@ -0,0 +1,134 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.metrics;
+
+import com.google.gson.JsonObject;
+import io.supertokens.storage.mysql.ResourceDistributor;
+import io.supertokens.storage.mysql.Start;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts deadlocks, retries and give ups of Start.startTransaction, per calling method (the first frame outside of
+ * this plugin). Unlike QueryMetrics this is always on, since it is only touched when a deadlock happens.
+ */
+public class TransactionRetryMetrics extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.metrics.TransactionRetryMetrics";
+
+    // beyond this, new callers are counted under OTHER_CALLERS
+    static final int MAX_CALLERS = 200;
+    static final String OTHER_CALLERS = "<other>";
+
+    private static final String PLUGIN_PACKAGE = "io.supertokens.storage.mysql.";
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final long createdAt = System.currentTimeMillis();
+
+    private static class Counters {
+        final LongAdder deadlocks = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder giveUps = new LongAdder();
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("deadlocks", deadlocks.sum());
+            json.addProperty("retries", retries.sum());
+            json.addProperty("giveUps", giveUps.sum());
+            return json;
+        }
+    }
+
+    private TransactionRetryMetrics() {
+    }
+
+    private static TransactionRetryMetrics getInstance(Start start) {
+        return (TransactionRetryMetrics) start.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    /**
+     * Called by Start.loadConfig, before any transaction can run, so that recordDeadlock only has to read the
+     * instance.
+     */
+    public static void init(Start start) {
+        if (getInstance(start) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new TransactionRetryMetrics());
+    }
+
+    /**
+     * @return class and method name of the first caller outside of this plugin, used to group the counters
+     */
+    public static String getCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !frame.getClassName().startsWith(PLUGIN_PACKAGE))
+                .findFirst()
+                .map(frame -> frame.getClassName() + "." + frame.getMethodName())
+                .orElse(OTHER_CALLERS));
+    }
+
+    public static void recordDeadlock(Start start, String caller, boolean retrying) {
+        TransactionRetryMetrics instance = getInstance(start);
+        if (instance == null) {
+            return;
+        }
+        Counters callerCounters = instance.getCounters(caller);
+        callerCounters.deadlocks.increment();
+        if (retrying) {
+            callerCounters.retries.increment();
+        } else {
+            callerCounters.giveUps.increment();
+        }
+    }
+
+    public static JsonObject getSnapshot(Start start) {
+        TransactionRetryMetrics instance = getInstance(start);
+        JsonObject snapshot = new JsonObject();
+        if (instance == null) {
+            return snapshot;
+        }
+        snapshot.addProperty("since", instance.createdAt);
+
+        Counters total = new Counters();
+        JsonObject callers = new JsonObject();
+        for (Map.Entry<String, Counters> entry : instance.counters.entrySet()) {
+            callers.add(entry.getKey(), entry.getValue().toJson());
+            total.deadlocks.add(entry.getValue().deadlocks.sum());
+            total.retries.add(entry.getValue().retries.sum());
+            total.giveUps.add(entry.getValue().giveUps.sum());
+        }
+        snapshot.add("total", total.toJson());
+        snapshot.add("callers", callers);
+        return snapshot;
+    }
+
+    private Counters getCounters(String caller) {
+        Counters callerCounters = counters.get(caller);
+        if (callerCounters != null) {
+            return callerCounters;
+        }
+        if (counters.size() >= MAX_CALLERS) {
+            caller = OTHER_CALLERS;
+        }
+        return counters.computeIfAbsent(caller, k -> new Counters());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.pagination;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset pagination cursors. A cursor holds the sort key of the last row of a page, so that the next page can
+ * seek straight to it in the index instead of skipping over all the earlier rows. Callers should treat the
+ * encoded value as opaque.
+ */
+public class PaginationCursor {
+
+    private PaginationCursor() {
+    }
+
+    public static String encode(String... keyParts) {
+        JsonArray array = new JsonArray();
+        for (String part : keyParts) {
+            array.add(new JsonPrimitive(part));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(array.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not created by {@link #encode} with {@code numberOfParts}
+     *                                  parts
+     */
+    public static String[] decode(String cursor, int numberOfParts) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            JsonArray array = new JsonParser().parse(json).getAsJsonArray();
+            if (array.size() != numberOfParts) {
+                throw new IllegalStateException("expected " + numberOfParts + " parts but got " + array.size());
+            }
+            String[] keyParts = new String[numberOfParts];
+            int i = 0;
+            for (JsonElement element : array) {
+                keyParts[i++] = element.getAsString();
+            }
+            return keyParts;
+        } catch (RuntimeException e) {
+            // malformed base64 or json, or the wrong number of parts
+            throw new IllegalArgumentException("invalid pagination cursor", e);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package io.supertokens.storage.mysql.queries;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
 
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.storage.mysql.Start;
@@ -10,6 +12,7 @@ import io.supertokens.storage.mysql.config.Config;
 
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
+import static io.supertokens.storage.mysql.queries.QueryCatalog.getQueries;
 
 public class ActiveUsersQueries {
     static String getQueryToCreateUserLastActiveTable(Start start) {
@@ -24,8 +27,7 @@ public class ActiveUsersQueries {
     }
 
     public static int countUsersActiveSince(Start start, AppIdentifier appIdentifier, long sinceTime) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT COUNT(*) as total FROM " + Config.getConfig(start).getUserLastActiveTable()
-                + " WHERE app_id = ? AND last_active_time >= ?";
+        String QUERY = getQueries(start).activeUsers.COUNT_USERS_ACTIVE_SINCE;
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -94,8 +96,7 @@ public class ActiveUsersQueries {
     }
 
     public static int updateUserLastActive(Start start, AppIdentifier appIdentifier, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getUserLastActiveTable()
-                + "(app_id, user_id, last_active_time) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE last_active_time = ?";
+        String QUERY = getQueries(start).activeUsers.UPDATE_USER_LAST_ACTIVE;
 
         long now = System.currentTimeMillis();
         return update(start, QUERY, pst -> {
@@ -106,10 +107,34 @@ public class ActiveUsersQueries {
         });
     }
 
+    /**
+     * Writes many last active times with one multi-row upsert. A row is never moved back in time, since an update
+     * that was written directly can be newer than one that was buffered.
+     */
+    public static void updateUsersLastActive(Start start, List<String> appIds, List<String> userIds,
+                                             List<Long> lastActiveTimes)
+            throws SQLException, StorageQueryException {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String QUERY = "INSERT INTO " + Config.getConfig(start).getUserLastActiveTable()
+                + "(app_id, user_id, last_active_time) VALUES "
+                + String.join(", ", Collections.nCopies(userIds.size(), "(?, ?, ?)"))
+                + " ON DUPLICATE KEY UPDATE last_active_time = GREATEST(last_active_time, VALUES(last_active_time))";
+
+        update(start, QUERY, pst -> {
+            int index = 1;
+            for (int i = 0; i < userIds.size(); i++) {
+                pst.setString(index++, appIds.get(i));
+                pst.setString(index++, userIds.get(i));
+                pst.setLong(index++, lastActiveTimes.get(i));
+            }
+        });
+    }
+
     public static Long getLastActiveByUserId(Start start, AppIdentifier appIdentifier, String userId)
             throws StorageQueryException {
-        String QUERY = "SELECT last_active_time FROM " + Config.getConfig(start).getUserLastActiveTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).activeUsers.GET_LAST_ACTIVE_BY_USER_ID;
 
         try {
             return execute(start, QUERY, pst -> {
@@ -129,8 +154,7 @@ public class ActiveUsersQueries {
     public static void deleteUserActive_Transaction(Connection con, Start start, AppIdentifier appIdentifier,
                                                     String userId)
             throws StorageQueryException, SQLException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getUserLastActiveTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).activeUsers.DELETE_USER_ACTIVE;
 
         update(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
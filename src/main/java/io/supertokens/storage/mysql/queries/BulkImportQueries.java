@@ -0,0 +1,345 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.queries;
+
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.sqlStorage.SQLStorage.TransactionIsolationLevel;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.bulkimport.BulkImportResult;
+import io.supertokens.storage.mysql.bulkimport.BulkImportResult.FailureReason;
+import io.supertokens.storage.mysql.bulkimport.BulkImportUser;
+import io.supertokens.storage.mysql.config.MySQLConfig;
+import io.supertokens.storage.mysql.utils.Utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static io.supertokens.pluginInterface.RECIPE_ID.*;
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
+import static io.supertokens.storage.mysql.config.Config.getConfig;
+
+public class BulkImportQueries {
+
+    /**
+     * Creates the given users in a single transaction with one multi-row INSERT per table. Users that are invalid,
+     * that clash with another user of the chunk or with data that is already in the database are not inserted and
+     * are returned as failures instead. {@code firstIndex} is the position of the first user of the chunk in the
+     * list the caller was given, and is used for the index of the failures.
+     * <p>
+     * If an INSERT still runs into a constraint violation (a concurrent sign up, or a tenant that does not exist),
+     * nothing from the chunk is kept and the SQLIntegrityConstraintViolationException is thrown wrapped in a
+     * StorageTransactionLogicException, so that the caller can fall back to creating the users one at a time.
+     */
+    public static List<BulkImportResult.Failure> importUsers(Start start, TenantIdentifier tenantIdentifier,
+                                                             List<BulkImportUser> users, int firstIndex)
+            throws StorageQueryException, StorageTransactionLogicException {
+        // READ_COMMITTED so that the duplicate checks don't take gap locks over large ranges of the unique indexes.
+        // The unique constraints still protect us from anything that is inserted after the checks.
+        return start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                FailureReason[] reasons = findFailures_Transaction(start, sqlCon, tenantIdentifier, users);
+
+                List<BulkImportUser> usersToInsert = new ArrayList<>();
+                List<BulkImportResult.Failure> failures = new ArrayList<>();
+                for (int i = 0; i < users.size(); i++) {
+                    if (reasons[i] == null) {
+                        usersToInsert.add(users.get(i));
+                    } else {
+                        failures.add(new BulkImportResult.Failure(firstIndex + i, users.get(i).userId, reasons[i]));
+                    }
+                }
+
+                insertUsers_Transaction(start, sqlCon, tenantIdentifier, usersToInsert);
+                sqlCon.commit();
+                return failures;
+            } catch (SQLException throwables) {
+                throw new StorageTransactionLogicException(throwables);
+            }
+        }, TransactionIsolationLevel.READ_COMMITTED);
+    }
+
+    private static FailureReason[] findFailures_Transaction(Start start, Connection sqlCon,
+                                                            TenantIdentifier tenantIdentifier,
+                                                            List<BulkImportUser> users)
+            throws SQLException, StorageQueryException {
+        FailureReason[] reasons = new FailureReason[users.size()];
+
+        // first we look for clashes within the chunk itself. The first user with a given value wins.
+        Set<String> userIds = new HashSet<>();
+        Set<String> emailPasswordEmails = new HashSet<>();
+        Set<List<String>> thirdPartyUsers = new HashSet<>();
+        Set<String> passwordlessEmails = new HashSet<>();
+        Set<String> passwordlessPhoneNumbers = new HashSet<>();
+
+        for (int i = 0; i < users.size(); i++) {
+            BulkImportUser user = users.get(i);
+            if (!user.isValid()) {
+                reasons[i] = FailureReason.INVALID_INPUT;
+                continue;
+            }
+            if (userIds.contains(user.userId)) {
+                reasons[i] = FailureReason.DUPLICATE_USER_ID;
+                continue;
+            }
+            if (user.recipeId == EMAIL_PASSWORD) {
+                if (!emailPasswordEmails.add(user.email)) {
+                    reasons[i] = FailureReason.DUPLICATE_EMAIL;
+                    continue;
+                }
+            } else if (user.recipeId == THIRD_PARTY) {
+                if (!thirdPartyUsers.add(List.of(user.thirdPartyId, user.thirdPartyUserId))) {
+                    reasons[i] = FailureReason.DUPLICATE_THIRD_PARTY_USER;
+                    continue;
+                }
+            } else {
+                if (user.email != null && passwordlessEmails.contains(user.email)) {
+                    reasons[i] = FailureReason.DUPLICATE_EMAIL;
+                    continue;
+                }
+                if (user.phoneNumber != null && passwordlessPhoneNumbers.contains(user.phoneNumber)) {
+                    reasons[i] = FailureReason.DUPLICATE_PHONE_NUMBER;
+                    continue;
+                }
+                if (user.email != null) {
+                    passwordlessEmails.add(user.email);
+                }
+                if (user.phoneNumber != null) {
+                    passwordlessPhoneNumbers.add(user.phoneNumber);
+                }
+            }
+            userIds.add(user.userId);
+        }
+
+        // then against what is already in the database
+        MySQLConfig config = getConfig(start);
+        Set<String> existingUserIds = findExistingValues_Transaction(sqlCon, tenantIdentifier,
+                config.getAppIdToUserIdTable(), false, "user_id", userIds);
+        Set<String> existingEmailPasswordEmails = findExistingValues_Transaction(sqlCon, tenantIdentifier,
+                config.getEmailPasswordUserToTenantTable(), true, "email", emailPasswordEmails);
+        Set<List<String>> existingThirdPartyUsers = findExistingThirdPartyUsers_Transaction(start, sqlCon,
+                tenantIdentifier, thirdPartyUsers);
+        Set<String> existingPasswordlessEmails = findExistingValues_Transaction(sqlCon, tenantIdentifier,
+                config.getPasswordlessUserToTenantTable(), true, "email", passwordlessEmails);
+        Set<String> existingPasswordlessPhoneNumbers = findExistingValues_Transaction(sqlCon, tenantIdentifier,
+                config.getPasswordlessUserToTenantTable(), true, "phone_number", passwordlessPhoneNumbers);
+
+        for (int i = 0; i < users.size(); i++) {
+            if (reasons[i] != null) {
+                continue;
+            }
+            BulkImportUser user = users.get(i);
+            if (existingUserIds.contains(user.userId)) {
+                reasons[i] = FailureReason.DUPLICATE_USER_ID;
+            } else if (user.recipeId == EMAIL_PASSWORD) {
+                if (existingEmailPasswordEmails.contains(user.email)) {
+                    reasons[i] = FailureReason.DUPLICATE_EMAIL;
+                }
+            } else if (user.recipeId == THIRD_PARTY) {
+                if (existingThirdPartyUsers.contains(List.of(user.thirdPartyId, user.thirdPartyUserId))) {
+                    reasons[i] = FailureReason.DUPLICATE_THIRD_PARTY_USER;
+                }
+            } else if (user.email != null && existingPasswordlessEmails.contains(user.email)) {
+                reasons[i] = FailureReason.DUPLICATE_EMAIL;
+            } else if (user.phoneNumber != null && existingPasswordlessPhoneNumbers.contains(user.phoneNumber)) {
+                reasons[i] = FailureReason.DUPLICATE_PHONE_NUMBER;
+            }
+        }
+        return reasons;
+    }
+
+    private static Set<String> findExistingValues_Transaction(Connection sqlCon, TenantIdentifier tenantIdentifier,
+                                                              String table, boolean perTenant, String column,
+                                                              Set<String> values)
+            throws SQLException, StorageQueryException {
+        if (values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String QUERY = "SELECT " + column + " FROM " + table + " WHERE app_id = ?"
+                + (perTenant ? " AND tenant_id = ?" : "")
+                + " AND " + column + " IN (" + Utils.generateCommaSeperatedQuestionMarks(values.size()) + ")";
+        return execute(sqlCon, QUERY, pst -> {
+            int index = 1;
+            pst.setString(index++, tenantIdentifier.getAppId());
+            if (perTenant) {
+                pst.setString(index++, tenantIdentifier.getTenantId());
+            }
+            for (String value : values) {
+                pst.setString(index++, value);
+            }
+        }, result -> {
+            Set<String> existing = new HashSet<>();
+            while (result.next()) {
+                existing.add(result.getString(column));
+            }
+            return existing;
+        });
+    }
+
+    private static Set<List<String>> findExistingThirdPartyUsers_Transaction(Start start, Connection sqlCon,
+                                                                            TenantIdentifier tenantIdentifier,
+                                                                            Set<List<String>> thirdPartyUsers)
+            throws SQLException, StorageQueryException {
+        if (thirdPartyUsers.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String QUERY = "SELECT third_party_id, third_party_user_id FROM "
+                + getConfig(start).getThirdPartyUserToTenantTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND (third_party_id, third_party_user_id) IN ("
+                + String.join(", ", Collections.nCopies(thirdPartyUsers.size(), "(?, ?)")) + ")";
+        return execute(sqlCon, QUERY, pst -> {
+            int index = 1;
+            pst.setString(index++, tenantIdentifier.getAppId());
+            pst.setString(index++, tenantIdentifier.getTenantId());
+            for (List<String> thirdPartyUser : thirdPartyUsers) {
+                pst.setString(index++, thirdPartyUser.get(0));
+                pst.setString(index++, thirdPartyUser.get(1));
+            }
+        }, result -> {
+            Set<List<String>> existing = new HashSet<>();
+            while (result.next()) {
+                existing.add(List.of(result.getString("third_party_id"), result.getString("third_party_user_id")));
+            }
+            return existing;
+        });
+    }
+
+    private static void insertUsers_Transaction(Start start, Connection sqlCon, TenantIdentifier tenantIdentifier,
+                                                List<BulkImportUser> users)
+            throws SQLException, StorageQueryException {
+        MySQLConfig config = getConfig(start);
+        String appId = tenantIdentifier.getAppId();
+        String tenantId = tenantIdentifier.getTenantId();
+
+        // same order as the single user sign up queries, so that the foreign keys are satisfied
+        insertRows_Transaction(sqlCon, config.getAppIdToUserIdTable()
+                        + "(app_id, user_id, primary_or_recipe_user_id, recipe_id)", 4, users,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, user.userId);
+                    pst.setString(index + 2, user.userId);
+                    pst.setString(index + 3, user.recipeId.toString());
+                });
+
+        insertRows_Transaction(sqlCon, config.getUsersTable()
+                        + "(app_id, tenant_id, user_id, primary_or_recipe_user_id, recipe_id, time_joined, "
+                        + "primary_or_recipe_user_time_joined)", 7, users,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, tenantId);
+                    pst.setString(index + 2, user.userId);
+                    pst.setString(index + 3, user.userId);
+                    pst.setString(index + 4, user.recipeId.toString());
+                    pst.setLong(index + 5, user.timeJoined);
+                    pst.setLong(index + 6, user.timeJoined);
+                });
+
+        List<BulkImportUser> emailPasswordUsers = filterByRecipe(users, EMAIL_PASSWORD);
+        insertRows_Transaction(sqlCon, config.getEmailPasswordUsersTable()
+                        + "(app_id, user_id, email, password_hash, time_joined)", 5, emailPasswordUsers,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, user.userId);
+                    pst.setString(index + 2, user.email);
+                    pst.setString(index + 3, user.passwordHash);
+                    pst.setLong(index + 4, user.timeJoined);
+                });
+        insertRows_Transaction(sqlCon, config.getEmailPasswordUserToTenantTable()
+                        + "(app_id, tenant_id, user_id, email)", 4, emailPasswordUsers,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, tenantId);
+                    pst.setString(index + 2, user.userId);
+                    pst.setString(index + 3, user.email);
+                });
+
+        List<BulkImportUser> thirdPartyUsers = filterByRecipe(users, THIRD_PARTY);
+        insertRows_Transaction(sqlCon, config.getThirdPartyUsersTable()
+                        + "(app_id, third_party_id, third_party_user_id, user_id, email, time_joined)", 6,
+                thirdPartyUsers,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, user.thirdPartyId);
+                    pst.setString(index + 2, user.thirdPartyUserId);
+                    pst.setString(index + 3, user.userId);
+                    pst.setString(index + 4, user.email);
+                    pst.setLong(index + 5, user.timeJoined);
+                });
+        insertRows_Transaction(sqlCon, config.getThirdPartyUserToTenantTable()
+                        + "(app_id, tenant_id, user_id, third_party_id, third_party_user_id)", 5,
+                thirdPartyUsers,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, tenantId);
+                    pst.setString(index + 2, user.userId);
+                    pst.setString(index + 3, user.thirdPartyId);
+                    pst.setString(index + 4, user.thirdPartyUserId);
+                });
+
+        List<BulkImportUser> passwordlessUsers = filterByRecipe(users, PASSWORDLESS);
+        insertRows_Transaction(sqlCon, config.getPasswordlessUsersTable()
+                        + "(app_id, user_id, email, phone_number, time_joined)", 5, passwordlessUsers,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, user.userId);
+                    pst.setString(index + 2, user.email);
+                    pst.setString(index + 3, user.phoneNumber);
+                    pst.setLong(index + 4, user.timeJoined);
+                });
+        insertRows_Transaction(sqlCon, config.getPasswordlessUserToTenantTable()
+                        + "(app_id, tenant_id, user_id, email, phone_number)", 5, passwordlessUsers,
+                (pst, index, user) -> {
+                    pst.setString(index, appId);
+                    pst.setString(index + 1, tenantId);
+                    pst.setString(index + 2, user.userId);
+                    pst.setString(index + 3, user.email);
+                    pst.setString(index + 4, user.phoneNumber);
+                });
+    }
+
+    private static List<BulkImportUser> filterByRecipe(List<BulkImportUser> users, RECIPE_ID recipeId) {
+        return users.stream().filter(user -> user.recipeId == recipeId).collect(Collectors.toList());
+    }
+
+    private static void insertRows_Transaction(Connection sqlCon, String tableAndColumns, int numberOfColumns,
+                                               List<BulkImportUser> users, RowValuesSetter setter)
+            throws SQLException, StorageQueryException {
+        if (users.isEmpty()) {
+            return;
+        }
+        String row = "(" + Utils.generateCommaSeperatedQuestionMarks(numberOfColumns) + ")";
+        String QUERY = "INSERT INTO " + tableAndColumns + " VALUES "
+                + String.join(", ", Collections.nCopies(users.size(), row));
+        update(sqlCon, QUERY, pst -> {
+            for (int i = 0; i < users.size(); i++) {
+                setter.setValues(pst, i * numberOfColumns + 1, users.get(i));
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface RowValuesSetter {
+        void setValues(PreparedStatement pst, int firstParameterIndex, BulkImportUser user) throws SQLException;
+    }
+}
@@ -192,12 +192,10 @@ public class DashboardQueries {
                 new DashboardSessionInfoResultExtractor());
     }
 
-    public static void deleteExpiredSessions(Start start) throws SQLException, StorageQueryException {
+    public static int deleteExpiredSessions(Start start) throws SQLException, StorageQueryException {
         long currentTimeMillis = System.currentTimeMillis();
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getDashboardSessionsTable()
-                + " WHERE expiry < ?";
-        // store the number of rows updated
-        QueryExecutorTemplate.update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis));
+        return ExpiredRowsSweeper.sweep(start, Config.getConfig(start).getDashboardSessionsTable(), "expiry < ?",
+                "expiry", pst -> pst.setLong(1, currentTimeMillis));
     }
 
     public static DashboardUser getDashboardUserByEmail(Start start, AppIdentifier appIdentifier, String email)
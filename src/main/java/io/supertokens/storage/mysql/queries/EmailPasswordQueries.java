@@ -89,10 +89,10 @@ public class EmailPasswordQueries {
                 + Config.getConfig(start).getPasswordResetTokensTable() + "(token_expiry);";
     }
 
-    public static void deleteExpiredPasswordResetTokens(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getPasswordResetTokensTable() + " WHERE token_expiry < ?";
-
-        update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
+    public static int deleteExpiredPasswordResetTokens(Start start) throws SQLException, StorageQueryException {
+        long now = currentTimeMillis();
+        return ExpiredRowsSweeper.sweep(start, getConfig(start).getPasswordResetTokensTable(), "token_expiry < ?",
+                "token_expiry", pst -> pst.setLong(1, now));
     }
 
     public static void updateUsersPassword_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
@@ -69,10 +69,10 @@ public class EmailVerificationQueries {
                 + Config.getConfig(start).getEmailVerificationTokensTable() + "(token_expiry);";
     }
 
-    public static void deleteExpiredEmailVerificationTokens(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable() + " WHERE token_expiry < ?";
-
-        update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
+    public static int deleteExpiredEmailVerificationTokens(Start start) throws SQLException, StorageQueryException {
+        long now = currentTimeMillis();
+        return ExpiredRowsSweeper.sweep(start, getConfig(start).getEmailVerificationTokensTable(),
+                "token_expiry < ?", "token_expiry", pst -> pst.setLong(1, now));
     }
 
     public static void updateUsersIsEmailVerified_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
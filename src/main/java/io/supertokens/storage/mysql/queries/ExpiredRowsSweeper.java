@@ -0,0 +1,90 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.queries;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.storage.mysql.PreparedStatementValueSetter;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.config.MySQLConfig;
+
+import java.sql.SQLException;
+
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
+
+/**
+ * Deletes expired rows in chunks instead of with one unbounded DELETE, so that each statement only locks a few rows
+ * and replicas can keep up. Chunks are taken in the order of the expiry column, which every swept table has an index
+ * on: this way MySQL reads only expired rows through that index, instead of walking the primary key and locking
+ * every live row it passes (under REPEATABLE READ) on the way to the next expired one. Between chunks it sleeps as
+ * needed to stay under mysql_expired_rows_delete_rate, and it stops after mysql_expired_rows_delete_max_duration_ms.
+ * Rows that are left behind are removed by the next run of the cleanup cronjob.
+ */
+class ExpiredRowsSweeper {
+
+    /**
+     * @param table        the table to delete from
+     * @param where        the condition for rows to delete, without the WHERE keyword
+     * @param expiryColumn the column that where compares with the expiry time. It must be indexed, after any columns
+     *                     that where matches exactly
+     * @return the number of deleted rows
+     */
+    static int sweep(Start start, String table, String where, String expiryColumn,
+                     PreparedStatementValueSetter setter)
+            throws SQLException, StorageQueryException {
+        MySQLConfig config = Config.getConfig(start);
+        int batchSize = config.getExpiredRowsDeleteBatchSize();
+        int rowsPerSecond = config.getExpiredRowsDeleteRate();
+        long maxDurationMs = config.getExpiredRowsDeleteMaxDurationMs();
+
+        String QUERY = getQueryToDeleteChunk(table, where, expiryColumn, batchSize);
+
+        long startTime = System.currentTimeMillis();
+        int totalDeleted = 0;
+        while (true) {
+            int deleted = update(start, QUERY, setter);
+            totalDeleted += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+
+            long elapsed = System.currentTimeMillis() - startTime;
+            if (maxDurationMs > 0 && elapsed >= maxDurationMs) {
+                break;
+            }
+            if (rowsPerSecond > 0) {
+                long sleepTime = (totalDeleted * 1000L / rowsPerSecond) - elapsed;
+                if (maxDurationMs > 0) {
+                    sleepTime = Math.min(sleepTime, maxDurationMs - elapsed);
+                }
+                if (sleepTime > 0) {
+                    try {
+                        Thread.sleep(sleepTime);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        return totalDeleted;
+    }
+
+    static String getQueryToDeleteChunk(String table, String where, String expiryColumn, int batchSize) {
+        return "DELETE FROM " + table + " WHERE " + where + " ORDER BY " + expiryColumn + " LIMIT " + batchSize;
+    }
+}
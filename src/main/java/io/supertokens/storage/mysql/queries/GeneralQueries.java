@@ -26,8 +26,11 @@ import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.ParallelQueryExecutor;
 import io.supertokens.storage.mysql.Start;
 import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.pagination.Page;
+import io.supertokens.storage.mysql.pagination.PaginationCursor;
 import io.supertokens.storage.mysql.utils.Utils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -56,21 +59,36 @@ import static io.supertokens.storage.mysql.queries.PasswordlessQueries.getQueryT
 import static io.supertokens.storage.mysql.queries.PasswordlessQueries.getQueryToCreateDeviceEmailIndex;
 import static io.supertokens.storage.mysql.queries.PasswordlessQueries.getQueryToCreateDevicePhoneNumberIndex;
 import static io.supertokens.storage.mysql.queries.PasswordlessQueries.getQueryToCreateDevicesTable;
+import static io.supertokens.storage.mysql.queries.QueryCatalog.getQueries;
 import static io.supertokens.storage.mysql.queries.SessionQueries.*;
 import static io.supertokens.storage.mysql.queries.UserMetadataQueries.getQueryToCreateUserMetadataTable;
 
 public class GeneralQueries {
 
-    private static boolean doesTableExists(Start start, String tableName) {
-        try {
-            String QUERY = "SELECT 1 FROM " + tableName + " LIMIT 1";
-            execute(start, QUERY, NO_OP_SETTER, result -> null);
-            return true;
-        } catch (SQLException | StorageQueryException e) {
-            return false;
+    /**
+     * Returns the names (in lower case) of all the tables in the database, using one query on information_schema
+     * instead of probing each table. This must be checked against the primary since that is where the tables
+     * will be created.
+     */
+    private static Set<String> getExistingTables(Start start) throws SQLException, StorageQueryException {
+        String QUERY = "SELECT TABLE_NAME FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE()";
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            return execute(con, QUERY, NO_OP_SETTER, result -> {
+                Set<String> tables = new HashSet<>();
+                while (result.next()) {
+                    tables.add(result.getString("TABLE_NAME").toLowerCase());
+                }
+                return tables;
+            });
         }
     }
 
+    private static boolean doesTableExists(Set<String> existingTables, String tableName) {
+        // table names are compared case insensitively since that is how they are stored when
+        // lower_case_table_names is set
+        return existingTables.contains(tableName.toLowerCase());
+    }
+
     static String getQueryToCreateUsersTable(Start start) {
         // @formatter:off
         return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getUsersTable() + " ("
@@ -192,27 +210,34 @@ public class GeneralQueries {
     }
 
     public static void createTablesIfNotExists(Start start) throws SQLException, StorageQueryException {
-        if (!doesTableExists(start, Config.getConfig(start).getAppsTable())) {
+        Set<String> existingTables = getExistingTables(start);
+
+        if (!doesTableExists(existingTables, Config.getConfig(start).getSchemaVersionTable())) {
+            getInstance(start).addState(CREATING_NEW_TABLE, null);
+            update(start, SchemaMigrations.getQueryToCreateSchemaVersionTable(start), NO_OP_SETTER);
+        }
+
+        if (!doesTableExists(existingTables, Config.getConfig(start).getAppsTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateAppsTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getTenantsTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTenantsTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateTenantsTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getKeyValueTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getKeyValueTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateKeyValueTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getAppIdToUserIdTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getAppIdToUserIdTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateAppIdToUserIdTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getUsersTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getUsersTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateUsersTable(start), NO_OP_SETTER);
 
@@ -225,17 +250,17 @@ public class GeneralQueries {
             update(start, getQueryToCreateRecipeIdIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getUserLastActiveTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getUserLastActiveTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, ActiveUsersQueries.getQueryToCreateUserLastActiveTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getAccessTokenSigningKeysTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getAccessTokenSigningKeysTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateAccessTokenSigningKeysTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getSessionInfoTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getSessionInfoTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateSessionInfoTable(start), NO_OP_SETTER);
 
@@ -243,54 +268,59 @@ public class GeneralQueries {
             update(start, getQueryToCreateSessionExpiryIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getTenantConfigsTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTenantConfigsTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, MultitenancyQueries.getQueryToCreateTenantConfigsTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getTenantThirdPartyProvidersTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTenantThirdPartyProvidersTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, MultitenancyQueries.getQueryToCreateTenantThirdPartyProvidersTable(start),
                     NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getTenantThirdPartyProviderClientsTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTenantThirdPartyProviderClientsTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, MultitenancyQueries.getQueryToCreateTenantThirdPartyProviderClientsTable(start),
                     NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getEmailPasswordUsersTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTenantConfigsVersionTable())) {
+            getInstance(start).addState(CREATING_NEW_TABLE, null);
+            update(start, MultitenancyQueries.getQueryToCreateTenantConfigsVersionTable(start), NO_OP_SETTER);
+        }
+
+        if (!doesTableExists(existingTables, Config.getConfig(start).getEmailPasswordUsersTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, EmailPasswordQueries.getQueryToCreateUsersTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getEmailPasswordUserToTenantTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getEmailPasswordUserToTenantTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, EmailPasswordQueries.getQueryToCreateEmailPasswordUserToTenantTable(start),
                     NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getPasswordResetTokensTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getPasswordResetTokensTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreatePasswordResetTokensTable(start), NO_OP_SETTER);
             // index
             update(start, getQueryToCreatePasswordResetTokenExpiryIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getEmailVerificationTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getEmailVerificationTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateEmailVerificationTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getEmailVerificationTokensTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getEmailVerificationTokensTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateEmailVerificationTokensTable(start), NO_OP_SETTER);
             // index
             update(start, getQueryToCreateEmailVerificationTokenExpiryIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getThirdPartyUsersTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getThirdPartyUsersTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, ThirdPartyQueries.getQueryToCreateUsersTable(start), NO_OP_SETTER);
             // index
@@ -298,28 +328,28 @@ public class GeneralQueries {
             update(start, ThirdPartyQueries.getQueryToThirdPartyUserIdIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getThirdPartyUserToTenantTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getThirdPartyUserToTenantTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, ThirdPartyQueries.getQueryToCreateThirdPartyUserToTenantTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getJWTSigningKeysTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getJWTSigningKeysTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateJWTSigningTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getPasswordlessUsersTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getPasswordlessUsersTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, PasswordlessQueries.getQueryToCreateUsersTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getPasswordlessUserToTenantTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getPasswordlessUserToTenantTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, PasswordlessQueries.getQueryToCreatePasswordlessUserToTenantTable(start),
                     NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getPasswordlessDevicesTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getPasswordlessDevicesTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateDevicesTable(start), NO_OP_SETTER);
             // index
@@ -327,48 +357,48 @@ public class GeneralQueries {
             update(start, getQueryToCreateDevicePhoneNumberIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getPasswordlessCodesTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getPasswordlessCodesTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateCodesTable(start), NO_OP_SETTER);
             // index
             update(start, getQueryToCreateCodeCreatedAtIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getUserMetadataTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getUserMetadataTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, getQueryToCreateUserMetadataTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getRolesTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getRolesTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, UserRolesQueries.getQueryToCreateRolesTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getUserRolesPermissionsTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getUserRolesPermissionsTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, UserRolesQueries.getQueryToCreateRolePermissionsTable(start), NO_OP_SETTER);
             // index
             update(start, UserRolesQueries.getQueryToCreateRolePermissionsPermissionIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getUserRolesTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getUserRolesTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, UserRolesQueries.getQueryToCreateUserRolesTable(start), NO_OP_SETTER);
             // index
             update(start, UserRolesQueries.getQueryToCreateUserRolesRoleIndex(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getUserIdMappingTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getUserIdMappingTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, UserIdMappingQueries.getQueryToCreateUserIdMappingTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getDashboardUsersTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getDashboardUsersTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, DashboardQueries.getQueryToCreateDashboardUsersTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getDashboardSessionsTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getDashboardSessionsTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, DashboardQueries.getQueryToCreateDashboardUserSessionsTable(start), NO_OP_SETTER);
             // index
@@ -376,17 +406,17 @@ public class GeneralQueries {
                     NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getTotpUsersTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTotpUsersTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, TOTPQueries.getQueryToCreateUsersTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getTotpUserDevicesTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTotpUserDevicesTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, TOTPQueries.getQueryToCreateUserDevicesTable(start), NO_OP_SETTER);
         }
 
-        if (!doesTableExists(start, Config.getConfig(start).getTotpUsedCodesTable())) {
+        if (!doesTableExists(existingTables, Config.getConfig(start).getTotpUsedCodesTable())) {
             getInstance(start).addState(CREATING_NEW_TABLE, null);
             update(start, TOTPQueries.getQueryToCreateUsedCodesTable(start), NO_OP_SETTER);
             // index:
@@ -410,9 +440,7 @@ public class GeneralQueries {
     public static void setKeyValue_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier,
                                                String key, KeyValueInfo info)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getKeyValueTable()
-                + "(app_id, tenant_id, name, value, created_at_time) VALUES(?, ?, ?, ?, ?) "
-                + "ON DUPLICATE KEY UPDATE value = ?, created_at_time = ?";
+        String QUERY = getQueries(start).keyValue.SET_KEY_VALUE;
 
         update(con, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -434,8 +462,7 @@ public class GeneralQueries {
 
     public static KeyValueInfo getKeyValue(Start start, TenantIdentifier tenantIdentifier, String key)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT value, created_at_time FROM " + Config.getConfig(start).getKeyValueTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND name = ?";
+        String QUERY = getQueries(start).keyValue.GET_KEY_VALUE;
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -452,8 +479,7 @@ public class GeneralQueries {
     public static KeyValueInfo getKeyValue_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier,
                                                        String key)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT value, created_at_time FROM " + Config.getConfig(start).getKeyValueTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND name = ? FOR UPDATE";
+        String QUERY = getQueries(start).keyValue.GET_KEY_VALUE_FOR_UPDATE;
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -470,8 +496,7 @@ public class GeneralQueries {
     public static void deleteKeyValue_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier,
                                                   String key)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getKeyValueTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND name = ?";
+        String QUERY = getQueries(start).keyValue.DELETE_KEY_VALUE;
 
         update(con, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -787,78 +812,12 @@ public class GeneralQueries {
             }
 
         } else {
-            StringBuilder RECIPE_ID_CONDITION = new StringBuilder();
-            if (includeRecipeIds != null && includeRecipeIds.length > 0) {
-                RECIPE_ID_CONDITION.append("recipe_id IN (");
-                for (int i = 0; i < includeRecipeIds.length; i++) {
-
-                    RECIPE_ID_CONDITION.append("?");
-                    if (i != includeRecipeIds.length - 1) {
-                        // not the last element
-                        RECIPE_ID_CONDITION.append(",");
-                    }
-                }
-                RECIPE_ID_CONDITION.append(")");
-            }
-
-            if (timeJoined != null && userId != null) {
-                String recipeIdCondition = RECIPE_ID_CONDITION.toString();
-                if (!recipeIdCondition.equals("")) {
-                    recipeIdCondition = recipeIdCondition + " AND";
-                }
-                String timeJoinedOrderSymbol = timeJoinedOrder.equals("ASC") ? ">" : "<";
-                String QUERY = "SELECT DISTINCT primary_or_recipe_user_id, primary_or_recipe_user_time_joined FROM " + Config.getConfig(start).getUsersTable() + " WHERE "
-                        + recipeIdCondition + " (primary_or_recipe_user_time_joined " + timeJoinedOrderSymbol
-                        + " ? OR (primary_or_recipe_user_time_joined = ? AND primary_or_recipe_user_id <= ?)) AND app_id = ? AND tenant_id = ?"
-                        + " ORDER BY primary_or_recipe_user_time_joined " + timeJoinedOrder
-                        + ", primary_or_recipe_user_id DESC LIMIT ?";
-                usersFromQuery = execute(start, QUERY, pst -> {
-                    if (includeRecipeIds != null) {
-                        for (int i = 0; i < includeRecipeIds.length; i++) {
-                            // i+1 cause this starts with 1 and not 0
-                            pst.setString(i + 1, includeRecipeIds[i].toString());
-                        }
-                    }
-                    int baseIndex = includeRecipeIds == null ? 0 : includeRecipeIds.length;
-                    pst.setLong(baseIndex + 1, timeJoined);
-                    pst.setLong(baseIndex + 2, timeJoined);
-                    pst.setString(baseIndex + 3, userId);
-                    pst.setString(baseIndex + 4, tenantIdentifier.getAppId());
-                    pst.setString(baseIndex + 5, tenantIdentifier.getTenantId());
-                    pst.setInt(baseIndex + 6, limit);
-                }, result -> {
-                    List<String> temp = new ArrayList<>();
-                    while (result.next()) {
-                        temp.add(result.getString("primary_or_recipe_user_id"));
-                    }
-                    return temp;
-                });
-            } else {
-                String recipeIdCondition = RECIPE_ID_CONDITION.toString();
-                String QUERY = "SELECT DISTINCT primary_or_recipe_user_id, primary_or_recipe_user_time_joined FROM " + Config.getConfig(start).getUsersTable() + " WHERE ";
-                if (!recipeIdCondition.equals("")) {
-                    QUERY += recipeIdCondition + " AND";
-                }
-                QUERY += " app_id = ? AND tenant_id = ? ORDER BY primary_or_recipe_user_time_joined " + timeJoinedOrder
-                        + ", primary_or_recipe_user_id DESC LIMIT ?";
-                usersFromQuery = execute(start, QUERY, pst -> {
-                    if (includeRecipeIds != null) {
-                        for (int i = 0; i < includeRecipeIds.length; i++) {
-                            // i+1 cause this starts with 1 and not 0
-                            pst.setString(i + 1, includeRecipeIds[i].toString());
-                        }
-                    }
-                    int baseIndex = includeRecipeIds == null ? 0 : includeRecipeIds.length;
-                    pst.setString(baseIndex + 1, tenantIdentifier.getAppId());
-                    pst.setString(baseIndex + 2, tenantIdentifier.getTenantId());
-                    pst.setInt(baseIndex + 3, limit);
-                }, result -> {
-                    List<String> temp = new ArrayList<>();
-                    while (result.next()) {
-                        temp.add(result.getString("primary_or_recipe_user_id"));
-                    }
-                    return temp;
-                });
+            PaginationKey from = timeJoined != null && userId != null ? new PaginationKey(timeJoined, userId) : null;
+            usersFromQuery = new ArrayList<>();
+            // the pagination token that core passes us is the first user of the page, so it is included
+            for (PaginationKey key : getPrimaryUserPaginationKeys(start, tenantIdentifier, limit, timeJoinedOrder,
+                    includeRecipeIds, from, true)) {
+                usersFromQuery.add(key.userId);
             }
         }
 
@@ -883,6 +842,166 @@ public class GeneralQueries {
         return finalResult;
     }
 
+    /**
+     * Like {@link #getUsers} without search tags, but paginated with an opaque cursor (the last user of the
+     * previous page) instead of a token that is the first user of the next page.
+     */
+    public static Page<AuthRecipeUserInfo> getUsersPage(Start start, TenantIdentifier tenantIdentifier, int limit,
+                                                        String timeJoinedOrder,
+                                                        @Nullable RECIPE_ID[] includeRecipeIds,
+                                                        @Nullable String cursor)
+            throws SQLException, StorageQueryException {
+        PaginationKey after = null;
+        if (cursor != null) {
+            String[] keyParts = PaginationCursor.decode(cursor, 3);
+            if (!keyParts[0].equals(timeJoinedOrder)) {
+                throw new IllegalArgumentException("pagination cursor was created with a different timeJoinedOrder");
+            }
+            try {
+                after = new PaginationKey(Long.parseLong(keyParts[1]), keyParts[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid pagination cursor", e);
+            }
+        }
+
+        // one extra to know if there is a next page
+        List<PaginationKey> keys = getPrimaryUserPaginationKeys(start, tenantIdentifier, limit + 1,
+                timeJoinedOrder, includeRecipeIds, after, false);
+        String nextCursor = null;
+        if (keys.size() > limit) {
+            keys = keys.subList(0, limit);
+            PaginationKey last = keys.get(limit - 1);
+            nextCursor = PaginationCursor.encode(timeJoinedOrder, Long.toString(last.timeJoined), last.userId);
+        }
+
+        List<String> userIds = keys.stream().map(key -> key.userId).collect(Collectors.toList());
+        Map<String, AuthRecipeUserInfo> userIdToInfoMap = new HashMap<>();
+        for (AuthRecipeUserInfo user : getPrimaryUserInfoForUserIds(start, tenantIdentifier.toAppIdentifier(),
+                userIds)) {
+            userIdToInfoMap.put(user.getSupertokensUserId(), user);
+        }
+        List<AuthRecipeUserInfo> users = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            users.add(userIdToInfoMap.get(userId));
+        }
+        return new Page<>(users, nextCursor);
+    }
+
+    /**
+     * Returns up to {@code limit} distinct primary (or recipe) users of the tenant, ordered by
+     * primary_or_recipe_user_time_joined and then primary_or_recipe_user_id DESC, starting after (or at, if
+     * {@code includeFrom}) the given key.
+     * <p>
+     * All rows of a primary user share the same (primary_or_recipe_user_time_joined, primary_or_recipe_user_id), so
+     * they are next to each other in the pagination indexes. Instead of a SELECT DISTINCT, which has to sort
+     * everything before the page, we read rows with a seek on the index and drop the repeated ones here. Each query
+     * is a range scan of at most {@code limit} rows on a covering index, no matter how deep the page is. If more
+     * than one recipe is asked for, there is one such scan per recipe (on the recipe_id prefixed indexes) and the
+     * results are merged, since an IN on recipe_id would need a filesort.
+     */
+    private static List<PaginationKey> getPrimaryUserPaginationKeys(Start start, TenantIdentifier tenantIdentifier,
+                                                                     int limit, String timeJoinedOrder,
+                                                                     @Nullable RECIPE_ID[] includeRecipeIds,
+                                                                     @Nullable PaginationKey from,
+                                                                     boolean includeFrom)
+            throws SQLException, StorageQueryException {
+        Comparator<PaginationKey> order = timeJoinedOrder.equals("ASC")
+                ? Comparator.comparingLong((PaginationKey key) -> key.timeJoined)
+                : Comparator.comparingLong((PaginationKey key) -> key.timeJoined).reversed();
+        order = order.thenComparing(key -> key.userId, Comparator.reverseOrder());
+
+        List<RECIPE_ID> recipeIds = includeRecipeIds == null || includeRecipeIds.length == 0
+                ? Collections.singletonList(null)
+                : Arrays.asList(includeRecipeIds);
+
+        List<PaginationKey> result = new ArrayList<>();
+        PaginationKey after = from;
+        boolean inclusive = includeFrom;
+        while (result.size() < limit) {
+            int rowsToFetch = limit - result.size();
+            List<PaginationKey> rows = new ArrayList<>();
+            boolean exhausted = true;
+            for (RECIPE_ID recipeId : recipeIds) {
+                List<PaginationKey> recipeRows = getPaginationKeysAfter(start, tenantIdentifier, rowsToFetch,
+                        timeJoinedOrder, recipeId, after, inclusive);
+                exhausted = exhausted && recipeRows.size() < rowsToFetch;
+                rows.addAll(recipeRows);
+            }
+            rows.sort(order);
+            // only the first rowsToFetch of the merged rows are guaranteed to be in the right place, since every
+            // scan that came back full has at least that many rows up to its last one
+            if (rows.size() > rowsToFetch) {
+                rows = rows.subList(0, rowsToFetch);
+                exhausted = false;
+            }
+            for (PaginationKey row : rows) {
+                PaginationKey last = result.isEmpty() ? null : result.get(result.size() - 1);
+                if (last == null || !last.userId.equals(row.userId) || last.timeJoined != row.timeJoined) {
+                    result.add(row);
+                }
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+            if (exhausted || rows.isEmpty()) {
+                break;
+            }
+            after = rows.get(rows.size() - 1);
+            inclusive = false;
+        }
+        return result;
+    }
+
+    private static List<PaginationKey> getPaginationKeysAfter(Start start, TenantIdentifier tenantIdentifier,
+                                                              int limit, String timeJoinedOrder,
+                                                              @Nullable RECIPE_ID recipeId,
+                                                              @Nullable PaginationKey after, boolean inclusive)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT primary_or_recipe_user_id, primary_or_recipe_user_time_joined FROM "
+                + Config.getConfig(start).getUsersTable() + " WHERE "
+                + (recipeId != null ? "recipe_id = ? AND " : "") + "app_id = ? AND tenant_id = ?";
+        if (after != null) {
+            String timeJoinedOrderSymbol = timeJoinedOrder.equals("ASC") ? ">" : "<";
+            QUERY += " AND (primary_or_recipe_user_time_joined " + timeJoinedOrderSymbol + " ?"
+                    + " OR (primary_or_recipe_user_time_joined = ? AND primary_or_recipe_user_id "
+                    + (inclusive ? "<=" : "<") + " ?))";
+        }
+        QUERY += " ORDER BY primary_or_recipe_user_time_joined " + timeJoinedOrder
+                + ", primary_or_recipe_user_id DESC LIMIT ?";
+
+        return execute(start, QUERY, pst -> {
+            int index = 1;
+            if (recipeId != null) {
+                pst.setString(index++, recipeId.toString());
+            }
+            pst.setString(index++, tenantIdentifier.getAppId());
+            pst.setString(index++, tenantIdentifier.getTenantId());
+            if (after != null) {
+                pst.setLong(index++, after.timeJoined);
+                pst.setLong(index++, after.timeJoined);
+                pst.setString(index++, after.userId);
+            }
+            pst.setInt(index, limit);
+        }, result -> {
+            List<PaginationKey> keys = new ArrayList<>();
+            while (result.next()) {
+                keys.add(new PaginationKey(result.getLong("primary_or_recipe_user_time_joined"),
+                        result.getString("primary_or_recipe_user_id")));
+            }
+            return keys;
+        });
+    }
+
+    private static class PaginationKey {
+        final long timeJoined;
+        final String userId;
+
+        PaginationKey(long timeJoined, String userId) {
+            this.timeJoined = timeJoined;
+            this.userId = userId;
+        }
+    }
+
     public static void makePrimaryUser_Transaction(Start start, Connection sqlCon, AppIdentifier appIdentifier,
                                                    String userId)
             throws SQLException, StorageQueryException {
@@ -1220,12 +1339,15 @@ public class GeneralQueries {
             recipeUserIdsToFetch.add(user.userId);
         }
 
+        // these run at the same time if mysql_parallel_recipe_lookups is enabled
+        List<ParallelQueryExecutor.QueryTask<List<LoginMethod>>> recipeLookups = Arrays.asList(
+                () -> EmailPasswordQueries.getUsersInfoUsingIdList(start, recipeUserIdsToFetch, appIdentifier),
+                () -> ThirdPartyQueries.getUsersInfoUsingIdList(start, recipeUserIdsToFetch, appIdentifier),
+                () -> PasswordlessQueries.getUsersInfoUsingIdList(start, recipeUserIdsToFetch, appIdentifier));
         List<LoginMethod> loginMethods = new ArrayList<>();
-        loginMethods.addAll(
-                EmailPasswordQueries.getUsersInfoUsingIdList(start, recipeUserIdsToFetch, appIdentifier));
-        loginMethods.addAll(ThirdPartyQueries.getUsersInfoUsingIdList(start, recipeUserIdsToFetch, appIdentifier));
-        loginMethods.addAll(
-                PasswordlessQueries.getUsersInfoUsingIdList(start, recipeUserIdsToFetch, appIdentifier));
+        for (List<LoginMethod> recipeLoginMethods : ParallelQueryExecutor.runAll(start, recipeLookups)) {
+            loginMethods.addAll(recipeLoginMethods);
+        }
 
         Map<String, LoginMethod> recipeUserIdToLoginMethodMap = new HashMap<>();
         for (LoginMethod loginMethod : loginMethods) {
@@ -1513,8 +1635,22 @@ public class GeneralQueries {
         }
         String[] tableNames = getAllTablesInTheDatabase(start);
 
+        // tables like schema_version and tenant_configs_version are not per app
+        String COLUMNS_QUERY = "SELECT TABLE_NAME FROM information_schema.COLUMNS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND COLUMN_NAME = 'app_id'";
+        Set<String> tablesWithAppId = execute(start, COLUMNS_QUERY, NO_OP_SETTER, res -> {
+            Set<String> tables = new HashSet<>();
+            while (res.next()) {
+                tables.add(res.getString("TABLE_NAME"));
+            }
+            return tables;
+        });
+
         List<String> result = new ArrayList<>();
         for (String tableName : tableNames) {
+            if (!tablesWithAppId.contains(tableName)) {
+                continue;
+            }
             String QUERY = "SELECT 1 FROM " + tableName + " WHERE app_id = ?";
 
             boolean hasRows = execute(start, QUERY, pst -> {
@@ -25,8 +25,12 @@ import io.supertokens.pluginInterface.multitenancy.exceptions.DuplicateClientTyp
 import io.supertokens.pluginInterface.multitenancy.exceptions.DuplicateTenantException;
 import io.supertokens.pluginInterface.multitenancy.exceptions.DuplicateThirdPartyIdException;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storage.mysql.ConnectionPool;
 import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.cache.SessionInfoCache;
+import io.supertokens.storage.mysql.cache.UserRolesCache;
 import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.queries.multitenancy.TenantConfigCache;
 import io.supertokens.storage.mysql.queries.multitenancy.TenantConfigSQLHelper;
 import io.supertokens.storage.mysql.queries.multitenancy.ThirdPartyProviderClientSQLHelper;
 import io.supertokens.storage.mysql.queries.multitenancy.ThirdPartyProviderSQLHelper;
@@ -36,6 +40,8 @@ import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.HashMap;
 
+import static io.supertokens.storage.mysql.PreparedStatementValueSetter.NO_OP_SETTER;
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
 import static io.supertokens.storage.mysql.config.Config.getConfig;
 
@@ -107,6 +113,33 @@ public class MultitenancyQueries {
                 + ");";
     }
 
+    static String getQueryToCreateTenantConfigsVersionTable(Start start) {
+        // a single row (id = 1) whose version is bumped on every change to the tenant configs
+        return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getTenantConfigsVersionTable() + " ("
+                + "id TINYINT UNSIGNED NOT NULL,"
+                + "version BIGINT UNSIGNED NOT NULL,"
+                + "PRIMARY KEY (id)"
+                + ");";
+    }
+
+    private static void bumpTenantConfigsVersion_Transaction(Start start, Connection sqlCon) throws SQLException,
+            StorageQueryException {
+        String QUERY = "INSERT INTO " + getConfig(start).getTenantConfigsVersionTable() + " (id, version)"
+                + " VALUES (1, 1) ON DUPLICATE KEY UPDATE version = version + 1";
+        update(sqlCon, QUERY, NO_OP_SETTER);
+    }
+
+    private static long getTenantConfigsVersion(Start start, Connection con) throws SQLException,
+            StorageQueryException {
+        String QUERY = "SELECT version FROM " + getConfig(start).getTenantConfigsVersionTable() + " WHERE id = 1";
+        return execute(con, QUERY, NO_OP_SETTER, result -> {
+            if (result.next()) {
+                return result.getLong("version");
+            }
+            return 0L;
+        });
+    }
+
     private static void executeCreateTenantQueries(Start start, Connection sqlCon, TenantConfig tenantConfig)
             throws SQLException, StorageTransactionLogicException {
 
@@ -120,27 +153,24 @@ public class MultitenancyQueries {
             }
         }
 
-        for (ThirdPartyConfig.Provider provider : tenantConfig.thirdPartyConfig.providers) {
-            try {
-                ThirdPartyProviderSQLHelper.create(start, sqlCon, tenantConfig, provider);
-            } catch (SQLIntegrityConstraintViolationException e) {
-                if (start.isPrimaryKeyError(e.getMessage(), Config.getConfig(start).getTenantThirdPartyProvidersTable())) {
-                    throw new StorageTransactionLogicException(new DuplicateThirdPartyIdException());
-                } else {
-                    throw e;
-                }
+        // all providers are inserted before the clients since the clients table has a foreign key to the providers
+        try {
+            ThirdPartyProviderSQLHelper.createAll(start, sqlCon, tenantConfig);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            if (start.isPrimaryKeyError(e.getMessage(), Config.getConfig(start).getTenantThirdPartyProvidersTable())) {
+                throw new StorageTransactionLogicException(new DuplicateThirdPartyIdException());
+            } else {
+                throw e;
             }
+        }
 
-            for (ThirdPartyConfig.ProviderClient providerClient : provider.clients) {
-                try {
-                    ThirdPartyProviderClientSQLHelper.create(start, sqlCon, tenantConfig, provider, providerClient);
-                } catch (SQLIntegrityConstraintViolationException e) {
-                    if (start.isPrimaryKeyError(e.getMessage(), Config.getConfig(start).getTenantThirdPartyProviderClientsTable())) {
-                        throw new StorageTransactionLogicException(new DuplicateClientTypeException());
-                    } else {
-                        throw e;
-                    }
-                }
+        try {
+            ThirdPartyProviderClientSQLHelper.createAll(start, sqlCon, tenantConfig);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            if (start.isPrimaryKeyError(e.getMessage(), Config.getConfig(start).getTenantThirdPartyProviderClientsTable())) {
+                throw new StorageTransactionLogicException(new DuplicateClientTypeException());
+            } else {
+                throw e;
             }
         }
     }
@@ -151,6 +181,7 @@ public class MultitenancyQueries {
             {
                 try {
                     executeCreateTenantQueries(start, sqlCon, tenantConfig);
+                    bumpTenantConfigsVersion_Transaction(start, sqlCon);
                     sqlCon.commit();
                 } catch (SQLException throwables) {
                     throw new StorageTransactionLogicException(throwables);
@@ -163,19 +194,29 @@ public class MultitenancyQueries {
 
     public static boolean deleteTenantConfig(Start start, TenantIdentifier tenantIdentifier) throws StorageQueryException {
         try {
-            String QUERY = "DELETE FROM " + getConfig(start).getTenantConfigsTable()
-                    + " WHERE connection_uri_domain = ? AND app_id = ? AND tenant_id = ?";
-
-            int numRows = update(start, QUERY, pst -> {
-                pst.setString(1, tenantIdentifier.getConnectionUriDomain());
-                pst.setString(2, tenantIdentifier.getAppId());
-                pst.setString(3, tenantIdentifier.getTenantId());
-            });
+            return start.startTransaction(con -> {
+                Connection sqlCon = (Connection) con.getConnection();
+                try {
+                    String QUERY = "DELETE FROM " + getConfig(start).getTenantConfigsTable()
+                            + " WHERE connection_uri_domain = ? AND app_id = ? AND tenant_id = ?";
 
-            return numRows > 0;
+                    int numRows = update(sqlCon, QUERY, pst -> {
+                        pst.setString(1, tenantIdentifier.getConnectionUriDomain());
+                        pst.setString(2, tenantIdentifier.getAppId());
+                        pst.setString(3, tenantIdentifier.getTenantId());
+                    });
 
-        } catch (SQLException throwables) {
-            throw new StorageQueryException(throwables);
+                    if (numRows > 0) {
+                        bumpTenantConfigsVersion_Transaction(start, sqlCon);
+                    }
+                    sqlCon.commit();
+                    return numRows > 0;
+                } catch (SQLException throwables) {
+                    throw new StorageTransactionLogicException(throwables);
+                }
+            });
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
         }
     }
 
@@ -201,6 +242,7 @@ public class MultitenancyQueries {
                         executeCreateTenantQueries(start, sqlCon, tenantConfig);
                     }
 
+                    bumpTenantConfigsVersion_Transaction(start, sqlCon);
                     sqlCon.commit();
 
                 } catch (SQLException throwables) {
@@ -213,15 +255,26 @@ public class MultitenancyQueries {
     }
 
     public static TenantConfig[] getAllTenants(Start start) throws StorageQueryException {
-        try {
+        // Everything is read from the primary, so that we never cache configs from a replica that is behind under
+        // a version that is newer than them.
+        try (Connection con = ConnectionPool.getPrimaryConnectionForRead(start)) {
+            // The version is read before the configs. If they change in between, we cache newer configs under an
+            // older version, which only means that the next call reloads them.
+            long version = getTenantConfigsVersion(start, con);
+            TenantConfig[] cached = TenantConfigCache.get(start, version);
+            if (cached != null) {
+                return cached;
+            }
 
             // Map TenantIdentifier -> thirdPartyId -> clientType
-            HashMap<TenantIdentifier, HashMap<String, HashMap<String, ThirdPartyConfig.ProviderClient>>> providerClientsMap = ThirdPartyProviderClientSQLHelper.selectAll(start);
+            HashMap<TenantIdentifier, HashMap<String, HashMap<String, ThirdPartyConfig.ProviderClient>>> providerClientsMap = ThirdPartyProviderClientSQLHelper.selectAll(start, con);
 
             // Map (tenantIdentifier) -> thirdPartyId -> provider
-            HashMap<TenantIdentifier, HashMap<String, ThirdPartyConfig.Provider>> providerMap = ThirdPartyProviderSQLHelper.selectAll(start, providerClientsMap);
+            HashMap<TenantIdentifier, HashMap<String, ThirdPartyConfig.Provider>> providerMap = ThirdPartyProviderSQLHelper.selectAll(start, con, providerClientsMap);
 
-            return TenantConfigSQLHelper.selectAll(start, providerMap);
+            TenantConfig[] tenantConfigs = TenantConfigSQLHelper.selectAll(start, con, providerMap);
+            TenantConfigCache.set(start, version, tenantConfigs);
+            return tenantConfigs;
         } catch (SQLException throwables) {
             throw new StorageQueryException(throwables);
         }
@@ -279,6 +332,11 @@ public class MultitenancyQueries {
     public static void deleteTenantIdInTargetStorage(Start start, TenantIdentifier tenantIdentifier)
         throws StorageQueryException {
         try {
+            if (getConfig(start).isSessionInfoPartitioningEnabled()) {
+                // a partitioned session_info table has no foreign key to the tenants table
+                deleteSessionsOfTenant(start, tenantIdentifier);
+            }
+
             if (tenantIdentifier.getTenantId().equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
                 // Delete the app
                 String QUERY = "DELETE FROM " + getConfig(start).getAppsTable()
@@ -297,9 +355,30 @@ public class MultitenancyQueries {
                     pst.setString(2, tenantIdentifier.getTenantId());
                 });
             }
+            SessionInfoCache.invalidateAll(start);
+            UserRolesCache.invalidateAll(start);
 
         } catch (SQLException throwables) {
             throw new StorageQueryException(throwables);
         }
     }
+
+    private static void deleteSessionsOfTenant(Start start, TenantIdentifier tenantIdentifier)
+            throws SQLException, StorageQueryException {
+        if (tenantIdentifier.getTenantId().equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
+            String QUERY = "DELETE FROM " + getConfig(start).getSessionInfoTable() + " WHERE app_id = ?";
+
+            update(start, QUERY, pst -> {
+                pst.setString(1, tenantIdentifier.getAppId());
+            });
+        } else {
+            String QUERY = "DELETE FROM " + getConfig(start).getSessionInfoTable()
+                    + " WHERE app_id = ? AND tenant_id = ?";
+
+            update(start, QUERY, pst -> {
+                pst.setString(1, tenantIdentifier.getAppId());
+                pst.setString(2, tenantIdentifier.getTenantId());
+            });
+        }
+    }
 }
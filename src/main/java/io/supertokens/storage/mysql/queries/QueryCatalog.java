@@ -0,0 +1,258 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.queries;
+
+import io.supertokens.storage.mysql.ResourceDistributor;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.config.MySQLConfig;
+
+/**
+ * The SQL for the most frequently called queries, built once per Start after the config is loaded (and so with the
+ * configured table names / prefix). The query classes read these instead of concatenating table names on every
+ * call. Queries whose shape depends on the input (IN lists, search filters etc) are still built per call.
+ */
+public class QueryCatalog extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.queries.QueryCatalog";
+
+    public final Session session;
+    public final UserRoles userRoles;
+    public final UserMetadata userMetadata;
+    public final ActiveUsers activeUsers;
+    public final KeyValue keyValue;
+
+    private QueryCatalog(MySQLConfig config) {
+        this.session = new Session(config);
+        this.userRoles = new UserRoles(config);
+        this.userMetadata = new UserMetadata(config);
+        this.activeUsers = new ActiveUsers(config);
+        this.keyValue = new KeyValue(config);
+    }
+
+    public static void init(Start start) {
+        if (start.getResourceDistributor().getResource(RESOURCE_KEY) != null) {
+            return;
+        }
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new QueryCatalog(Config.getConfig(start)));
+    }
+
+    public static QueryCatalog getQueries(Start start) {
+        QueryCatalog catalog = (QueryCatalog) start.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (catalog == null) {
+            throw new IllegalStateException("Please call loadConfig() before calling getQueries()");
+        }
+        return catalog;
+    }
+
+    public static class Session {
+        public final String CREATE_NEW_SESSION;
+        public final String GET_SESSION_INFO_FOR_UPDATE;
+        public final String GET_PRIMARY_OR_RECIPE_USER_ID;
+        public final String UPDATE_SESSION_INFO;
+        public final String GET_NUMBER_OF_SESSIONS;
+        public final String DELETE_SESSIONS_OF_USER_IN_APP;
+        public final String DELETE_SESSIONS_OF_USER_IN_TENANT;
+        public final String GET_NON_EXPIRED_SESSION_HANDLES_FOR_USER_IN_TENANT;
+        public final String GET_NON_EXPIRED_SESSION_HANDLES_FOR_USER_IN_APP;
+        public final String UPDATE_SESSION_DATA;
+        public final String UPDATE_SESSION_JWT_PAYLOAD;
+        public final String UPDATE_SESSION_DATA_AND_JWT_PAYLOAD;
+        public final String GET_SESSION;
+        public final String ADD_ACCESS_TOKEN_SIGNING_KEY;
+        public final String GET_ACCESS_TOKEN_SIGNING_KEYS_FOR_UPDATE;
+        public final String REMOVE_ACCESS_TOKEN_SIGNING_KEYS_BEFORE;
+
+        private Session(MySQLConfig config) {
+            String sessionInfoTable = config.getSessionInfoTable();
+            String accessTokenSigningKeysTable = config.getAccessTokenSigningKeysTable();
+
+            CREATE_NEW_SESSION = "INSERT INTO " + sessionInfoTable
+                    + "(app_id, tenant_id, session_handle, user_id, refresh_token_hash_2, session_data, expires_at,"
+                    + " jwt_user_payload, created_at_time, use_static_key)" + " VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            GET_SESSION_INFO_FOR_UPDATE = "SELECT session_handle, user_id, refresh_token_hash_2, session_data, "
+                    + "expires_at, created_at_time, jwt_user_payload, use_static_key FROM " + sessionInfoTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND session_handle = ? FOR UPDATE";
+            GET_PRIMARY_OR_RECIPE_USER_ID = "SELECT primary_or_recipe_user_id FROM " + config.getUsersTable()
+                    + " WHERE app_id = ? AND user_id = ?";
+            UPDATE_SESSION_INFO = "UPDATE " + sessionInfoTable + " SET refresh_token_hash_2 = ?, expires_at = ?"
+                    + " WHERE app_id = ? AND tenant_id = ? AND session_handle = ?";
+            GET_NUMBER_OF_SESSIONS = "SELECT count(*) as num FROM " + sessionInfoTable
+                    + " WHERE app_id = ? AND tenant_id = ?";
+            DELETE_SESSIONS_OF_USER_IN_APP = "DELETE FROM " + sessionInfoTable + " WHERE app_id = ? AND user_id = ?";
+            DELETE_SESSIONS_OF_USER_IN_TENANT = "DELETE FROM " + sessionInfoTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND user_id = ?";
+            GET_NON_EXPIRED_SESSION_HANDLES_FOR_USER_IN_TENANT = "SELECT session_handle FROM " + sessionInfoTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND expires_at >= ?";
+            GET_NON_EXPIRED_SESSION_HANDLES_FOR_USER_IN_APP = "SELECT session_handle FROM " + sessionInfoTable
+                    + " WHERE app_id = ? AND user_id = ? AND expires_at >= ?";
+            String updateSessionWhere = " WHERE app_id = ? AND tenant_id = ? AND session_handle = ?";
+            UPDATE_SESSION_DATA = "UPDATE " + sessionInfoTable + " SET session_data = ?" + updateSessionWhere;
+            UPDATE_SESSION_JWT_PAYLOAD = "UPDATE " + sessionInfoTable + " SET jwt_user_payload = ?"
+                    + updateSessionWhere;
+            UPDATE_SESSION_DATA_AND_JWT_PAYLOAD = "UPDATE " + sessionInfoTable
+                    + " SET session_data = ?, jwt_user_payload = ?" + updateSessionWhere;
+            GET_SESSION = "SELECT sess.session_handle, sess.user_id, sess.refresh_token_hash_2, sess.session_data, "
+                    + "sess.expires_at, sess.created_at_time, sess.jwt_user_payload, sess.use_static_key, "
+                    + "users.primary_or_recipe_user_id FROM " + sessionInfoTable + " AS sess LEFT JOIN "
+                    + config.getUsersTable() + " as users ON sess.app_id = users.app_id AND sess.user_id = users"
+                    + ".user_id WHERE sess.app_id = ? AND sess.tenant_id = ? AND sess.session_handle = ?";
+            ADD_ACCESS_TOKEN_SIGNING_KEY = "INSERT INTO " + accessTokenSigningKeysTable
+                    + "(app_id, created_at_time, value) VALUES(?, ?, ?)";
+            GET_ACCESS_TOKEN_SIGNING_KEYS_FOR_UPDATE = "SELECT * FROM " + accessTokenSigningKeysTable
+                    + " WHERE app_id = ? FOR UPDATE";
+            REMOVE_ACCESS_TOKEN_SIGNING_KEYS_BEFORE = "DELETE FROM " + accessTokenSigningKeysTable
+                    + " WHERE app_id = ? AND created_at_time < ?";
+        }
+    }
+
+    public static class UserRoles {
+        public final String CREATE_NEW_ROLE_OR_DO_NOTHING_IF_EXISTS;
+        public final String ADD_PERMISSION_TO_ROLE_OR_DO_NOTHING_IF_EXISTS;
+        public final String DELETE_ROLE;
+        public final String DOES_ROLE_EXIST;
+        public final String DOES_ROLE_EXIST_FOR_UPDATE;
+        public final String GET_PERMISSIONS_FOR_ROLE;
+        public final String GET_PERMISSIONS_FOR_ALL_ROLES;
+        public final String GET_ROLES;
+        public final String ADD_ROLE_TO_USER;
+        public final String GET_ROLES_FOR_USER_IN_TENANT;
+        public final String GET_ROLES_FOR_USER_IN_APP;
+        public final String GET_ROLES_AND_PERMISSIONS_FOR_USER_IN_TENANT;
+        public final String DELETE_ROLE_FOR_USER;
+        public final String GET_USERS_FOR_ROLE;
+        public final String GET_USERS_FOR_ROLE_FIRST_PAGE;
+        public final String GET_USERS_FOR_ROLE_PAGE_AFTER;
+        public final String DELETE_PERMISSION_FOR_ROLE;
+        public final String DELETE_ALL_PERMISSIONS_FOR_ROLE;
+        public final String GET_ROLES_THAT_HAVE_PERMISSION;
+        public final String DELETE_ALL_ROLES_FOR_USER_IN_TENANT;
+        public final String DELETE_ALL_ROLES_FOR_USER_IN_APP;
+
+        private UserRoles(MySQLConfig config) {
+            String rolesTable = config.getRolesTable();
+            String rolePermissionsTable = config.getUserRolesPermissionsTable();
+            String userRolesTable = config.getUserRolesTable();
+
+            CREATE_NEW_ROLE_OR_DO_NOTHING_IF_EXISTS = "INSERT INTO " + rolesTable + "(app_id, role) "
+                    + "SELECT ?, ? WHERE NOT EXISTS ("
+                    + " SELECT app_id, role FROM " + rolesTable + " WHERE app_id = ? AND role = ?"
+                    + ")";
+            ADD_PERMISSION_TO_ROLE_OR_DO_NOTHING_IF_EXISTS = "INSERT INTO " + rolePermissionsTable
+                    + "(app_id, role, permission) "
+                    + "SELECT ?, ?, ? WHERE NOT EXISTS ("
+                    + " SELECT app_id, role, permission FROM " + rolePermissionsTable
+                    + " WHERE app_id = ? AND role = ? AND permission = ?"
+                    + ")";
+            DELETE_ROLE = "DELETE FROM " + rolesTable + " WHERE app_id = ? AND role = ? ;";
+            DOES_ROLE_EXIST = "SELECT 1 FROM " + rolesTable + " WHERE app_id = ? AND role = ?";
+            DOES_ROLE_EXIST_FOR_UPDATE = "SELECT 1 FROM " + rolesTable + " WHERE app_id = ? AND role = ? FOR UPDATE";
+            GET_PERMISSIONS_FOR_ROLE = "SELECT permission FROM " + rolePermissionsTable
+                    + " WHERE app_id = ? AND role = ?;";
+            GET_PERMISSIONS_FOR_ALL_ROLES = "SELECT role, permission FROM " + rolePermissionsTable
+                    + " WHERE app_id = ?";
+            GET_ROLES = "SELECT role FROM " + rolesTable + " WHERE app_id = ?";
+            ADD_ROLE_TO_USER = "INSERT INTO " + userRolesTable
+                    + "(app_id, tenant_id, user_id, role) VALUES(?, ?, ?, ?);";
+            GET_ROLES_FOR_USER_IN_TENANT = "SELECT role FROM " + userRolesTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? ;";
+            GET_ROLES_FOR_USER_IN_APP = "SELECT role FROM " + userRolesTable + " WHERE app_id = ? AND user_id = ? ;";
+            // both sides are read through their primary keys, and ordering by role keeps the rows of a role together
+            GET_ROLES_AND_PERMISSIONS_FOR_USER_IN_TENANT = "SELECT ur.role, rp.permission FROM " + userRolesTable
+                    + " AS ur LEFT JOIN " + rolePermissionsTable + " AS rp ON rp.app_id = ur.app_id AND rp.role = ur.role"
+                    + " WHERE ur.app_id = ? AND ur.tenant_id = ? AND ur.user_id = ? ORDER BY ur.role";
+            DELETE_ROLE_FOR_USER = "DELETE FROM " + userRolesTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND role = ? ;";
+            GET_USERS_FOR_ROLE = "SELECT user_id FROM " + userRolesTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND role = ? ";
+            // user_roles_role_index is (app_id, tenant_id, role) and, being a secondary index, also ends with the rest
+            // of the primary key (user_id). So these are range scans of at most one page on a covering index.
+            GET_USERS_FOR_ROLE_FIRST_PAGE = "SELECT user_id FROM " + userRolesTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND role = ? ORDER BY user_id LIMIT ?";
+            GET_USERS_FOR_ROLE_PAGE_AFTER = "SELECT user_id FROM " + userRolesTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND role = ? AND user_id > ? ORDER BY user_id LIMIT ?";
+            DELETE_PERMISSION_FOR_ROLE = "DELETE FROM " + rolePermissionsTable
+                    + " WHERE app_id = ? AND role = ? AND permission = ? ";
+            DELETE_ALL_PERMISSIONS_FOR_ROLE = "DELETE FROM " + rolePermissionsTable + " WHERE app_id = ? AND role = ? ";
+            GET_ROLES_THAT_HAVE_PERMISSION = "SELECT role FROM " + rolePermissionsTable
+                    + " WHERE app_id = ? AND permission = ? ";
+            DELETE_ALL_ROLES_FOR_USER_IN_TENANT = "DELETE FROM " + userRolesTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND user_id = ?";
+            DELETE_ALL_ROLES_FOR_USER_IN_APP = "DELETE FROM " + userRolesTable + " WHERE app_id = ? AND user_id = ?";
+        }
+    }
+
+    public static class UserMetadata {
+        public final String DELETE_USER_METADATA;
+        public final String SET_USER_METADATA;
+        public final String GET_USER_METADATA;
+        public final String GET_USER_METADATA_FOR_UPDATE;
+        public final String MERGE_USER_METADATA;
+
+        private UserMetadata(MySQLConfig config) {
+            String userMetadataTable = config.getUserMetadataTable();
+
+            DELETE_USER_METADATA = "DELETE FROM " + userMetadataTable + " WHERE app_id = ? AND user_id = ?";
+            SET_USER_METADATA = "INSERT INTO " + userMetadataTable + "(app_id, user_id, user_metadata) VALUES(?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE user_metadata = ?;";
+            GET_USER_METADATA = "SELECT user_metadata FROM " + userMetadataTable + " WHERE app_id = ? AND user_id = ?";
+            GET_USER_METADATA_FOR_UPDATE = GET_USER_METADATA + " FOR UPDATE";
+            // merging into '{}' drops the null values of the patch when the row is new
+            MERGE_USER_METADATA = "INSERT INTO " + userMetadataTable + "(app_id, user_id, user_metadata) "
+                    + "VALUES(?, ?, JSON_MERGE_PATCH('{}', ?)) "
+                    + "ON DUPLICATE KEY UPDATE user_metadata = JSON_MERGE_PATCH(user_metadata, ?)";
+        }
+    }
+
+    public static class ActiveUsers {
+        public final String COUNT_USERS_ACTIVE_SINCE;
+        public final String UPDATE_USER_LAST_ACTIVE;
+        public final String GET_LAST_ACTIVE_BY_USER_ID;
+        public final String DELETE_USER_ACTIVE;
+
+        private ActiveUsers(MySQLConfig config) {
+            String userLastActiveTable = config.getUserLastActiveTable();
+
+            COUNT_USERS_ACTIVE_SINCE = "SELECT COUNT(*) as total FROM " + userLastActiveTable
+                    + " WHERE app_id = ? AND last_active_time >= ?";
+            UPDATE_USER_LAST_ACTIVE = "INSERT INTO " + userLastActiveTable
+                    + "(app_id, user_id, last_active_time) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE last_active_time = ?";
+            GET_LAST_ACTIVE_BY_USER_ID = "SELECT last_active_time FROM " + userLastActiveTable
+                    + " WHERE app_id = ? AND user_id = ?";
+            DELETE_USER_ACTIVE = "DELETE FROM " + userLastActiveTable + " WHERE app_id = ? AND user_id = ?";
+        }
+    }
+
+    public static class KeyValue {
+        public final String SET_KEY_VALUE;
+        public final String GET_KEY_VALUE;
+        public final String GET_KEY_VALUE_FOR_UPDATE;
+        public final String DELETE_KEY_VALUE;
+
+        private KeyValue(MySQLConfig config) {
+            String keyValueTable = config.getKeyValueTable();
+
+            SET_KEY_VALUE = "INSERT INTO " + keyValueTable
+                    + "(app_id, tenant_id, name, value, created_at_time) VALUES(?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE value = ?, created_at_time = ?";
+            GET_KEY_VALUE = "SELECT value, created_at_time FROM " + keyValueTable
+                    + " WHERE app_id = ? AND tenant_id = ? AND name = ?";
+            GET_KEY_VALUE_FOR_UPDATE = GET_KEY_VALUE + " FOR UPDATE";
+            DELETE_KEY_VALUE = "DELETE FROM " + keyValueTable + " WHERE app_id = ? AND tenant_id = ? AND name = ?";
+        }
+    }
+}
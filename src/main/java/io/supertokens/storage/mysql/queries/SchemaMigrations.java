@@ -0,0 +1,209 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.queries;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.output.Logging;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.supertokens.storage.mysql.PreparedStatementValueSetter.NO_OP_SETTER;
+import static io.supertokens.storage.mysql.ProcessState.PROCESS_STATE.APPLYING_SCHEMA_MIGRATION;
+import static io.supertokens.storage.mysql.ProcessState.getInstance;
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
+
+/**
+ * Brings the schema of an existing database up to date. Tables are still created by
+ * GeneralQueries.createTablesIfNotExists using the latest definitions, but changes to tables that already exist
+ * (like a new index) need a migration here, else they never reach existing deployments.
+ *
+ * The version of the schema is stored in the schema_version table, with one row per applied migration.
+ */
+public class SchemaMigrations {
+
+    // how long a core waits for another one (sharing the same database) to finish migrating
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+
+    // returned by MySQL when an ALTER does not support the requested ALGORITHM / LOCK
+    private static final int ER_ALTER_OPERATION_NOT_SUPPORTED = 1845;
+    private static final int ER_ALTER_OPERATION_NOT_SUPPORTED_REASON = 1846;
+
+    /*
+     * The migrations in the order in which they are applied. A released migration must never be changed or
+     * removed, and each one must be safe to run again since the core may be stopped half way through it.
+     */
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Add missing indexes on all_auth_recipe_users", (start, con) -> {
+                String table = Config.getConfig(start).getUsersTable();
+                Set<String> indexes = getIndexesOfTable(con, table);
+                createIndexIfNotExists(start, con, indexes, "all_auth_recipe_users_pagination_index1",
+                        GeneralQueries.getQueryToCreateUserPaginationIndex1(start));
+                createIndexIfNotExists(start, con, indexes, "all_auth_recipe_users_pagination_index2",
+                        GeneralQueries.getQueryToCreateUserPaginationIndex2(start));
+                createIndexIfNotExists(start, con, indexes, "all_auth_recipe_users_pagination_index3",
+                        GeneralQueries.getQueryToCreateUserPaginationIndex3(start));
+                createIndexIfNotExists(start, con, indexes, "all_auth_recipe_users_pagination_index4",
+                        GeneralQueries.getQueryToCreateUserPaginationIndex4(start));
+                createIndexIfNotExists(start, con, indexes, "all_auth_recipe_users_primary_user_id_index",
+                        GeneralQueries.getQueryToCreatePrimaryUserId(start));
+                createIndexIfNotExists(start, con, indexes, "all_auth_recipe_users_recipe_id_index",
+                        GeneralQueries.getQueryToCreateRecipeIdIndex(start));
+            })
+    );
+
+    static String getQueryToCreateSchemaVersionTable(Start start) {
+        return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getSchemaVersionTable() + " ("
+                + "version INT UNSIGNED NOT NULL,"
+                + "description VARCHAR(256) NOT NULL,"
+                + "applied_at BIGINT UNSIGNED NOT NULL,"
+                + "PRIMARY KEY (version)"
+                + ");";
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    public static int getCurrentVersion(Start start) throws SQLException, StorageQueryException {
+        try (Connection con = ConnectionPool.getPrimaryConnectionForRead(start)) {
+            return getCurrentVersion(start, con);
+        }
+    }
+
+    private static int getCurrentVersion(Start start, Connection con) throws SQLException, StorageQueryException {
+        String QUERY = "SELECT MAX(version) AS version FROM " + Config.getConfig(start).getSchemaVersionTable();
+        return execute(con, QUERY, NO_OP_SETTER, result -> {
+            if (result.next()) {
+                return result.getInt("version");
+            }
+            return 0;
+        });
+    }
+
+    /**
+     * Applies the migrations that are newer than the current schema version. This holds a named lock (GET_LOCK)
+     * while doing so, so that cores which share the database and start at the same time do not run the same
+     * migration concurrently. The lock is per database and table prefix.
+     */
+    public static void migrate(Start start) throws SQLException, StorageQueryException {
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            if (getCurrentVersion(start, con) >= getLatestVersion()) {
+                return;
+            }
+
+            String lockName = Config.getConfig(start).getSchemaVersionTable();
+            boolean locked = execute(con, "SELECT GET_LOCK(MD5(CONCAT(DATABASE(), '.', ?)), ?) AS locked",
+                    pst -> {
+                        pst.setString(1, lockName);
+                        pst.setInt(2, LOCK_TIMEOUT_SECONDS);
+                    }, result -> result.next() && result.getInt("locked") == 1);
+            if (!locked) {
+                throw new SQLException("Timed out waiting for another core to finish migrating the schema");
+            }
+            try {
+                // another core may have applied some migrations while we waited for the lock
+                int currentVersion = getCurrentVersion(start, con);
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version <= currentVersion) {
+                        continue;
+                    }
+                    getInstance(start).addState(APPLYING_SCHEMA_MIGRATION, null);
+                    Logging.info(start, "Applying schema migration " + migration.version + ": "
+                            + migration.description, true);
+                    migration.step.apply(start, con);
+
+                    String QUERY = "INSERT INTO " + Config.getConfig(start).getSchemaVersionTable()
+                            + "(version, description, applied_at) VALUES(?, ?, ?)";
+                    update(con, QUERY, pst -> {
+                        pst.setInt(1, migration.version);
+                        pst.setString(2, migration.description);
+                        pst.setLong(3, System.currentTimeMillis());
+                    });
+                }
+            } finally {
+                execute(con, "SELECT RELEASE_LOCK(MD5(CONCAT(DATABASE(), '.', ?)))",
+                        pst -> pst.setString(1, lockName), result -> null);
+            }
+        }
+    }
+
+    private static Set<String> getIndexesOfTable(Connection con, String table)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        return execute(con, QUERY, pst -> pst.setString(1, table), result -> {
+            Set<String> indexes = new HashSet<>();
+            while (result.next()) {
+                indexes.add(result.getString("INDEX_NAME").toLowerCase());
+            }
+            return indexes;
+        });
+    }
+
+    /**
+     * Runs a CREATE INDEX query (as returned by the getQueryToCreate*Index methods) if the index does not exist
+     * yet. The index is built online (ALGORITHM=INPLACE, LOCK=NONE) so that reads and writes to the table are
+     * not blocked while it is built. If the server cannot do that for this index, it is built the default way.
+     */
+    private static void createIndexIfNotExists(Start start, Connection con, Set<String> existingIndexes,
+                                               String indexName, String createIndexQuery)
+            throws SQLException, StorageQueryException {
+        if (existingIndexes.contains(indexName.toLowerCase())) {
+            return;
+        }
+        String QUERY = createIndexQuery.trim();
+        if (QUERY.endsWith(";")) {
+            QUERY = QUERY.substring(0, QUERY.length() - 1);
+        }
+        try {
+            update(con, QUERY + " ALGORITHM=INPLACE LOCK=NONE", NO_OP_SETTER);
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_ALTER_OPERATION_NOT_SUPPORTED
+                    && e.getErrorCode() != ER_ALTER_OPERATION_NOT_SUPPORTED_REASON) {
+                throw e;
+            }
+            Logging.warn(start, "Could not create index " + indexName + " online, creating it with the default "
+                    + "algorithm and locking instead: " + e.getMessage());
+            update(con, QUERY, NO_OP_SETTER);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MigrationStep {
+        void apply(Start start, Connection con) throws SQLException, StorageQueryException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final MigrationStep step;
+
+        Migration(int version, String description, MigrationStep step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+}
@@ -24,39 +24,172 @@ import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.session.SessionInfo;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.PreparedStatementValueSetter;
+import io.supertokens.storage.mysql.ResultSetValueExtractor;
 import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.cache.CachedSessionInfo;
+import io.supertokens.storage.mysql.cache.SessionInfoCache;
 import io.supertokens.storage.mysql.config.Config;
+import org.jetbrains.annotations.TestOnly;
 
 import javax.annotation.Nullable;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 
+import static io.supertokens.storage.mysql.PreparedStatementValueSetter.NO_OP_SETTER;
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
+import static io.supertokens.storage.mysql.queries.QueryCatalog.getQueries;
 import static java.lang.System.currentTimeMillis;
 
 public class SessionQueries {
+
+    private static final String SESSION_INFO_MAXVALUE_PARTITION = "p_max";
+
+    private static final String EXPIRED_SESSIONS_CONDITION = "expires_at <= ?";
+
+    private static final DateTimeFormatter SESSION_INFO_PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private static final String SESSION_INFO_COLUMNS = "app_id VARCHAR(64) DEFAULT 'public',"
+            + "tenant_id VARCHAR(64) DEFAULT 'public',"
+            + "session_handle VARCHAR(255) NOT NULL,"
+            + "user_id VARCHAR(128) NOT NULL,"
+            + "refresh_token_hash_2 VARCHAR(128) NOT NULL,"
+            + "session_data TEXT,"
+            + "expires_at BIGINT UNSIGNED NOT NULL,"
+            + "created_at_time BIGINT UNSIGNED NOT NULL,"
+            + "jwt_user_payload TEXT,"
+            + "use_static_key BOOLEAN NOT NULL,";
+
     static String getQueryToCreateSessionInfoTable(Start start) {
+        if (Config.getConfig(start).isSessionInfoPartitioningEnabled()) {
+            return getQueryToCreatePartitionedSessionInfoTable(start);
+        }
         return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getSessionInfoTable() + " ("
-                + "app_id VARCHAR(64) DEFAULT 'public',"
-                + "tenant_id VARCHAR(64) DEFAULT 'public',"
-                + "session_handle VARCHAR(255) NOT NULL,"
-                + "user_id VARCHAR(128) NOT NULL,"
-                + "refresh_token_hash_2 VARCHAR(128) NOT NULL,"
-                + "session_data TEXT,"
-                + "expires_at BIGINT UNSIGNED NOT NULL,"
-                + "created_at_time BIGINT UNSIGNED NOT NULL,"
-                + "jwt_user_payload TEXT,"
-                + "use_static_key BOOLEAN NOT NULL,"
+                + SESSION_INFO_COLUMNS
                 + "PRIMARY KEY(app_id, tenant_id, session_handle),"
                 + "FOREIGN KEY (app_id, tenant_id)"
                 + " REFERENCES " + Config.getConfig(start).getTenantsTable() + "(app_id, tenant_id) ON DELETE CASCADE"
                 + " );";
     }
 
+    /*
+     * The partitioned table has one partition per day (UTC) of expires_at, so that expired sessions can be removed by
+     * dropping whole partitions. MySQL requires the partitioning column to be part of every unique key and does not
+     * support foreign keys on partitioned tables. So expires_at is part of the primary key, and sessions of a deleted
+     * tenant are removed explicitly in MultitenancyQueries.deleteTenantIdInTargetStorage.
+     *
+     * This has two costs. session_handle alone is no longer unique, so a duplicate handle with a different expiry is
+     * not rejected (handles are random UUIDs generated by the core). And lookups by session_handle have no expires_at
+     * predicate to prune on, so they probe every partition. That is why mysql_session_info_partitions_ahead_days
+     * defaults to a month rather than the refresh token validity.
+     */
+    private static String getQueryToCreatePartitionedSessionInfoTable(Start start) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        int daysAhead = Config.getConfig(start).getSessionInfoPartitionsAheadDays();
+
+        // the first partition holds everything that expired before today
+        List<String> partitions = new ArrayList<>();
+        for (LocalDate day = today.minusDays(1); !day.isAfter(today.plusDays(daysAhead)); day = day.plusDays(1)) {
+            partitions.add(getSessionInfoPartitionDefinition(day));
+        }
+        partitions.add("PARTITION " + SESSION_INFO_MAXVALUE_PARTITION + " VALUES LESS THAN MAXVALUE");
+
+        return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getSessionInfoTable() + " ("
+                + SESSION_INFO_COLUMNS
+                + "PRIMARY KEY(app_id, tenant_id, session_handle, expires_at)"
+                + ") PARTITION BY RANGE (expires_at) (" + String.join(", ", partitions) + ");";
+    }
+
+    private static long getSessionInfoPartitionUpperBound(LocalDate day) {
+        return day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static String getSessionInfoPartitionDefinition(LocalDate day) {
+        return "PARTITION " + day.format(SESSION_INFO_PARTITION_NAME) + " VALUES LESS THAN ("
+                + getSessionInfoPartitionUpperBound(day) + ")";
+    }
+
+    /**
+     * Drops the partitions of session_info that only contain expired sessions, and adds daily partitions so that
+     * they cover mysql_session_info_partitions_ahead_days days from today. Does nothing if session_info is not
+     * partitioned.
+     *
+     * @return the number of dropped partitions
+     */
+    public static int maintainSessionInfoPartitions(Start start) throws SQLException, StorageQueryException {
+        String table = Config.getConfig(start).getSessionInfoTable();
+        String QUERY = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL"
+                + " ORDER BY PARTITION_ORDINAL_POSITION";
+
+        // the partitions must be read from the primary, since that is where they are changed
+        List<String[]> partitions;
+        try (Connection con = ConnectionPool.getPrimaryConnectionForRead(start)) {
+            partitions = execute(con, QUERY, pst -> pst.setString(1, table), result -> {
+                List<String[]> rows = new ArrayList<>();
+                while (result.next()) {
+                    rows.add(new String[]{result.getString("PARTITION_NAME"),
+                            result.getString("PARTITION_DESCRIPTION")});
+                }
+                return rows;
+            });
+        }
+
+        long now = currentTimeMillis();
+        List<String> expiredPartitions = new ArrayList<>();
+        long lastUpperBound = 0;
+        boolean hasMaxValuePartition = false;
+        for (String[] partition : partitions) {
+            if (partition[0].equals(SESSION_INFO_MAXVALUE_PARTITION)) {
+                hasMaxValuePartition = true;
+                continue;
+            }
+            long upperBound = Long.parseLong(partition[1]);
+            if (upperBound <= now) {
+                expiredPartitions.add(partition[0]);
+            }
+            lastUpperBound = Math.max(lastUpperBound, upperBound);
+        }
+
+        if (!hasMaxValuePartition) {
+            // not partitioned, or not partitioned by us
+            return 0;
+        }
+
+        if (!expiredPartitions.isEmpty()) {
+            update(start, "ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", expiredPartitions),
+                    NO_OP_SETTER);
+        }
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate lastDay = today.plusDays(Config.getConfig(start).getSessionInfoPartitionsAheadDays());
+        // the last partition ends at the start of the day after the one it is named after
+        LocalDate firstNewDay = Instant.ofEpochMilli(lastUpperBound).atZone(ZoneOffset.UTC).toLocalDate();
+        if (firstNewDay.isBefore(today)) {
+            firstNewDay = today;
+        }
+        List<String> newPartitions = new ArrayList<>();
+        for (LocalDate day = firstNewDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            newPartitions.add(getSessionInfoPartitionDefinition(day));
+        }
+        if (!newPartitions.isEmpty()) {
+            newPartitions.add("PARTITION " + SESSION_INFO_MAXVALUE_PARTITION + " VALUES LESS THAN MAXVALUE");
+            update(start, "ALTER TABLE " + table + " REORGANIZE PARTITION " + SESSION_INFO_MAXVALUE_PARTITION
+                    + " INTO (" + String.join(", ", newPartitions) + ")", NO_OP_SETTER);
+        }
+
+        return expiredPartitions.size();
+    }
+
     static String getQueryToCreateAccessTokenSigningKeysTable(Start start) {
         return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getAccessTokenSigningKeysTable() + " ("
                 + "app_id VARCHAR(64) DEFAULT 'public',"
@@ -78,9 +211,7 @@ public class SessionQueries {
                                         JsonObject userDataInDatabase, long expiry, JsonObject userDataInJWT,
                                         long createdAtTime, boolean useStaticKey)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getSessionInfoTable()
-                + "(app_id, tenant_id, session_handle, user_id, refresh_token_hash_2, session_data, expires_at,"
-                + " jwt_user_payload, created_at_time, use_static_key)" + " VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String QUERY = getQueries(start).session.CREATE_NEW_SESSION;
 
         update(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -102,11 +233,7 @@ public class SessionQueries {
         // we do this as two separate queries and not one query with left join cause psql does not
         // support left join with for update if the right table returns null.
 
-        String QUERY =
-                "SELECT session_handle, user_id, refresh_token_hash_2, session_data, " +
-                        "expires_at, created_at_time, jwt_user_payload, use_static_key FROM " +
-                        Config.getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND session_handle = ? FOR UPDATE";
+        String QUERY = getQueries(start).session.GET_SESSION_INFO_FOR_UPDATE;
         SessionInfo sessionInfo = execute(con, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
@@ -122,8 +249,7 @@ public class SessionQueries {
             return null;
         }
 
-        QUERY = "SELECT primary_or_recipe_user_id FROM " + Config.getConfig(start).getUsersTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        QUERY = getQueries(start).session.GET_PRIMARY_OR_RECIPE_USER_ID;
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -143,9 +269,7 @@ public class SessionQueries {
                                                      String sessionHandle,
                                                      String refreshTokenHash2, long expiry)
             throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + Config.getConfig(start).getSessionInfoTable()
-                + " SET refresh_token_hash_2 = ?, expires_at = ?"
-                + " WHERE app_id = ? AND tenant_id = ? AND session_handle = ?";
+        String QUERY = getQueries(start).session.UPDATE_SESSION_INFO;
 
         update(con, QUERY, pst -> {
             pst.setString(1, refreshTokenHash2);
@@ -154,12 +278,12 @@ public class SessionQueries {
             pst.setString(4, tenantIdentifier.getTenantId());
             pst.setString(5, sessionHandle);
         });
+        SessionInfoCache.invalidate_Transaction(start, con, tenantIdentifier, sessionHandle);
     }
 
     public static int getNumberOfSessions(Start start, TenantIdentifier tenantIdentifier)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT count(*) as num FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND tenant_id = ?";
+        String QUERY = getQueries(start).session.GET_NUMBER_OF_SESSIONS;
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -188,56 +312,59 @@ public class SessionQueries {
             }
         }
 
-        return update(start, QUERY.toString(), pst -> {
+        int numRows = update(start, QUERY.toString(), pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
             for (int i = 0; i < sessionHandles.length; i++) {
                 pst.setString(i + 3, sessionHandles[i]);
             }
         });
+        for (String sessionHandle : sessionHandles) {
+            SessionInfoCache.invalidate(start, tenantIdentifier, sessionHandle);
+        }
+        return numRows;
     }
 
     public static void deleteSessionsOfUser(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).session.DELETE_SESSIONS_OF_USER_IN_APP;
 
-        update(start, QUERY.toString(), pst -> {
+        update(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
         });
+        SessionInfoCache.invalidateUser(start, appIdentifier, userId);
     }
 
     public static void deleteSessionsOfUser_Transaction(Connection sqlCon, Start start, AppIdentifier appIdentifier,
                                                         String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).session.DELETE_SESSIONS_OF_USER_IN_APP;
 
-        update(sqlCon, QUERY.toString(), pst -> {
+        update(sqlCon, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
         });
+        SessionInfoCache.invalidateUser_Transaction(start, sqlCon, appIdentifier, userId);
     }
 
     public static boolean deleteSessionsOfUser(Start start, TenantIdentifier tenantIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).session.DELETE_SESSIONS_OF_USER_IN_TENANT;
 
-        int numRows = update(start, QUERY.toString(), pst -> {
+        int numRows = update(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
             pst.setString(3, userId);
         });
+        SessionInfoCache.invalidateUser(start, tenantIdentifier.toAppIdentifier(), userId);
         return numRows > 0;
     }
 
     public static String[] getAllNonExpiredSessionHandlesForUser(Start start, TenantIdentifier tenantIdentifier,
                                                                  String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT session_handle FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND expires_at >= ?";
+        String QUERY = getQueries(start).session.GET_NON_EXPIRED_SESSION_HANDLES_FOR_USER_IN_TENANT;
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
@@ -260,8 +387,7 @@ public class SessionQueries {
     public static String[] getAllNonExpiredSessionHandlesForUser(Start start, AppIdentifier appIdentifier,
                                                                  String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT session_handle FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE app_id = ? AND user_id = ? AND expires_at >= ?";
+        String QUERY = getQueries(start).session.GET_NON_EXPIRED_SESSION_HANDLES_FOR_USER_IN_APP;
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -280,10 +406,16 @@ public class SessionQueries {
         });
     }
 
-    public static void deleteAllExpiredSessions(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getSessionInfoTable() + " WHERE expires_at <= ?";
+    public static int deleteAllExpiredSessions(Start start) throws SQLException, StorageQueryException {
+        long now = currentTimeMillis();
+        return ExpiredRowsSweeper.sweep(start, Config.getConfig(start).getSessionInfoTable(),
+                EXPIRED_SESSIONS_CONDITION, "expires_at", pst -> pst.setLong(1, now));
+    }
 
-        update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
+    @TestOnly
+    public static String getQueryToDeleteExpiredSessionsChunk(Start start) {
+        return ExpiredRowsSweeper.getQueryToDeleteChunk(Config.getConfig(start).getSessionInfoTable(),
+                EXPIRED_SESSIONS_CONDITION, "expires_at", Config.getConfig(start).getExpiredRowsDeleteBatchSize());
     }
 
     public static int updateSession(Start start, TenantIdentifier tenantIdentifier, String sessionHandle,
@@ -294,18 +426,16 @@ public class SessionQueries {
             throw new SQLException("sessionData and jwtPayload are null when updating session info");
         }
 
-        String QUERY = "UPDATE " + Config.getConfig(start).getSessionInfoTable() + " SET";
-        boolean somethingBefore = false;
-        if (sessionData != null) {
-            QUERY += " session_data = ?";
-            somethingBefore = true;
+        String QUERY;
+        if (sessionData != null && jwtPayload != null) {
+            QUERY = getQueries(start).session.UPDATE_SESSION_DATA_AND_JWT_PAYLOAD;
+        } else if (sessionData != null) {
+            QUERY = getQueries(start).session.UPDATE_SESSION_DATA;
+        } else {
+            QUERY = getQueries(start).session.UPDATE_SESSION_JWT_PAYLOAD;
         }
-        if (jwtPayload != null) {
-            QUERY += (somethingBefore ? "," : "") + " jwt_user_payload = ?";
-        }
-        QUERY += " WHERE app_id = ? AND tenant_id = ? AND session_handle = ?";
 
-        return update(start, QUERY, pst -> {
+        int numRows = update(start, QUERY, pst -> {
             int currIndex = 1;
             if (sessionData != null) {
                 pst.setString(currIndex, sessionData.toString());
@@ -319,39 +449,58 @@ public class SessionQueries {
             pst.setString(currIndex++, tenantIdentifier.getTenantId());
             pst.setString(currIndex, sessionHandle);
         });
+        SessionInfoCache.invalidate(start, tenantIdentifier, sessionHandle);
+        return numRows;
     }
 
     public static SessionInfo getSession(Start start, TenantIdentifier tenantIdentifier, String sessionHandle)
             throws SQLException, StorageQueryException {
-        String QUERY =
-                "SELECT sess.session_handle, sess.user_id, sess.refresh_token_hash_2, sess.session_data, sess" +
-                        ".expires_at, "
-                +
-                        "sess.created_at_time, sess.jwt_user_payload, sess.use_static_key, users" +
-                        ".primary_or_recipe_user_id FROM " +
-                        Config.getConfig(start).getSessionInfoTable()
-                + " AS sess LEFT JOIN " + Config.getConfig(start).getUsersTable() +
-                        " as users ON sess.app_id = users.app_id AND sess.user_id = users.user_id WHERE sess.app_id =" +
-                        " ? AND " +
-                        "sess.tenant_id = ? AND sess.session_handle = ?";
-        return execute(start, QUERY, pst -> {
-            pst.setString(1, tenantIdentifier.getAppId());
-            pst.setString(2, tenantIdentifier.getTenantId());
-            pst.setString(3, sessionHandle);
-        }, result -> {
-            if (result.next()) {
-                return SessionInfoRowMapper.getInstance().mapOrThrow(result, true);
+        CachedSessionInfo sessionInfo = SessionInfoCache.get(start, tenantIdentifier, sessionHandle);
+        if (sessionInfo == null) {
+            long ticket = SessionInfoCache.getTicket(start, tenantIdentifier, sessionHandle);
+
+            String QUERY = getQueries(start).session.GET_SESSION;
+            PreparedStatementValueSetter setter = pst -> {
+                pst.setString(1, tenantIdentifier.getAppId());
+                pst.setString(2, tenantIdentifier.getTenantId());
+                pst.setString(3, sessionHandle);
+            };
+            ResultSetValueExtractor<CachedSessionInfo> mapper = result -> {
+                if (result.next()) {
+                    return new CachedSessionInfo(result.getString("session_handle"),
+                            result.getString("primary_or_recipe_user_id"), result.getString("user_id"),
+                            result.getString("refresh_token_hash_2"), result.getString("session_data"),
+                            result.getLong("expires_at"), result.getString("jwt_user_payload"),
+                            result.getLong("created_at_time"), result.getBoolean("use_static_key"));
+                }
+                return null;
+            };
+            if (SessionInfoCache.isEnabled(start)) {
+                // a row read from a lagging replica could be an already revoked session, which would then be served
+                // from the cache for the whole TTL
+                try (Connection con = ConnectionPool.getPrimaryConnectionForRead(start)) {
+                    sessionInfo = execute(con, QUERY, setter, mapper);
+                }
+            } else {
+                sessionInfo = execute(start, QUERY, setter, mapper);
             }
-            return null;
-        });
+            if (sessionInfo == null) {
+                return null;
+            }
+            SessionInfoCache.put(start, tenantIdentifier, sessionInfo, ticket);
+        }
+
+        try {
+            return sessionInfo.toSessionInfo();
+        } catch (Exception e) {
+            throw new StorageQueryException(e);
+        }
     }
 
     public static void addAccessTokenSigningKey_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                             long createdAtTime,
                                                             String value) throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getAccessTokenSigningKeysTable()
-                + "(app_id, created_at_time, value)"
-                + " VALUES(?, ?, ?)";
+        String QUERY = getQueries(start).session.ADD_ACCESS_TOKEN_SIGNING_KEY;
 
         update(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -363,8 +512,7 @@ public class SessionQueries {
     public static KeyValueInfo[] getAccessTokenSigningKeys_Transaction(Start start, Connection con,
                                                                        AppIdentifier appIdentifier)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getAccessTokenSigningKeysTable()
-                + " WHERE app_id = ? FOR UPDATE";
+        String QUERY = getQueries(start).session.GET_ACCESS_TOKEN_SIGNING_KEYS_FOR_UPDATE;
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -383,8 +531,7 @@ public class SessionQueries {
 
     public static void removeAccessTokenSigningKeysBefore(Start start, AppIdentifier appIdentifier, long time)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getAccessTokenSigningKeysTable()
-                + " WHERE app_id = ? AND created_at_time < ?";
+        String QUERY = getQueries(start).session.REMOVE_ACCESS_TOKEN_SIGNING_KEYS_BEFORE;
 
         update(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -260,14 +260,14 @@ public class TOTPQueries {
 
     public static int removeExpiredCodes(Start start, TenantIdentifier tenantIdentifier, long expiredBefore)
             throws StorageQueryException, SQLException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getTotpUsedCodesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND expiry_time_ms < ?;";
-
-        return update(start, QUERY, pst -> {
-            pst.setString(1, tenantIdentifier.getAppId());
-            pst.setString(2, tenantIdentifier.getTenantId());
-            pst.setLong(3, expiredBefore);
-        });
+        String where = "app_id = ? AND tenant_id = ? AND expiry_time_ms < ?";
+
+        return ExpiredRowsSweeper.sweep(start, Config.getConfig(start).getTotpUsedCodesTable(), where, "expiry_time_ms",
+                pst -> {
+                    pst.setString(1, tenantIdentifier.getAppId());
+                    pst.setString(2, tenantIdentifier.getTenantId());
+                    pst.setLong(3, expiredBefore);
+                });
     }
 
     private static class TOTPDeviceRowMapper implements RowMapper<TOTPDevice, ResultSet> {
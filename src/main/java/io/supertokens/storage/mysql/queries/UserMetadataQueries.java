@@ -26,10 +26,11 @@ import io.supertokens.storage.mysql.config.Config;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
-import static io.supertokens.storage.mysql.config.Config.getConfig;
+import static io.supertokens.storage.mysql.queries.QueryCatalog.getQueries;
 
 public class UserMetadataQueries {
 
@@ -39,7 +40,8 @@ public class UserMetadataQueries {
         return "CREATE TABLE IF NOT EXISTS " + tableName + " ("
                 + "app_id VARCHAR(64) DEFAULT 'public',"
                 + "user_id VARCHAR(128) NOT NULL,"
-                + "user_metadata TEXT NOT NULL," 
+                + "user_metadata " + (Config.getConfig(start).isUserMetadataJsonColumnEnabled() ? "JSON" : "TEXT")
+                + " NOT NULL,"
                 + "PRIMARY KEY(app_id, user_id),"
                 + "FOREIGN KEY (app_id) REFERENCES " + Config.getConfig(start).getAppsTable() + "(app_id) ON DELETE CASCADE"
                 + " );";
@@ -49,10 +51,9 @@ public class UserMetadataQueries {
 
     public static int deleteUserMetadata(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getUserMetadataTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).userMetadata.DELETE_USER_METADATA;
 
-        return update(start, QUERY.toString(), pst -> {
+        return update(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
         });
@@ -61,10 +62,9 @@ public class UserMetadataQueries {
     public static int deleteUserMetadata_Transaction(Connection sqlCon, Start start, AppIdentifier appIdentifier,
                                                      String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getUserMetadataTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).userMetadata.DELETE_USER_METADATA;
 
-        return update(sqlCon, QUERY.toString(), pst -> {
+        return update(sqlCon, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
         });
@@ -74,9 +74,7 @@ public class UserMetadataQueries {
                                                   String userId, JsonObject metadata)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "INSERT INTO " + getConfig(start).getUserMetadataTable()
-                + "(app_id, user_id, user_metadata) VALUES(?, ?, ?) "
-                + "ON DUPLICATE KEY UPDATE user_metadata = ?;";
+        String QUERY = getQueries(start).userMetadata.SET_USER_METADATA;
 
         return update(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -86,11 +84,71 @@ public class UserMetadataQueries {
         });
     }
 
+    /**
+     * Applies the patch to the stored metadata on the server with JSON_MERGE_PATCH (RFC 7396): keys in the patch
+     * replace the stored ones, null values remove them and nested objects are merged recursively. Only the patch is
+     * sent, instead of the whole document. Works with both the JSON and the TEXT column.
+     */
+    public static int mergeUserMetadata(Start start, AppIdentifier appIdentifier, String userId, JsonObject patch)
+            throws SQLException, StorageQueryException {
+        String QUERY = getQueries(start).userMetadata.MERGE_USER_METADATA;
+
+        return update(start, QUERY, pst -> {
+            pst.setString(1, appIdentifier.getAppId());
+            pst.setString(2, userId);
+            pst.setString(3, patch.toString());
+            pst.setString(4, patch.toString());
+        });
+    }
+
+    /**
+     * Reads only the given top level keys of the metadata, with one JSON_EXTRACT each, so that the rest of the
+     * document is neither sent nor parsed. Keys that are not in the metadata are left out of the result. Returns
+     * null if the user has no metadata.
+     */
+    public static JsonObject getUserMetadataKeys(Start start, AppIdentifier appIdentifier, String userId,
+                                                 List<String> keys)
+            throws SQLException, StorageQueryException {
+        StringBuilder QUERY = new StringBuilder("SELECT 1");
+        for (int i = 0; i < keys.size(); i++) {
+            QUERY.append(", JSON_EXTRACT(user_metadata, ?)");
+        }
+        QUERY.append(" FROM ").append(Config.getConfig(start).getUserMetadataTable())
+                .append(" WHERE app_id = ? AND user_id = ?");
+
+        return execute(start, QUERY.toString(), pst -> {
+            int index = 1;
+            for (String key : keys) {
+                pst.setString(index++, getJsonPathForKey(key));
+            }
+            pst.setString(index++, appIdentifier.getAppId());
+            pst.setString(index, userId);
+        }, result -> {
+            if (!result.next()) {
+                return null;
+            }
+            JsonParser jp = new JsonParser();
+            JsonObject metadata = new JsonObject();
+            for (int i = 0; i < keys.size(); i++) {
+                // SQL NULL if the key is not there. A JSON null comes back as the string "null".
+                String value = result.getString(i + 2);
+                if (value != null) {
+                    metadata.add(keys.get(i), jp.parse(value));
+                }
+            }
+            return metadata;
+        });
+    }
+
+    // a path to a top level member. The key is quoted, so that it can contain dots, spaces and the like.
+    private static String getJsonPathForKey(String key) {
+        return "$.\"" + key.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
     public static JsonObject getUserMetadata_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                          String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_metadata FROM " + getConfig(start).getUserMetadataTable()
-                + " WHERE app_id = ? AND user_id = ? FOR UPDATE";
+        String QUERY = getQueries(start).userMetadata.GET_USER_METADATA_FOR_UPDATE;
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
@@ -105,8 +163,7 @@ public class UserMetadataQueries {
 
     public static JsonObject getUserMetadata(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_metadata FROM " + getConfig(start).getUserMetadataTable()
-                + " WHERE app_id = ? AND user_id = ?";
+        String QUERY = getQueries(start).userMetadata.GET_USER_METADATA;
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
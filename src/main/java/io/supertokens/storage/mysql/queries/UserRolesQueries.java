@@ -17,17 +17,35 @@
 package io.supertokens.storage.mysql.queries;
 
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.PreparedStatementValueSetter;
+import io.supertokens.storage.mysql.ResultSetValueExtractor;
 import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.cache.UserRolesCache;
 import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.pagination.Page;
+import io.supertokens.storage.mysql.pagination.PaginationCursor;
+import io.supertokens.storage.mysql.userroles.UserRolesAndPermissions;
+import io.supertokens.storage.mysql.utils.Utils;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.*;
+import static io.supertokens.storage.mysql.queries.QueryCatalog.getQueries;
 
 public class UserRolesQueries {
     public static String getQueryToCreateRolesTable(Start start) {
@@ -84,18 +102,16 @@ public class UserRolesQueries {
                                                                        AppIdentifier appIdentifier, String role)
             throws SQLException, StorageQueryException {
         // ON CONFLICT DO NOTHING
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getRolesTable()
-                + "(app_id, role) "
-                + "SELECT ?, ? WHERE NOT EXISTS ("
-                + " SELECT app_id, role FROM " + Config.getConfig(start).getRolesTable()
-                + " WHERE app_id = ? AND role = ?"
-                + ")";
+        String QUERY = getQueries(start).userRoles.CREATE_NEW_ROLE_OR_DO_NOTHING_IF_EXISTS;
         int rowsUpdated = update(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, role);
             pst.setString(3, appIdentifier.getAppId());
             pst.setString(4, role);
         });
+        if (rowsUpdated > 0) {
+            UserRolesCache.invalidatePermissions_Transaction(start, con, appIdentifier);
+        }
         return rowsUpdated > 0;
     }
 
@@ -103,12 +119,7 @@ public class UserRolesQueries {
                                                                           AppIdentifier appIdentifier, String role,
                                                                           String permission) throws SQLException, StorageQueryException {
         // ON CONFLICT DO NOTHING
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getUserRolesPermissionsTable()
-                + "(app_id, role, permission) "
-                + "SELECT ?, ?, ? WHERE NOT EXISTS ("
-                + " SELECT app_id, role, permission FROM " + Config.getConfig(start).getUserRolesPermissionsTable()
-                + " WHERE app_id = ? AND role = ? AND permission = ?"
-                + ")";
+        String QUERY = getQueries(start).userRoles.ADD_PERMISSION_TO_ROLE_OR_DO_NOTHING_IF_EXISTS;
 
         update(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -118,22 +129,24 @@ public class UserRolesQueries {
             pst.setString(5, role);
             pst.setString(6, permission);
         });
+        UserRolesCache.invalidatePermissions_Transaction(start, con, appIdentifier);
     }
 
     public static boolean deleteRole(Start start, AppIdentifier appIdentifier, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getRolesTable()
-                + " WHERE app_id = ? AND role = ? ;";
-        return update(start, QUERY, pst -> {
+        String QUERY = getQueries(start).userRoles.DELETE_ROLE;
+        boolean deleted = update(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, role);
         }) == 1;
+        // this also removes the role from all of its users
+        UserRolesCache.invalidateRole(start, appIdentifier);
+        return deleted;
     }
 
     public static boolean doesRoleExist(Start start, AppIdentifier appIdentifier, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT 1 FROM " + Config.getConfig(start).getRolesTable()
-                + " WHERE app_id = ? AND role = ?";
+        String QUERY = getQueries(start).userRoles.DOES_ROLE_EXIST;
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, role);
@@ -142,8 +155,21 @@ public class UserRolesQueries {
 
     public static String[] getPermissionsForRole(Start start, AppIdentifier appIdentifier, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT permission FROM " + Config.getConfig(start).getUserRolesPermissionsTable()
-                + " WHERE app_id = ? AND role = ?;";
+        if (UserRolesCache.isEnabled(start)) {
+            String[] cached = UserRolesCache.getPermissionsForRole(start, appIdentifier, role);
+            if (cached != null) {
+                return cached;
+            }
+            // load the permissions of all the roles of the app at once, since the next check is likely for a
+            // different role
+            long ticket = UserRolesCache.getPermissionsTicket(start);
+            Map<String, String[]> permissionsByRole = getPermissionsForAllRoles(start, appIdentifier);
+            UserRolesCache.putPermissions(start, appIdentifier, permissionsByRole, ticket);
+            String[] permissions = permissionsByRole.get(role);
+            return permissions == null ? new String[0] : permissions.clone();
+        }
+
+        String QUERY = getQueries(start).userRoles.GET_PERMISSIONS_FOR_ROLE;
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, role);
@@ -156,9 +182,42 @@ public class UserRolesQueries {
         });
     }
 
+    private static Map<String, String[]> getPermissionsForAllRoles(Start start, AppIdentifier appIdentifier)
+            throws SQLException, StorageQueryException {
+        String QUERY = getQueries(start).userRoles.GET_PERMISSIONS_FOR_ALL_ROLES;
+        return executeForCache(start, QUERY, pst -> pst.setString(1, appIdentifier.getAppId()), result -> {
+            Map<String, List<String>> permissions = new HashMap<>();
+            while (result.next()) {
+                permissions.computeIfAbsent(result.getString("role"), k -> new ArrayList<>())
+                        .add(result.getString("permission"));
+            }
+            Map<String, String[]> permissionsByRole = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : permissions.entrySet()) {
+                permissionsByRole.put(entry.getKey(), entry.getValue().toArray(String[]::new));
+            }
+            return permissionsByRole;
+        });
+    }
+
+    /**
+     * Runs a read whose result is put into UserRolesCache. With the cache on, it is read from the primary: a row read
+     * from a lagging replica could already have been removed, and would then be served from the cache for the whole
+     * TTL.
+     */
+    private static <T> T executeForCache(Start start, String QUERY, PreparedStatementValueSetter setter,
+                                         ResultSetValueExtractor<T> mapper)
+            throws SQLException, StorageQueryException {
+        if (!UserRolesCache.isEnabled(start)) {
+            return execute(start, QUERY, setter, mapper);
+        }
+        try (Connection con = ConnectionPool.getPrimaryConnectionForRead(start)) {
+            return execute(con, QUERY, setter, mapper);
+        }
+    }
+
     public static String[] getRoles(Start start, AppIdentifier appIdentifier)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + Config.getConfig(start).getRolesTable() + " WHERE app_id = ?";
+        String QUERY = getQueries(start).userRoles.GET_ROLES;
         return execute(start, QUERY, pst -> pst.setString(1, appIdentifier.getAppId()), result -> {
             ArrayList<String> roles = new ArrayList<>();
             while (result.next()) {
@@ -170,56 +229,202 @@ public class UserRolesQueries {
 
     public static int addRoleToUser(Start start, TenantIdentifier tenantIdentifier, String userId, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getUserRolesTable()
-                + "(app_id, tenant_id, user_id, role) VALUES(?, ?, ?, ?);";
-        return update(start, QUERY, pst -> {
+        String QUERY = getQueries(start).userRoles.ADD_ROLE_TO_USER;
+        int rowsUpdated = update(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
             pst.setString(3, userId);
             pst.setString(4, role);
         });
+        UserRolesCache.invalidateUser(start, tenantIdentifier.toAppIdentifier(), tenantIdentifier, userId);
+        return rowsUpdated;
+    }
+
+    /**
+     * Gives the role to all the given users in one transaction with a multi-row INSERT, and returns the number of
+     * users that did not have it yet. The role and the tenant are checked first, and if either does not exist an
+     * UnknownRoleException or a TenantOrAppNotFoundException is thrown wrapped in a StorageTransactionLogicException.
+     * Users that already have the role are skipped with ON DUPLICATE KEY UPDATE rather than INSERT IGNORE, so that
+     * other errors (like a user id that is too long) still fail the transaction.
+     */
+    public static int addRoleToUsers(Start start, TenantIdentifier tenantIdentifier, List<String> userIds, String role)
+            throws StorageQueryException, StorageTransactionLogicException {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        AppIdentifier appIdentifier = tenantIdentifier.toAppIdentifier();
+        List<String> distinctUserIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+        String userRolesTable = Config.getConfig(start).getUserRolesTable();
+        // locks the rows (and the gaps between them), so that the count stays right until the INSERT
+        String COUNT_QUERY = "SELECT COUNT(*) FROM " + userRolesTable
+                + " WHERE app_id = ? AND tenant_id = ? AND role = ? AND user_id IN ("
+                + Utils.generateCommaSeperatedQuestionMarks(distinctUserIds.size()) + ") FOR UPDATE";
+        // the affected row count of an ON DUPLICATE KEY UPDATE depends on the client's found rows flag, which is
+        // why the users that already have the role are counted beforehand
+        String INSERT_QUERY = "INSERT INTO " + userRolesTable + "(app_id, tenant_id, user_id, role) VALUES "
+                + String.join(", ", Collections.nCopies(distinctUserIds.size(), "(?, ?, ?, ?)"))
+                + " ON DUPLICATE KEY UPDATE role = role";
+
+        return start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                if (!doesRoleExist_transaction(start, sqlCon, appIdentifier, role)) {
+                    throw new StorageTransactionLogicException(new UnknownRoleException());
+                }
+                if (!doesTenantExist_Transaction(start, sqlCon, tenantIdentifier)) {
+                    throw new StorageTransactionLogicException(new TenantOrAppNotFoundException(tenantIdentifier));
+                }
+
+                int usersWithRole = execute(sqlCon, COUNT_QUERY, pst -> {
+                    pst.setString(1, tenantIdentifier.getAppId());
+                    pst.setString(2, tenantIdentifier.getTenantId());
+                    pst.setString(3, role);
+                    int index = 4;
+                    for (String userId : distinctUserIds) {
+                        pst.setString(index++, userId);
+                    }
+                }, result -> {
+                    result.next();
+                    return result.getInt(1);
+                });
+                update(sqlCon, INSERT_QUERY, pst -> {
+                    int index = 1;
+                    for (String userId : distinctUserIds) {
+                        pst.setString(index++, tenantIdentifier.getAppId());
+                        pst.setString(index++, tenantIdentifier.getTenantId());
+                        pst.setString(index++, userId);
+                        pst.setString(index++, role);
+                    }
+                });
+                UserRolesCache.invalidateUsers_Transaction(start, sqlCon, appIdentifier, tenantIdentifier, userIds);
+                sqlCon.commit();
+                return distinctUserIds.size() - usersWithRole;
+            } catch (SQLException throwables) {
+                throw new StorageTransactionLogicException(throwables);
+            }
+        });
+    }
+
+    private static boolean doesTenantExist_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier)
+            throws SQLException, StorageQueryException {
+        String QUERY = "SELECT 1 FROM " + Config.getConfig(start).getTenantsTable()
+                + " WHERE app_id = ? AND tenant_id = ?";
+        return execute(con, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+        }, ResultSet::next);
+    }
+
+    /**
+     * Takes the role away from all the given users with one DELETE, and returns the number of users that had it.
+     */
+    public static int removeRoleFromUsers(Start start, TenantIdentifier tenantIdentifier, List<String> userIds,
+                                          String role)
+            throws SQLException, StorageQueryException {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        String QUERY = "DELETE FROM " + Config.getConfig(start).getUserRolesTable()
+                + " WHERE app_id = ? AND tenant_id = ? AND role = ? AND user_id IN ("
+                + Utils.generateCommaSeperatedQuestionMarks(userIds.size()) + ")";
+
+        int rowsDeleted = update(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            pst.setString(3, role);
+            int index = 4;
+            for (String userId : userIds) {
+                pst.setString(index++, userId);
+            }
+        });
+        UserRolesCache.invalidateUsers(start, tenantIdentifier.toAppIdentifier(), tenantIdentifier, userIds);
+        return rowsDeleted;
     }
 
     public static String[] getRolesForUser(Start start, TenantIdentifier tenantIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + Config.getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? ;";
+        AppIdentifier appIdentifier = tenantIdentifier.toAppIdentifier();
+        String[] cached = UserRolesCache.getRolesForUser(start, appIdentifier, tenantIdentifier, userId);
+        if (cached != null) {
+            return cached;
+        }
+        long ticket = UserRolesCache.getRolesForUserTicket(start, appIdentifier, userId);
 
-        return execute(start, QUERY, pst -> {
+        String QUERY = getQueries(start).userRoles.GET_ROLES_FOR_USER_IN_TENANT;
+
+        String[] roles = executeForCache(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
             pst.setString(3, userId);
         }, result -> {
-            ArrayList<String> roles = new ArrayList<>();
+            ArrayList<String> rolesList = new ArrayList<>();
             while (result.next()) {
-                roles.add(result.getString("role"));
+                rolesList.add(result.getString("role"));
             }
-            return roles.toArray(String[]::new);
+            return rolesList.toArray(String[]::new);
         });
+        UserRolesCache.putRolesForUser(start, appIdentifier, tenantIdentifier, userId, roles, ticket);
+        return roles;
     }
 
     public static String[] getRolesForUser(Start start, AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + Config.getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND user_id = ? ;";
+        String[] cached = UserRolesCache.getRolesForUser(start, appIdentifier, null, userId);
+        if (cached != null) {
+            return cached;
+        }
+        long ticket = UserRolesCache.getRolesForUserTicket(start, appIdentifier, userId);
 
-        return execute(start, QUERY, pst -> {
+        String QUERY = getQueries(start).userRoles.GET_ROLES_FOR_USER_IN_APP;
+
+        String[] roles = executeForCache(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
         }, result -> {
-            ArrayList<String> roles = new ArrayList<>();
+            ArrayList<String> rolesList = new ArrayList<>();
             while (result.next()) {
-                roles.add(result.getString("role"));
+                rolesList.add(result.getString("role"));
             }
-            return roles.toArray(String[]::new);
+            return rolesList.toArray(String[]::new);
+        });
+        UserRolesCache.putRolesForUser(start, appIdentifier, null, userId, roles, ticket);
+        return roles;
+    }
+
+    public static UserRolesAndPermissions getRolesAndPermissionsForUser(Start start, TenantIdentifier tenantIdentifier,
+                                                                        String userId)
+            throws SQLException, StorageQueryException {
+        if (UserRolesCache.isEnabled(start)) {
+            // with the cache on, both lookups are usually served from memory and at most one query is made for each
+            UserRolesAndPermissions.Builder builder = new UserRolesAndPermissions.Builder();
+            for (String role : getRolesForUser(start, tenantIdentifier, userId)) {
+                String[] permissions = getPermissionsForRole(start, tenantIdentifier.toAppIdentifier(), role);
+                builder.add(role, null);
+                for (String permission : permissions) {
+                    builder.add(role, permission);
+                }
+            }
+            return builder.build();
+        }
+
+        String QUERY = getQueries(start).userRoles.GET_ROLES_AND_PERMISSIONS_FOR_USER_IN_TENANT;
+        return execute(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            pst.setString(3, userId);
+        }, result -> {
+            UserRolesAndPermissions.Builder builder = new UserRolesAndPermissions.Builder();
+            while (result.next()) {
+                builder.add(result.getString("role"), result.getString("permission"));
+            }
+            return builder.build();
         });
     }
 
     public static boolean deleteRoleForUser_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier,
                                                         String userId, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ? AND role = ? ;";
+        String QUERY = getQueries(start).userRoles.DELETE_ROLE_FOR_USER;
 
         // store the number of rows updated
         int rowUpdatedCount = update(con, QUERY, pst -> {
@@ -228,14 +433,15 @@ public class UserRolesQueries {
             pst.setString(3, userId);
             pst.setString(4, role);
         });
+        UserRolesCache.invalidateUser_Transaction(start, con, tenantIdentifier.toAppIdentifier(), tenantIdentifier,
+                userId);
         return rowUpdatedCount > 0;
     }
 
     public static boolean doesRoleExist_transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                     String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT 1 FROM " + Config.getConfig(start).getRolesTable()
-                + " WHERE app_id = ? AND role = ? FOR UPDATE";
+        String QUERY = getQueries(start).userRoles.DOES_ROLE_EXIST_FOR_UPDATE;
         return execute(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, role);
@@ -244,8 +450,7 @@ public class UserRolesQueries {
 
     public static String[] getUsersForRole(Start start, TenantIdentifier tenantIdentifier, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id FROM " + Config.getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND role = ? ";
+        String QUERY = getQueries(start).userRoles.GET_USERS_FOR_ROLE;
         return execute(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
@@ -259,12 +464,54 @@ public class UserRolesQueries {
         });
     }
 
+    public static Page<String> getUsersForRolePage(Start start, TenantIdentifier tenantIdentifier, String role,
+                                                   int limit, @Nullable String cursor)
+            throws SQLException, StorageQueryException {
+        String after = null;
+        if (cursor != null) {
+            String[] keyParts = PaginationCursor.decode(cursor, 2);
+            if (!keyParts[0].equals(role)) {
+                throw new IllegalArgumentException("pagination cursor was created for a different role");
+            }
+            after = keyParts[1];
+        }
+
+        String lastUserId = after;
+        String QUERY = after == null
+                ? getQueries(start).userRoles.GET_USERS_FOR_ROLE_FIRST_PAGE
+                : getQueries(start).userRoles.GET_USERS_FOR_ROLE_PAGE_AFTER;
+        // one extra to know if there is a next page
+        List<String> userIds = execute(start, QUERY, pst -> {
+            pst.setString(1, tenantIdentifier.getAppId());
+            pst.setString(2, tenantIdentifier.getTenantId());
+            pst.setString(3, role);
+            if (lastUserId == null) {
+                pst.setInt(4, limit + 1);
+            } else {
+                pst.setString(4, lastUserId);
+                pst.setInt(5, limit + 1);
+            }
+        }, result -> {
+            List<String> ids = new ArrayList<>();
+            while (result.next()) {
+                ids.add(result.getString("user_id"));
+            }
+            return ids;
+        });
+
+        String nextCursor = null;
+        if (userIds.size() > limit) {
+            userIds = userIds.subList(0, limit);
+            nextCursor = PaginationCursor.encode(role, userIds.get(limit - 1));
+        }
+        return new Page<>(userIds, nextCursor);
+    }
+
     public static boolean deletePermissionForRole_Transaction(Start start, Connection con, AppIdentifier appIdentifier,
                                                               String role,
                                                               String permission)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getUserRolesPermissionsTable()
-                + " WHERE app_id = ? AND role = ? AND permission = ? ";
+        String QUERY = getQueries(start).userRoles.DELETE_PERMISSION_FOR_ROLE;
 
         // store the number of rows updated
         int rowUpdatedCount = update(con, QUERY, pst -> {
@@ -272,6 +519,7 @@ public class UserRolesQueries {
             pst.setString(2, role);
             pst.setString(3, permission);
         });
+        UserRolesCache.invalidatePermissions_Transaction(start, con, appIdentifier);
 
         return rowUpdatedCount > 0;
     }
@@ -280,21 +528,21 @@ public class UserRolesQueries {
                                                               String role)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getUserRolesPermissionsTable()
-                + " WHERE app_id = ? AND role = ? ";
+        String QUERY = getQueries(start).userRoles.DELETE_ALL_PERMISSIONS_FOR_ROLE;
         // return the number of rows updated
-        return update(con, QUERY, pst -> {
+        int rowsUpdated = update(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, role);
         });
+        UserRolesCache.invalidatePermissions_Transaction(start, con, appIdentifier);
+        return rowsUpdated;
 
     }
 
     public static String[] getRolesThatHavePermission(Start start, AppIdentifier appIdentifier, String permission)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "SELECT role FROM " + Config.getConfig(start).getUserRolesPermissionsTable()
-                + " WHERE app_id = ? AND permission = ? ";
+        String QUERY = getQueries(start).userRoles.GET_ROLES_THAT_HAVE_PERMISSION;
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
@@ -312,23 +560,25 @@ public class UserRolesQueries {
 
     public static int deleteAllRolesForUser(Start start, TenantIdentifier tenantIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND tenant_id = ? AND user_id = ?";
-        return update(start, QUERY, pst -> {
+        String QUERY = getQueries(start).userRoles.DELETE_ALL_ROLES_FOR_USER_IN_TENANT;
+        int rowsUpdated = update(start, QUERY, pst -> {
             pst.setString(1, tenantIdentifier.getAppId());
             pst.setString(2, tenantIdentifier.getTenantId());
             pst.setString(3, userId);
         });
+        UserRolesCache.invalidateUser(start, tenantIdentifier.toAppIdentifier(), tenantIdentifier, userId);
+        return rowsUpdated;
     }
 
     public static int deleteAllRolesForUser_Transaction(Connection con, Start start,
                                                         AppIdentifier appIdentifier, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + Config.getConfig(start).getUserRolesTable()
-                + " WHERE app_id = ? AND user_id = ?";
-        return update(con, QUERY, pst -> {
+        String QUERY = getQueries(start).userRoles.DELETE_ALL_ROLES_FOR_USER_IN_APP;
+        int rowsUpdated = update(con, QUERY, pst -> {
             pst.setString(1, appIdentifier.getAppId());
             pst.setString(2, userId);
         });
+        UserRolesCache.invalidateUser_Transaction(start, con, appIdentifier, null, userId);
+        return rowsUpdated;
     }
 }
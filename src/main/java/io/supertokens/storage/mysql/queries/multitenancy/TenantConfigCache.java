@@ -0,0 +1,61 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.queries.multitenancy;
+
+import io.supertokens.pluginInterface.multitenancy.TenantConfig;
+import io.supertokens.storage.mysql.ResourceDistributor;
+import io.supertokens.storage.mysql.Start;
+
+/**
+ * The last result of getAllTenants, along with the version of the tenant configs it was read at. Every change to
+ * the tenant configs bumps the version in the tenant_configs_version table, so the cached result can be reused for
+ * as long as that version stays the same.
+ */
+public class TenantConfigCache extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.storage.mysql.queries.multitenancy.TenantConfigCache";
+
+    private final long version;
+    private final TenantConfig[] tenantConfigs;
+
+    private TenantConfigCache(long version, TenantConfig[] tenantConfigs) {
+        this.version = version;
+        this.tenantConfigs = tenantConfigs;
+    }
+
+    /**
+     * @return a copy of the cached tenant configs if they were read at the given version, null otherwise
+     */
+    public static TenantConfig[] get(Start start, long version) {
+        TenantConfigCache cache = (TenantConfigCache) start.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (cache == null || cache.version != version) {
+            return null;
+        }
+        return cache.tenantConfigs.clone();
+    }
+
+    public static void set(Start start, long version, TenantConfig[] tenantConfigs) {
+        // setResource does not replace an existing entry
+        start.getResourceDistributor().removeResource(RESOURCE_KEY);
+        start.getResourceDistributor().setResource(RESOURCE_KEY,
+                new TenantConfigCache(version, tenantConfigs.clone()));
+    }
+
+    public static void clear(Start start) {
+        start.getResourceDistributor().removeResource(RESOURCE_KEY);
+    }
+}
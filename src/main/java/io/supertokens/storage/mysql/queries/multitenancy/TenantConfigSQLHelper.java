@@ -62,12 +62,12 @@ public class TenantConfigSQLHelper {
         }
     }
 
-    public static TenantConfig[] selectAll(Start start, HashMap<TenantIdentifier, HashMap<String, ThirdPartyConfig.Provider>> providerMap)
+    public static TenantConfig[] selectAll(Start start, Connection con, HashMap<TenantIdentifier, HashMap<String, ThirdPartyConfig.Provider>> providerMap)
             throws SQLException, StorageQueryException {
         String QUERY = "SELECT connection_uri_domain, app_id, tenant_id, core_config, email_password_enabled, passwordless_enabled, third_party_enabled FROM "
                 + getConfig(start).getTenantConfigsTable() + ";";
 
-        TenantConfig[] tenantConfigs = execute(start, QUERY, pst -> {}, result -> {
+        TenantConfig[] tenantConfigs = execute(con, QUERY, pst -> {}, result -> {
             List<TenantConfig> temp = new ArrayList<>();
             while (result.next()) {
                 TenantIdentifier tenantIdentifier = new TenantIdentifier(result.getString("connection_uri_domain"), result.getString("app_id"), result.getString("tenant_id"));
@@ -26,15 +26,18 @@ import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicExceptio
 import io.supertokens.pluginInterface.multitenancy.TenantConfig;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.ThirdPartyConfig;
+import io.supertokens.storage.mysql.PreparedStatementValueSetter;
 import io.supertokens.storage.mysql.Start;
 import io.supertokens.storage.mysql.queries.utils.JsonUtils;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Objects;
 
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.batchUpdate;
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
-import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
 import static io.supertokens.storage.mysql.config.Config.getConfig;
 
 public class ThirdPartyProviderClientSQLHelper {
@@ -85,14 +88,14 @@ public class ThirdPartyProviderClientSQLHelper {
         }
     }
 
-    public static HashMap<TenantIdentifier, HashMap<String, HashMap<String, ThirdPartyConfig.ProviderClient>>> selectAll(Start start)
+    public static HashMap<TenantIdentifier, HashMap<String, HashMap<String, ThirdPartyConfig.ProviderClient>>> selectAll(Start start, Connection con)
             throws SQLException, StorageQueryException {
         HashMap<TenantIdentifier, HashMap<String, HashMap<String, ThirdPartyConfig.ProviderClient>>> providerClientsMap = new HashMap<>();
 
         String QUERY = "SELECT connection_uri_domain, app_id, tenant_id, third_party_id, client_type, client_id, client_secret, scope, force_pkce, additional_config FROM "
                 + getConfig(start).getTenantThirdPartyProviderClientsTable() + ";";
 
-        execute(start, QUERY, pst -> {}, result -> {
+        execute(con, QUERY, pst -> {}, result -> {
             while (result.next()) {
                 TenantIdentifier tenantIdentifier = new TenantIdentifier(result.getString("connection_uri_domain"), result.getString("app_id"), result.getString("tenant_id"));
                 ThirdPartyConfig.ProviderClient providerClient = TenantThirdPartyProviderClientRowMapper.getInstance().mapOrThrow(result);
@@ -111,41 +114,48 @@ public class ThirdPartyProviderClientSQLHelper {
         return providerClientsMap;
     }
 
-    public static void create(Start start, Connection sqlCon, TenantConfig tenantConfig, ThirdPartyConfig.Provider provider, ThirdPartyConfig.ProviderClient providerClient)
+    public static void createAll(Start start, Connection sqlCon, TenantConfig tenantConfig)
             throws SQLException, StorageTransactionLogicException {
 
         String QUERY = "INSERT INTO " + getConfig(start).getTenantThirdPartyProviderClientsTable()
                 + "(connection_uri_domain, app_id, tenant_id, third_party_id, client_type, client_id, client_secret, scope, force_pkce, additional_config)"
                 + " VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        String scopeArrayStr;
-        if (providerClient.scope != null) {
-            JsonArray scopeArray = new JsonArray();
-            for (String scope : providerClient.scope) {
-                scopeArray.add(new JsonPrimitive(scope));
+        List<PreparedStatementValueSetter> setters = new ArrayList<>();
+        for (ThirdPartyConfig.Provider provider : tenantConfig.thirdPartyConfig.providers) {
+            for (ThirdPartyConfig.ProviderClient providerClient : provider.clients) {
+                String scopeArrayStr;
+                if (providerClient.scope != null) {
+                    JsonArray scopeArray = new JsonArray();
+                    for (String scope : providerClient.scope) {
+                        scopeArray.add(new JsonPrimitive(scope));
+                    }
+                    scopeArrayStr = scopeArray.toString();
+                } else {
+                    scopeArrayStr = "";
+                }
+
+                setters.add(pst -> {
+                    pst.setString(1, tenantConfig.tenantIdentifier.getConnectionUriDomain());
+                    pst.setString(2, tenantConfig.tenantIdentifier.getAppId());
+                    pst.setString(3, tenantConfig.tenantIdentifier.getTenantId());
+                    pst.setString(4, provider.thirdPartyId);
+                    pst.setString(5, Objects.requireNonNullElse(providerClient.clientType, ""));
+                    pst.setString(6, providerClient.clientId);
+                    pst.setString(7, providerClient.clientSecret);
+                    pst.setString(8, scopeArrayStr);
+                    if (providerClient.forcePKCE == null) {
+                        pst.setNull(9, Types.BOOLEAN);
+                    } else {
+                        pst.setBoolean(9, providerClient.forcePKCE.booleanValue());
+                    }
+                    pst.setString(10, JsonUtils.jsonObjectToString(providerClient.additionalConfig));
+                });
             }
-            scopeArrayStr = scopeArray.toString();
-        } else {
-            scopeArrayStr = "";
         }
 
         try {
-            update(sqlCon, QUERY, pst -> {
-                pst.setString(1, tenantConfig.tenantIdentifier.getConnectionUriDomain());
-                pst.setString(2, tenantConfig.tenantIdentifier.getAppId());
-                pst.setString(3, tenantConfig.tenantIdentifier.getTenantId());
-                pst.setString(4, provider.thirdPartyId);
-                pst.setString(5, Objects.requireNonNullElse(providerClient.clientType, ""));
-                pst.setString(6, providerClient.clientId);
-                pst.setString(7, providerClient.clientSecret);
-                pst.setString(8, scopeArrayStr);
-                if (providerClient.forcePKCE == null) {
-                    pst.setNull(9, Types.BOOLEAN);
-                } else {
-                    pst.setBoolean(9, providerClient.forcePKCE.booleanValue());
-                }
-                pst.setString(10, JsonUtils.jsonObjectToString(providerClient.additionalConfig));
-            });
+            batchUpdate(sqlCon, QUERY, setters);
         } catch (StorageQueryException e) {
             throw new StorageTransactionLogicException(e);
         }
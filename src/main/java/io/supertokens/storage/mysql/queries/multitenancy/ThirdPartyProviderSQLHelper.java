@@ -22,6 +22,7 @@ import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicExceptio
 import io.supertokens.pluginInterface.multitenancy.TenantConfig;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.ThirdPartyConfig;
+import io.supertokens.storage.mysql.PreparedStatementValueSetter;
 import io.supertokens.storage.mysql.Start;
 import io.supertokens.storage.mysql.queries.utils.JsonUtils;
 
@@ -29,10 +30,12 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
+import static io.supertokens.storage.mysql.QueryExecutorTemplate.batchUpdate;
 import static io.supertokens.storage.mysql.QueryExecutorTemplate.execute;
-import static io.supertokens.storage.mysql.QueryExecutorTemplate.update;
 import static io.supertokens.storage.mysql.config.Config.getConfig;
 
 public class ThirdPartyProviderSQLHelper {
@@ -86,14 +89,14 @@ public class ThirdPartyProviderSQLHelper {
         }
     }
 
-    public static HashMap<TenantIdentifier, HashMap<String, ThirdPartyConfig.Provider>> selectAll(Start start, HashMap<TenantIdentifier, HashMap<String, HashMap<String, ThirdPartyConfig.ProviderClient>>> providerClientsMap)
+    public static HashMap<TenantIdentifier, HashMap<String, ThirdPartyConfig.Provider>> selectAll(Start start, Connection con, HashMap<TenantIdentifier, HashMap<String, HashMap<String, ThirdPartyConfig.ProviderClient>>> providerClientsMap)
             throws SQLException, StorageQueryException {
         HashMap<TenantIdentifier, HashMap<String, ThirdPartyConfig.Provider>> providerMap = new HashMap<>();
 
         String QUERY = "SELECT connection_uri_domain, app_id, tenant_id, third_party_id, name, authorization_endpoint, authorization_endpoint_query_params, token_endpoint, token_endpoint_body_params, user_info_endpoint, user_info_endpoint_query_params, user_info_endpoint_headers, jwks_uri, oidc_discovery_endpoint, require_email, user_info_map_from_id_token_payload_user_id, user_info_map_from_id_token_payload_email, user_info_map_from_id_token_payload_email_verified, user_info_map_from_user_info_endpoint_user_id, user_info_map_from_user_info_endpoint_email, user_info_map_from_user_info_endpoint_email_verified FROM "
                 + getConfig(start).getTenantThirdPartyProvidersTable() + ";";
 
-        execute(start, QUERY, pst -> {}, result -> {
+        execute(con, QUERY, pst -> {}, result -> {
             while (result.next()) {
                 TenantIdentifier tenantIdentifier = new TenantIdentifier(result.getString("connection_uri_domain"), result.getString("app_id"), result.getString("tenant_id"));
                 ThirdPartyConfig.ProviderClient[] clients = null;
@@ -112,13 +115,14 @@ public class ThirdPartyProviderSQLHelper {
         return providerMap;
     }
 
-    public static void create(Start start, Connection sqlCon, TenantConfig tenantConfig, ThirdPartyConfig.Provider provider)
+    public static void createAll(Start start, Connection sqlCon, TenantConfig tenantConfig)
             throws SQLException, StorageTransactionLogicException {
         String QUERY = "INSERT INTO " + getConfig(start).getTenantThirdPartyProvidersTable()
                 + "(connection_uri_domain, app_id, tenant_id, third_party_id, name, authorization_endpoint, authorization_endpoint_query_params, token_endpoint, token_endpoint_body_params, user_info_endpoint, user_info_endpoint_query_params, user_info_endpoint_headers, jwks_uri, oidc_discovery_endpoint, require_email, user_info_map_from_id_token_payload_user_id, user_info_map_from_id_token_payload_email, user_info_map_from_id_token_payload_email_verified, user_info_map_from_user_info_endpoint_user_id, user_info_map_from_user_info_endpoint_email, user_info_map_from_user_info_endpoint_email_verified)" + " VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try {
-            update(sqlCon, QUERY, pst -> {
+        List<PreparedStatementValueSetter> setters = new ArrayList<>();
+        for (ThirdPartyConfig.Provider provider : tenantConfig.thirdPartyConfig.providers) {
+            setters.add(pst -> {
                 pst.setString(1, tenantConfig.tenantIdentifier.getConnectionUriDomain());
                 pst.setString(2, tenantConfig.tenantIdentifier.getAppId());
                 pst.setString(3, tenantConfig.tenantIdentifier.getTenantId());
@@ -145,6 +149,10 @@ public class ThirdPartyProviderSQLHelper {
                 pst.setString(20, provider.userInfoMap.fromUserInfoAPI.email);
                 pst.setString(21, provider.userInfoMap.fromUserInfoAPI.emailVerified);
             });
+        }
+
+        try {
+            batchUpdate(sqlCon, QUERY, setters);
         } catch (StorageQueryException e) {
             throw new StorageTransactionLogicException(e);
         }
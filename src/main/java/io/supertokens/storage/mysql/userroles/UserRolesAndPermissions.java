@@ -0,0 +1,124 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.userroles;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// The roles of a user along with the permissions of each role. All the permissions are kept in one flat array and
+// offsets[i] to offsets[i + 1] is the range that belongs to roles[i], so no array is created per role.
+public class UserRolesAndPermissions {
+
+    private final String[] roles;
+
+    private final int[] offsets;
+
+    private final String[] permissions;
+
+    private UserRolesAndPermissions(String[] roles, int[] offsets, String[] permissions) {
+        this.roles = roles;
+        this.offsets = offsets;
+        this.permissions = permissions;
+    }
+
+    public int getNumberOfRoles() {
+        return roles.length;
+    }
+
+    public String getRole(int roleIndex) {
+        return roles[roleIndex];
+    }
+
+    public int getNumberOfPermissions(int roleIndex) {
+        return offsets[roleIndex + 1] - offsets[roleIndex];
+    }
+
+    public String getPermission(int roleIndex, int permissionIndex) {
+        Objects.checkIndex(permissionIndex, getNumberOfPermissions(roleIndex));
+        return permissions[offsets[roleIndex] + permissionIndex];
+    }
+
+    public String[] getRoles() {
+        return roles.clone();
+    }
+
+    // returns null if the user does not have this role
+    public String[] getPermissionsForRole(String role) {
+        for (int i = 0; i < roles.length; i++) {
+            if (roles[i].equals(role)) {
+                return Arrays.copyOfRange(permissions, offsets[i], offsets[i + 1]);
+            }
+        }
+        return null;
+    }
+
+    public boolean hasPermission(String permission) {
+        for (String p : permissions) {
+            if (p.equals(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the permissions of all the roles, without duplicates
+    public String[] getAllPermissions() {
+        Set<String> all = new LinkedHashSet<>(Arrays.asList(permissions));
+        return all.toArray(String[]::new);
+    }
+
+    public static class Builder {
+
+        private String[] roles = new String[4];
+
+        private int[] offsets = new int[5];
+
+        private String[] permissions = new String[16];
+
+        private int numberOfRoles = 0;
+
+        private int numberOfPermissions = 0;
+
+        // rows of the same role must be added one after the other. permission is null for a role that has none.
+        public Builder add(String role, String permission) {
+            if (numberOfRoles == 0 || !roles[numberOfRoles - 1].equals(role)) {
+                if (numberOfRoles == roles.length) {
+                    roles = Arrays.copyOf(roles, roles.length * 2);
+                    offsets = Arrays.copyOf(offsets, roles.length + 1);
+                }
+                roles[numberOfRoles] = role;
+                numberOfRoles++;
+            }
+            if (permission != null) {
+                if (numberOfPermissions == permissions.length) {
+                    permissions = Arrays.copyOf(permissions, permissions.length * 2);
+                }
+                permissions[numberOfPermissions] = permission;
+                numberOfPermissions++;
+            }
+            offsets[numberOfRoles] = numberOfPermissions;
+            return this;
+        }
+
+        public UserRolesAndPermissions build() {
+            return new UserRolesAndPermissions(Arrays.copyOf(roles, numberOfRoles),
+                    Arrays.copyOf(offsets, numberOfRoles + 1), Arrays.copyOf(permissions, numberOfPermissions));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.bulkimport.BulkImportResult;
+import io.supertokens.storage.mysql.bulkimport.BulkImportUser;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BulkImportTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatUsersOfAllRecipesAreImportedAndDuplicatesAreReported() throws Exception {
+        String[] args = { "../" };
+
+        // small chunks so that duplicates across chunks are found via the database
+        Utils.setValueInConfig("mysql_bulk_import_chunk_size", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AuthRecipeUserInfo existingUser = EmailPassword.signUp(process.getProcess(), "existing@example.com",
+                "password");
+
+        List<BulkImportUser> users = new ArrayList<>();
+        users.add(BulkImportUser.emailPassword("user1", "user1@example.com", "hash", 1000)); // 0
+        users.add(BulkImportUser.emailPassword("user2", "existing@example.com", "hash", 1000)); // 1
+        users.add(BulkImportUser.thirdParty("user3", "user3@example.com", "google", "g-user3", 1000)); // 2
+        users.add(BulkImportUser.thirdParty("user4", "user4@example.com", "google", "g-user3", 1000)); // 3
+        users.add(BulkImportUser.passwordless("user5", null, "+919876543210", 1000)); // 4
+        users.add(BulkImportUser.passwordless("user1", "user6@example.com", null, 1000)); // 5
+        users.add(BulkImportUser.emailPassword("user7", null, "hash", 1000)); // 6
+        users.add(BulkImportUser.emailPassword(existingUser.getSupertokensUserId(), "user8@example.com", "hash",
+                1000)); // 7
+        users.add(BulkImportUser.passwordless("user9", "user9@example.com", "+919876543210", 1000)); // 8
+
+        BulkImportResult result = start.bulkImportUsers(TenantIdentifier.BASE_TENANT, users);
+
+        assertEquals(3, result.importedCount);
+        assertEquals(6, result.failures.size());
+        assertFailure(result.failures.get(0), 1, BulkImportResult.FailureReason.DUPLICATE_EMAIL);
+        assertFailure(result.failures.get(1), 3, BulkImportResult.FailureReason.DUPLICATE_THIRD_PARTY_USER);
+        assertFailure(result.failures.get(2), 5, BulkImportResult.FailureReason.DUPLICATE_USER_ID);
+        assertFailure(result.failures.get(3), 6, BulkImportResult.FailureReason.INVALID_INPUT);
+        assertFailure(result.failures.get(4), 7, BulkImportResult.FailureReason.DUPLICATE_USER_ID);
+        assertFailure(result.failures.get(5), 8, BulkImportResult.FailureReason.DUPLICATE_PHONE_NUMBER);
+
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        AuthRecipeUserInfo user1 = start.getPrimaryUserById(appIdentifier, "user1");
+        assertEquals("user1@example.com", user1.loginMethods[0].email);
+        assertEquals(1000, user1.timeJoined);
+        AuthRecipeUserInfo user3 = start.getPrimaryUserById(appIdentifier, "user3");
+        assertEquals("g-user3", user3.loginMethods[0].thirdParty.userId);
+        AuthRecipeUserInfo user5 = start.getPrimaryUserById(appIdentifier, "user5");
+        assertEquals("+919876543210", user5.loginMethods[0].phoneNumber);
+        assertNull(start.getPrimaryUserById(appIdentifier, "user2"));
+        assertEquals(4, start.getUsersCount(TenantIdentifier.BASE_TENANT, null));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatInvalidChunkSizeThrowsRightError() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_bulk_import_chunk_size", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("io.supertokens.pluginInterface.exceptions.InvalidConfigException: "
+                + "'mysql_bulk_import_chunk_size' in the config.yaml file must be between 1 and 5000",
+                e.exception.getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static void assertFailure(BulkImportResult.Failure failure, int index,
+                                      BulkImportResult.FailureReason reason) {
+        assertEquals(index, failure.index);
+        assertEquals(reason, failure.reason);
+    }
+}
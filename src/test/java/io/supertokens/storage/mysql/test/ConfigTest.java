@@ -20,6 +20,8 @@ package io.supertokens.storage.mysql.test;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.KeyValueInfo;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.storage.mysql.ConnectionPoolTestContent;
 import io.supertokens.storage.mysql.Start;
 import io.supertokens.storage.mysql.annotations.ConnectionPoolProperty;
@@ -28,6 +30,7 @@ import io.supertokens.storage.mysql.annotations.NotConflictingWithinUserPool;
 import io.supertokens.storage.mysql.annotations.UserPoolProperty;
 import io.supertokens.storage.mysql.config.Config;
 import io.supertokens.storage.mysql.config.MySQLConfig;
+import io.supertokens.storage.mysql.queries.QueryCatalog;
 import io.supertokens.storageLayer.StorageLayer;
 import junit.framework.TestCase;
 import org.junit.AfterClass;
@@ -109,6 +112,46 @@ public class ConfigTest {
 
     }
 
+    @Test
+    public void testThatInvalidReadReplicaHostsThrowsRightError() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_read_replica_hosts", "\"localhost:abc\"");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        TestCase.assertEquals(e.exception.getMessage(),
+                "io.supertokens.pluginInterface.exceptions.InvalidConfigException: " +
+                        "'mysql_read_replica_hosts' in the config.yaml file must be a comma separated list of " +
+                        "host[:port] values");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatReadReplicaHostsAreUsedForReads() throws Exception {
+        String[] args = { "../" };
+
+        // the primary is used as its own replica here, so reads should work as usual
+        Utils.setValueInConfig("mysql_read_replica_hosts", "\"localhost:3306\"");
+        Utils.setValueInConfig("mysql_read_replica_max_staleness_ms", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        MySQLConfig config = Config.getConfig((Start) StorageLayer.getStorage(process.getProcess()));
+        assertEquals(1, config.getReadReplicaHosts().size());
+        assertEquals("localhost:3306", config.getReadReplicaHosts().get(0));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        start.setKeyValue(TenantIdentifier.BASE_TENANT, "key", new KeyValueInfo("value"));
+        assertEquals("value", start.getKeyValue(TenantIdentifier.BASE_TENANT, "key").value);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void testThatMissingConfigFileThrowsError() throws Exception {
         String[] args = { "../" };
@@ -268,6 +311,11 @@ public class ConfigTest {
         assertEquals("change in table name not reflected", config.getPasswordResetTokensTable(),
                 "some_prefix_emailpassword_pswd_reset_tokens");
 
+        QueryCatalog queries = QueryCatalog.getQueries((Start) StorageLayer.getStorage(process.getProcess()));
+        assertTrue(queries.session.GET_SESSION.contains(" some_prefix_session_info AS sess "));
+        assertTrue(queries.keyValue.GET_KEY_VALUE.contains(" key_value_table "));
+        assertTrue(queries.userRoles.GET_ROLES_FOR_USER_IN_TENANT.contains(" some_prefix_user_roles "));
+
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
@@ -0,0 +1,93 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class ConnectionPoolMetricsTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatPoolGaugesAndAcquireTimesAreReported() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long countBefore = start.getConnectionPoolMetrics().getAsJsonObject("acquire").get("count").getAsLong();
+        for (int i = 0; i < 10; i++) {
+            start.getKeyValue(TenantIdentifier.BASE_TENANT, "Key");
+        }
+
+        JsonObject metrics = start.getConnectionPoolMetrics();
+        JsonObject primary = metrics.getAsJsonObject("primary");
+        assertEquals(10, primary.get("max").getAsInt());
+        assertFalse(primary.get("shared").getAsBoolean());
+        assertEquals(0, primary.get("active").getAsInt());
+        assertEquals(0, primary.get("pending").getAsInt());
+        assertTrue(primary.get("total").getAsInt() > 0);
+        assertEquals(0, metrics.getAsJsonArray("replicas").size());
+
+        JsonObject acquire = metrics.getAsJsonObject("acquire");
+        assertTrue(acquire.get("count").getAsLong() >= countBefore + 10);
+        assertEquals(0, acquire.get("failures").getAsLong());
+        assertTrue(acquire.get("p99Ms").getAsDouble() <= acquire.get("maxMs").getAsDouble());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatNegativeWarnThresholdIsRejected() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_connection_pool_pending_threads_warn_threshold", "-1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("io.supertokens.pluginInterface.exceptions.InvalidConfigException: "
+                        + "'mysql_connection_pool_pending_threads_warn_threshold' in the config.yaml file must be >= 0",
+                e.exception.getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.queries.SessionQueries;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class ExpiredRowsSweeperTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static void createSession(Start start, String sessionHandle, long expiry) throws Exception {
+        start.createNewSession(TenantIdentifier.BASE_TENANT, sessionHandle, "user", "refreshTokenHash2",
+                new JsonObject(), expiry, new JsonObject(), System.currentTimeMillis(), false);
+    }
+
+    @Test
+    public void testThatExpiredSessionsAreDeletedInChunks() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_expired_rows_delete_batch_size", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            createSession(start, "expired" + i, now - 1000);
+        }
+        createSession(start, "valid", now + 100000);
+
+        assertEquals(5, SessionQueries.deleteAllExpiredSessions(start));
+        assertEquals(0, SessionQueries.deleteAllExpiredSessions(start));
+
+        assertNull(start.getSession(TenantIdentifier.BASE_TENANT, "expired0"));
+        assertNotNull(start.getSession(TenantIdentifier.BASE_TENANT, "valid"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatChunksAreReadThroughTheExpiryIndex() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_expired_rows_delete_batch_size", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long now = System.currentTimeMillis();
+        // mostly live rows, which a walk in primary key order would have to scan (and lock) to find expired ones
+        for (int i = 0; i < 200; i++) {
+            createSession(start, "valid" + i, now + 100000);
+        }
+        for (int i = 0; i < 5; i++) {
+            createSession(start, "expired" + i, now - 1000);
+        }
+
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("ANALYZE TABLE " + Config.getConfig(start).getSessionInfoTable());
+            }
+            try (PreparedStatement pst = con.prepareStatement(
+                    "EXPLAIN " + SessionQueries.getQueryToDeleteExpiredSessionsChunk(start))) {
+                pst.setLong(1, now);
+                try (ResultSet result = pst.executeQuery()) {
+                    assertTrue(result.next());
+                    assertEquals("session_expiry_index", result.getString("key"));
+                    assertEquals("range", result.getString("type"));
+                }
+            }
+        }
+
+        assertEquals(5, SessionQueries.deleteAllExpiredSessions(start));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatDeletingStopsAfterMaxDuration() throws Exception {
+        String[] args = { "../" };
+
+        // one row per second, so 10 rows would take much longer than the max duration
+        Utils.setValueInConfig("mysql_expired_rows_delete_batch_size", "1");
+        Utils.setValueInConfig("mysql_expired_rows_delete_rate", "1");
+        Utils.setValueInConfig("mysql_expired_rows_delete_max_duration_ms", "1500");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            createSession(start, "expired" + i, now - 1000);
+        }
+
+        long startTime = System.currentTimeMillis();
+        int deleted = SessionQueries.deleteAllExpiredSessions(start);
+        long timeTaken = System.currentTimeMillis() - startTime;
+
+        assertTrue(deleted >= 1 && deleted < 10);
+        assertTrue(timeTaken >= 1000 && timeTaken < 5000);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatInvalidBatchSizeIsRejected() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_expired_rows_delete_batch_size", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("io.supertokens.pluginInterface.exceptions.InvalidConfigException: "
+                        + "'mysql_expired_rows_delete_batch_size' in the config.yaml file must be >= 1",
+                e.exception.getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
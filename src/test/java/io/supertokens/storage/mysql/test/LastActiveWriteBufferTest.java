@@ -0,0 +1,162 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.ActiveUsersStorage;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.Assert.*;
+
+public class LastActiveWriteBufferTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatBufferedUpdatesAreVisibleAndFlushed() throws Exception {
+        String[] args = { "../" };
+
+        // long enough that the background flush does not run during the test
+        Utils.setValueInConfig("mysql_last_active_flush_interval_ms", "600000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        long before = System.currentTimeMillis();
+
+        for (int i = 0; i < 10; i++) {
+            start.updateLastActive(appIdentifier, "user1");
+        }
+        start.updateLastActive(appIdentifier, "user2");
+
+        assertTrue(start.isUserIdBeingUsedInNonAuthRecipe(appIdentifier, ActiveUsersStorage.class.getName(),
+                "user1"));
+        // counting flushes the buffer first
+        assertEquals(2, start.countUsersActiveSince(appIdentifier, before));
+        assertEquals(0, start.countUsersActiveSince(appIdentifier, System.currentTimeMillis() + 1000));
+
+        start.startTransaction(con -> {
+            start.deleteUserActive_Transaction(con, appIdentifier, "user1");
+            start.commitTransaction(con);
+            return null;
+        });
+        assertFalse(start.isUserIdBeingUsedInNonAuthRecipe(appIdentifier, ActiveUsersStorage.class.getName(),
+                "user1"));
+        assertEquals(1, start.countUsersActiveSince(appIdentifier, before));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatUsersOfADeletedAppDoNotBlockTheFlush() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_last_active_flush_interval_ms", "600000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        AppIdentifier a1 = new AppIdentifier(null, "a1");
+        AppIdentifier a2 = new AppIdentifier(null, "a2");
+        start.addTenantIdInTargetStorage(new TenantIdentifier(null, "a1", null));
+        start.addTenantIdInTargetStorage(new TenantIdentifier(null, "a2", null));
+        long before = System.currentTimeMillis();
+
+        start.updateLastActive(appIdentifier, "user1");
+        start.updateLastActive(a1, "user1");
+        start.updateLastActive(a2, "user1");
+
+        // deleting the app through the storage drops its buffered times
+        start.deleteTenantIdInTargetStorage(new TenantIdentifier(null, "a1", null));
+        assertFalse(start.isUserIdBeingUsedInNonAuthRecipe(a1, ActiveUsersStorage.class.getName(), "user1"));
+
+        // an app that is deleted behind the buffer's back makes its rows fail the foreign key
+        try (Connection con = ConnectionPool.getConnection(start);
+             PreparedStatement pst = con.prepareStatement(
+                     "DELETE FROM " + Config.getConfig(start).getAppsTable() + " WHERE app_id = ?")) {
+            pst.setString(1, "a2");
+            pst.executeUpdate();
+        }
+
+        // the other rows of the batch are still written, and the failing one is dropped
+        assertEquals(1, start.countUsersActiveSince(appIdentifier, before));
+        assertFalse(start.isUserIdBeingUsedInNonAuthRecipe(a2, ActiveUsersStorage.class.getName(), "user1"));
+        start.updateLastActive(appIdentifier, "user2");
+        assertEquals(2, start.countUsersActiveSince(appIdentifier, before));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatARolledBackDeleteKeepsTheBufferedTime() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_last_active_flush_interval_ms", "600000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        long before = System.currentTimeMillis();
+
+        start.updateLastActive(appIdentifier, "user1");
+        try {
+            start.startTransaction(con -> {
+                start.deleteUserActive_Transaction(con, appIdentifier, "user1");
+                throw new StorageTransactionLogicException(new Exception("rollback"));
+            });
+            fail();
+        } catch (StorageTransactionLogicException ignored) {
+        }
+
+        assertTrue(start.isUserIdBeingUsedInNonAuthRecipe(appIdentifier, ActiveUsersStorage.class.getName(),
+                "user1"));
+        assertEquals(1, start.countUsersActiveSince(appIdentifier, before));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
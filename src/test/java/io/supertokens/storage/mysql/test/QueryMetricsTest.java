@@ -0,0 +1,124 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.KeyValueInfo;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.metrics.LatencyHistogram;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QueryMetricsTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatMetricsAreDisabledByDefault() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        JsonObject snapshot = start.getQueryMetricsSnapshot();
+        assertFalse(snapshot.get("enabled").getAsBoolean());
+        assertNull(snapshot.get("queries"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatQueriesAreRecorded() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_query_metrics_enabled", "true");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        List<String> recordedQueries = new ArrayList<>();
+        start.addQueryMetricsRecorder((query, durationNanos, rows, failed) -> {
+            synchronized (recordedQueries) {
+                recordedQueries.add(query);
+            }
+        });
+
+        start.setKeyValue(TenantIdentifier.BASE_TENANT, "metricsKey", new KeyValueInfo("value"));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("value", start.getKeyValue(TenantIdentifier.BASE_TENANT, "metricsKey").value);
+        }
+        assertFalse(recordedQueries.isEmpty());
+
+        JsonObject snapshot = start.getQueryMetricsSnapshot();
+        assertTrue(snapshot.get("enabled").getAsBoolean());
+        JsonObject getKeyValueStats = null;
+        JsonArray queries = snapshot.get("queries").getAsJsonArray();
+        for (JsonElement query : queries) {
+            if (query.getAsJsonObject().get("query").getAsString().startsWith("SELECT value, created_at_time FROM")) {
+                getKeyValueStats = query.getAsJsonObject();
+            }
+        }
+        assertNotNull(getKeyValueStats);
+        assertEquals(5, getKeyValueStats.get("count").getAsLong());
+        assertEquals(5, getKeyValueStats.get("rows").getAsLong());
+        assertEquals(0, getKeyValueStats.get("errors").getAsLong());
+        assertTrue(getKeyValueStats.get("p99Ms").getAsDouble() <= getKeyValueStats.get("maxMs").getAsDouble());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testLatencyHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordMicros(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMaxMicros());
+        // buckets are accurate to within ~3%
+        assertEquals(500000, histogram.getValueAtPercentileMicros(50), 500000 * 0.04);
+        assertEquals(990000, histogram.getValueAtPercentileMicros(99), 990000 * 0.04);
+        assertEquals(1000000, histogram.getValueAtPercentileMicros(100));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.KeyValueInfo;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class ReadReplicaTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static long getReads(Start start, String servedBy) {
+        return start.getConnectionPoolMetrics().getAsJsonObject("reads").get(servedBy).getAsLong();
+    }
+
+    private static JsonObject getReplica(Start start, int index) {
+        JsonArray replicas = start.getConnectionPoolMetrics().getAsJsonArray("replicas");
+        return replicas.get(index).getAsJsonObject();
+    }
+
+    // reads on a thread that has not written anything
+    private static void readOnAnotherThread(Start start, int times) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                for (int i = 0; i < times; i++) {
+                    assertEquals("value", start.getKeyValue(TenantIdentifier.BASE_TENANT, "key").value);
+                }
+                return null;
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testThatReadsGoToCaughtUpReplicasExceptRightAfterAWriteOfTheSameThread() throws Exception {
+        String[] args = { "../" };
+
+        // the primary is listed as a replica (it reports no replication lag, since it is not a replica), next to one
+        // that cannot be reached
+        Utils.setValueInConfig("mysql_read_replica_hosts", "\"localhost:3306,localhost:1\"");
+        Utils.setValueInConfig("mysql_read_replica_max_staleness_ms", "60000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        for (int i = 0; i < 100 && !getReplica(start, 0).get("caughtUp").getAsBoolean(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(getReplica(start, 0).get("caughtUp").getAsBoolean());
+        assertEquals(0, getReplica(start, 0).get("secondsBehindSource").getAsLong());
+        assertFalse(getReplica(start, 1).get("caughtUp").getAsBoolean());
+
+        start.setKeyValue(TenantIdentifier.BASE_TENANT, "key", new KeyValueInfo("value"));
+
+        // this thread just wrote, so it reads from the primary
+        long primaryReads = getReads(start, "primary");
+        assertEquals("value", start.getKeyValue(TenantIdentifier.BASE_TENANT, "key").value);
+        assertTrue(getReads(start, "primary") > primaryReads);
+
+        // other threads read from the replica that is caught up, and skip the one that cannot be reached
+        long replicaReads = getReads(start, "replicas");
+        readOnAnotherThread(start, 4);
+        assertTrue(getReads(start, "replicas") >= replicaReads + 4);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatReadsFallBackToThePrimaryWhenNoReplicaIsUsable() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_read_replica_hosts", "\"localhost:1\"");
+        Utils.setValueInConfig("mysql_read_replica_max_staleness_ms", "60000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        start.setKeyValue(TenantIdentifier.BASE_TENANT, "key", new KeyValueInfo("value"));
+
+        long primaryReads = getReads(start, "primary");
+        readOnAnotherThread(start, 4);
+        assertTrue(getReads(start, "primary") >= primaryReads + 4);
+        assertEquals(0, getReads(start, "replicas"));
+        assertFalse(getReplica(start, 0).get("caughtUp").getAsBoolean());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.queries.SchemaMigrations;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class SchemaMigrationsTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatMissingIndexesAreAddedToExistingTables() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        assertEquals(SchemaMigrations.getLatestVersion(), SchemaMigrations.getCurrentVersion(start));
+
+        // emulate a database that was created before the index existed
+        String usersTable = Config.getConfig(start).getUsersTable();
+        try (Connection con = ConnectionPool.getConnection(start);
+             Statement statement = con.createStatement()) {
+            statement.execute("DROP INDEX all_auth_recipe_users_recipe_id_index ON " + usersTable);
+            statement.execute("DELETE FROM " + Config.getConfig(start).getSchemaVersionTable());
+        }
+        assertFalse(hasIndex(start, usersTable, "all_auth_recipe_users_recipe_id_index"));
+
+        process.kill(false);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+        StorageLayer.close();
+        process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        assertNotNull(process.checkOrWaitForEventInPlugin(
+                io.supertokens.storage.mysql.ProcessState.PROCESS_STATE.APPLYING_SCHEMA_MIGRATION));
+
+        start = (Start) StorageLayer.getStorage(process.getProcess());
+        assertTrue(hasIndex(start, usersTable, "all_auth_recipe_users_recipe_id_index"));
+        assertEquals(SchemaMigrations.getLatestVersion(), SchemaMigrations.getCurrentVersion(start));
+
+        process.kill(false);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+        // nothing is applied again
+        StorageLayer.close();
+        process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        assertNull(process.checkOrWaitForEventInPlugin(
+                io.supertokens.storage.mysql.ProcessState.PROCESS_STATE.APPLYING_SCHEMA_MIGRATION, 2000));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static boolean hasIndex(Start start, String table, String index) throws Exception {
+        try (Connection con = ConnectionPool.getConnection(start);
+             PreparedStatement pst = con.prepareStatement("SELECT 1 FROM information_schema.STATISTICS"
+                     + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?")) {
+            pst.setString(1, table);
+            pst.setString(2, index);
+            try (ResultSet result = pst.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+}
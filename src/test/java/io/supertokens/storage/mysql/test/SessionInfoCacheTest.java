@@ -0,0 +1,206 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.session.SessionInfo;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.cache.WTinyLfuCache;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class SessionInfoCacheTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static JsonObject data(String value) {
+        JsonObject data = new JsonObject();
+        data.addProperty("key", value);
+        return data;
+    }
+
+    @Test
+    public void testThatChangesToSessionsInvalidateTheCache() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_session_cache_size", "100");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long expiry = System.currentTimeMillis() + 100000;
+        start.createNewSession(TenantIdentifier.BASE_TENANT, "handle", "user", "hash", data("a"), expiry,
+                new JsonObject(), System.currentTimeMillis(), false);
+
+        assertEquals("a", start.getSession(TenantIdentifier.BASE_TENANT, "handle").userDataInDatabase
+                .get("key").getAsString());
+        SessionInfo sessionInfo = start.getSession(TenantIdentifier.BASE_TENANT, "handle");
+        assertEquals("a", sessionInfo.userDataInDatabase.get("key").getAsString());
+        assertEquals(1, start.getSessionCacheStats().get("hits").getAsLong());
+        assertEquals(1, start.getSessionCacheStats().get("misses").getAsLong());
+
+        // changing the returned object must not change the cached one
+        sessionInfo.userDataInDatabase.addProperty("key", "changed");
+        assertEquals("a", start.getSession(TenantIdentifier.BASE_TENANT, "handle").userDataInDatabase
+                .get("key").getAsString());
+
+        start.updateSession(TenantIdentifier.BASE_TENANT, "handle", data("b"), null);
+        assertEquals("b", start.getSession(TenantIdentifier.BASE_TENANT, "handle").userDataInDatabase
+                .get("key").getAsString());
+
+        start.startTransaction(con -> {
+            start.updateSessionInfo_Transaction(TenantIdentifier.BASE_TENANT, con, "handle", "newHash", expiry);
+            start.commitTransaction(con);
+            return null;
+        });
+        assertEquals("newHash", start.getSession(TenantIdentifier.BASE_TENANT, "handle").refreshTokenHash2);
+
+        start.deleteSessionsOfUser(new AppIdentifier(null, null), "user");
+        assertNull(start.getSession(TenantIdentifier.BASE_TENANT, "handle"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatCacheMissesAreNotReadFromReplicas() throws Exception {
+        String[] args = { "../" };
+
+        // the primary is listed as a replica, since it reports no replication lag
+        Utils.setValueInConfig("mysql_session_cache_size", "100");
+        Utils.setValueInConfig("mysql_read_replica_hosts", "\"localhost:3306\"");
+        Utils.setValueInConfig("mysql_read_replica_max_staleness_ms", "60000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        long expiry = System.currentTimeMillis() + 100000;
+        for (int i = 0; i < 50; i++) {
+            start.createNewSession(TenantIdentifier.BASE_TENANT, "handle" + i, "user", "hash", data("a"), expiry,
+                    new JsonObject(), System.currentTimeMillis(), false);
+        }
+
+        JsonObject replica = start.getConnectionPoolMetrics().getAsJsonArray("replicas").get(0).getAsJsonObject();
+        for (int i = 0; i < 100 && !replica.get("caughtUp").getAsBoolean(); i++) {
+            Thread.sleep(100);
+            replica = start.getConnectionPoolMetrics().getAsJsonArray("replicas").get(0).getAsJsonObject();
+        }
+        assertTrue(replica.get("caughtUp").getAsBoolean());
+
+        // read on a thread that has not written, so that only the cache keeps the reads on the primary
+        long replicaReads = start.getConnectionPoolMetrics().getAsJsonObject("reads").get("replicas").getAsLong();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    assertNotNull(start.getSession(TenantIdentifier.BASE_TENANT, "handle" + i));
+                    assertNotNull(start.getSession(TenantIdentifier.BASE_TENANT, "handle" + i));
+                }
+                return null;
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(replicaReads,
+                start.getConnectionPoolMetrics().getAsJsonObject("reads").get("replicas").getAsLong());
+
+        // the stats add up the segments of the cache
+        JsonObject stats = start.getSessionCacheStats();
+        assertEquals(50, stats.get("size").getAsLong());
+        assertEquals(50, stats.get("hits").getAsLong());
+        assertEquals(50, stats.get("misses").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatCacheIsDisabledByDefault() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        assertFalse(start.getSessionCacheStats().get("enabled").getAsBoolean());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatFrequentlyReadEntriesSurviveAScan() {
+        WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(100);
+        long expiresAt = Long.MAX_VALUE;
+
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "value", expiresAt);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(cache.get("hot" + i, 0));
+            }
+        }
+
+        // keys that are read only once should not push out the hot ones
+        for (int i = 0; i < 1000; i++) {
+            cache.put("cold" + i, "value", expiresAt);
+        }
+
+        int hotEntries = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i, 0) != null) {
+                hotEntries++;
+            }
+        }
+        assertTrue(hotEntries >= 45);
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void testThatExpiredEntriesAreNotReturned() {
+        WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(10);
+        cache.put("key", "value", 1000);
+
+        assertEquals("value", cache.get("key", 999));
+        assertNull(cache.get("key", 1000));
+        assertEquals(0, cache.size());
+    }
+}
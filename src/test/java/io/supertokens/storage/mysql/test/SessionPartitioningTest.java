@@ -0,0 +1,132 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.queries.SessionQueries;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.*;
+
+public class SessionPartitioningTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static int getNumberOfPartitions(Start start) throws Exception {
+        String QUERY = "SELECT COUNT(*) FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE()"
+                + " AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL";
+        try (Connection con = ConnectionPool.getConnection(start);
+             PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setString(1, Config.getConfig(start).getSessionInfoTable());
+            try (ResultSet result = pst.executeQuery()) {
+                result.next();
+                return result.getInt(1);
+            }
+        }
+    }
+
+    private static void createSession(Start start, String sessionHandle, long expiry) throws Exception {
+        start.createNewSession(TenantIdentifier.BASE_TENANT, sessionHandle, "user", "refreshTokenHash2",
+                new JsonObject(), expiry, new JsonObject(), System.currentTimeMillis(), false);
+    }
+
+    @Test
+    public void testThatExpiredPartitionsAreDroppedAndNewOnesAreAdded() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_session_info_partitioning", "true");
+        Utils.setValueInConfig("mysql_session_info_partitions_ahead_days", "3");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        // one partition for everything before today, one per day from today and one for MAXVALUE
+        assertEquals(6, getNumberOfPartitions(start));
+
+        long startOfToday = LocalDate.now(ZoneOffset.UTC).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        createSession(start, "expiredYesterday", startOfToday - 1000);
+        createSession(start, "valid", System.currentTimeMillis() + 100000);
+        createSession(start, "farAhead", System.currentTimeMillis() + 1000L * 3600 * 24 * 30);
+
+        assertEquals(1, SessionQueries.maintainSessionInfoPartitions(start));
+        assertEquals(5, getNumberOfPartitions(start));
+        assertNull(start.getSession(TenantIdentifier.BASE_TENANT, "expiredYesterday"));
+        assertNotNull(start.getSession(TenantIdentifier.BASE_TENANT, "valid"));
+        assertNotNull(start.getSession(TenantIdentifier.BASE_TENANT, "farAhead"));
+
+        // nothing left to drop or add
+        assertEquals(0, SessionQueries.maintainSessionInfoPartitions(start));
+        assertEquals(5, getNumberOfPartitions(start));
+
+        process.kill(false);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+        Utils.setValueInConfig("mysql_session_info_partitions_ahead_days", "5");
+        process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+        start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        assertEquals(0, SessionQueries.maintainSessionInfoPartitions(start));
+        assertEquals(7, getNumberOfPartitions(start));
+        assertNotNull(start.getSession(TenantIdentifier.BASE_TENANT, "farAhead"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatMaintenanceDoesNothingWithoutPartitions() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        assertEquals(0, getNumberOfPartitions(start));
+        assertEquals(0, SessionQueries.maintainSessionInfoPartitions(start));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -18,6 +18,10 @@
 package io.supertokens.storage.mysql.test;
 
 import io.supertokens.ProcessState;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storage.mysql.queries.GeneralQueries;
 import io.supertokens.storageLayer.StorageLayer;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -25,8 +29,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class TableCreationTest {
 
@@ -67,4 +76,36 @@ public class TableCreationTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void checkingThatOnlyMissingTablesAreCreated() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        String table = Config.getConfig(start).getTotpUsedCodesTable();
+        try (Connection con = ConnectionPool.getConnection(start);
+             Statement statement = con.createStatement()) {
+            statement.execute("DROP TABLE " + table);
+        }
+
+        process.kill(false);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+        StorageLayer.close();
+        process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        // only the dropped table (and its index) is created again. Creating any of the other tables would fail
+        // since their indexes already exist
+        assertNotNull(process.checkOrWaitForEventInPlugin(
+                io.supertokens.storage.mysql.ProcessState.PROCESS_STATE.CREATING_NEW_TABLE));
+
+        start = (Start) StorageLayer.getStorage(process.getProcess());
+        assertTrue(Arrays.asList(GeneralQueries.getAllTablesInTheDatabase(start)).contains(table));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
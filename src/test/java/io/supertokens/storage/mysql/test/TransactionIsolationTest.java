@@ -0,0 +1,136 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.KeyValueInfo;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.sqlStorage.SQLStorage.TransactionIsolationLevel;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+
+import static org.junit.Assert.*;
+
+public class TransactionIsolationTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatTransactionsDoNotChangeTheIsolationLevelOfPooledConnections() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_connection_pool_size", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        int defaultIsolation;
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            defaultIsolation = con.getTransactionIsolation();
+        }
+
+        for (TransactionIsolationLevel level : new TransactionIsolationLevel[]{
+                TransactionIsolationLevel.SERIALIZABLE, TransactionIsolationLevel.REPEATABLE_READ,
+                TransactionIsolationLevel.READ_COMMITTED, TransactionIsolationLevel.READ_UNCOMMITTED}) {
+            int result = start.startTransaction(con -> {
+                start.commitTransaction(con);
+                return 1;
+            }, level);
+            assertEquals(1, result);
+
+            // with a pool size of 1, this is the same connection that the transaction used
+            try (Connection con = ConnectionPool.getConnection(start)) {
+                assertEquals(defaultIsolation, con.getTransactionIsolation());
+                assertTrue(con.getAutoCommit());
+            }
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatReadOnlyTransactionsCanReadButNotWrite() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        start.setKeyValue(TenantIdentifier.BASE_TENANT, "Key", new KeyValueInfo("Value"));
+
+        KeyValueInfo info = start.startReadOnlyTransaction(con -> {
+            KeyValueInfo result = start.getKeyValue_Transaction(TenantIdentifier.BASE_TENANT, con, "Key");
+            start.commitTransaction(con);
+            return result;
+        });
+        assertEquals("Value", info.value);
+
+        try {
+            start.startReadOnlyTransaction(con -> {
+                try {
+                    start.setKeyValue_Transaction(TenantIdentifier.BASE_TENANT, con, "Key",
+                            new KeyValueInfo("Value1"));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof StorageQueryException);
+            assertTrue(e.getCause().getMessage().toLowerCase().contains("read only"));
+        }
+        assertEquals("Value", start.getKeyValue(TenantIdentifier.BASE_TENANT, "Key").value);
+
+        // a normal transaction afterwards can write again, even if it gets the same connection
+        start.startTransaction(con -> {
+            try {
+                start.setKeyValue_Transaction(TenantIdentifier.BASE_TENANT, con, "Key", new KeyValueInfo("Value1"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            start.commitTransaction(con);
+            return null;
+        });
+        assertEquals("Value1", start.getKeyValue(TenantIdentifier.BASE_TENANT, "Key").value);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
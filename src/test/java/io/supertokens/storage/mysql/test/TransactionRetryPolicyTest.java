@@ -0,0 +1,158 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.TransactionRetryPolicy;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TransactionRetryPolicyTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatDelaysStayBetweenBaseAndMax() {
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(50, 10, 500, 0);
+
+        long delay = 0;
+        for (int i = 0; i < 100; i++) {
+            long previousDelay = delay;
+            delay = policy.getNextDelayMs(previousDelay);
+            assertTrue(delay >= 10);
+            assertTrue(delay <= 500);
+            assertTrue(delay <= Math.max(10, previousDelay) * 3);
+        }
+    }
+
+    @Test
+    public void testThatDelaysGrowWithAZeroBaseDelay() {
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(50, 0, 500, 0);
+
+        // each delay is 0 with a chance of 1 in 4 at most, so 20 of them in a row practically never happen
+        long delay = 0;
+        long maxDelay = 0;
+        for (int i = 0; i < 20; i++) {
+            long previousDelay = delay;
+            delay = policy.getNextDelayMs(previousDelay);
+            assertTrue(delay <= Math.max(1, previousDelay) * 3);
+            maxDelay = Math.max(maxDelay, delay);
+        }
+        assertTrue(maxDelay > 0);
+    }
+
+    @Test
+    public void testThatRetryingStopsAtMaxAttemptsOrTimeBudget() {
+        TransactionRetryPolicy policy = new TransactionRetryPolicy(3, 10, 100, 1000);
+
+        assertTrue(policy.shouldRetry(1, 0, 10));
+        assertTrue(policy.shouldRetry(2, 0, 10));
+        assertFalse(policy.shouldRetry(3, 0, 10));
+
+        assertTrue(policy.shouldRetry(1, 900, 100));
+        assertFalse(policy.shouldRetry(1, 901, 100));
+
+        TransactionRetryPolicy noBudget = new TransactionRetryPolicy(3, 10, 100, 0);
+        assertTrue(noBudget.shouldRetry(1, Long.MAX_VALUE / 2, 100));
+    }
+
+    @Test
+    public void testThatDeadlocksAreRetriedAndCounted() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_deadlock_retry_max_attempts", "3");
+        Utils.setValueInConfig("mysql_deadlock_retry_base_delay_ms", "1");
+        Utils.setValueInConfig("mysql_deadlock_retry_max_delay_ms", "5");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        // fails once, then succeeds
+        AtomicInteger attempts = new AtomicInteger();
+        start.startTransaction(con -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new StorageTransactionLogicException(
+                        new SQLTransactionRollbackException("Deadlock found when trying to get lock"));
+            }
+            return null;
+        });
+        assertEquals(2, attempts.get());
+
+        // always fails, so it gives up after 3 attempts
+        attempts.set(0);
+        try {
+            start.startTransaction(con -> {
+                attempts.incrementAndGet();
+                throw new StorageTransactionLogicException(
+                        new SQLTransactionRollbackException("Deadlock found when trying to get lock"));
+            });
+            fail();
+        } catch (StorageTransactionLogicException ignored) {
+        }
+        assertEquals(3, attempts.get());
+
+        JsonObject total = start.getTransactionRetryMetrics().getAsJsonObject("total");
+        assertEquals(4, total.get("deadlocks").getAsLong());
+        assertEquals(3, total.get("retries").getAsLong());
+        assertEquals(1, total.get("giveUps").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatMaxDelayBelowBaseDelayIsRejected() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_deadlock_retry_base_delay_ms", "100");
+        Utils.setValueInConfig("mysql_deadlock_retry_max_delay_ms", "10");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("io.supertokens.pluginInterface.exceptions.InvalidConfigException: "
+                        + "'mysql_deadlock_retry_max_delay_ms' in the config.yaml file must be >= "
+                        + "mysql_deadlock_retry_base_delay_ms",
+                e.exception.getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.config.Config;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserMetadataJsonTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testMergingAndProjectingWithTheJsonColumn() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_user_metadata_json_column", "true");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        assertEquals("json", getColumnType(start));
+        checkMergingAndProjecting(start);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testMergingAndProjectingWithTheTextColumn() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        assertEquals("text", getColumnType(start));
+        checkMergingAndProjecting(start);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static String getColumnType(Start start) throws Exception {
+        try (Connection con = ConnectionPool.getConnection(start);
+             PreparedStatement pst = con.prepareStatement("SELECT DATA_TYPE FROM information_schema.COLUMNS"
+                     + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'user_metadata'")) {
+            pst.setString(1, Config.getConfig(start).getUserMetadataTable());
+            try (ResultSet result = pst.executeQuery()) {
+                assertTrue(result.next());
+                return result.getString(1).toLowerCase();
+            }
+        }
+    }
+
+    private static JsonObject json(String value) {
+        return new JsonParser().parse(value).getAsJsonObject();
+    }
+
+    private static void checkMergingAndProjecting(Start start) throws Exception {
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        start.startTransaction(con -> {
+            try {
+                start.setUserMetadata_Transaction(appIdentifier, con, "user1",
+                        json("{\"a\": 1, \"b\": {\"x\": 1}, \"with.dot\": \"d\", \"with\\\"quote\": \"q\"}"));
+            } catch (Exception e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            start.commitTransaction(con);
+            return null;
+        });
+
+        start.mergeUserMetadata(appIdentifier, "user1", json("{\"a\": null, \"b\": {\"y\": 2}, \"c\": \"s\"}"));
+        assertEquals(json("{\"b\": {\"x\": 1, \"y\": 2}, \"c\": \"s\", \"with.dot\": \"d\", \"with\\\"quote\": \"q\"}"),
+                start.getUserMetadata(appIdentifier, "user1"));
+
+        assertEquals(json("{\"b\": {\"x\": 1, \"y\": 2}, \"with.dot\": \"d\", \"with\\\"quote\": \"q\"}"),
+                start.getUserMetadataKeys(appIdentifier, "user1",
+                        List.of("b", "a", "missing", "with.dot", "with\"quote")));
+        assertEquals(new JsonObject(), start.getUserMetadataKeys(appIdentifier, "user1", List.of()));
+
+        // no metadata yet, so the patch is stored without its null values
+        assertNull(start.getUserMetadataKeys(appIdentifier, "user2", List.of("a")));
+        start.mergeUserMetadata(appIdentifier, "user2", json("{\"a\": [1, 2], \"b\": null}"));
+        assertEquals(json("{\"a\": [1, 2]}"), start.getUserMetadata(appIdentifier, "user2"));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.bulkimport.BulkImportUser;
+import io.supertokens.storage.mysql.pagination.Page;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class UserPaginationTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testPagingThroughAllUsersWithCursor() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        // a few users share the same time joined so that the user id tie breaker matters
+        List<BulkImportUser> users = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            String userId = String.format("user-%02d", i);
+            long timeJoined = 1000 + (i / 3) * 10;
+            if (i % 3 == 0) {
+                users.add(BulkImportUser.emailPassword(userId, userId + "@example.com", "hash", timeJoined));
+            } else if (i % 3 == 1) {
+                users.add(BulkImportUser.thirdParty(userId, userId + "@example.com", "google", userId, timeJoined));
+            } else {
+                users.add(BulkImportUser.passwordless(userId, userId + "@example.com", null, timeJoined));
+            }
+        }
+        assertEquals(45, start.bulkImportUsers(TenantIdentifier.BASE_TENANT, users).importedCount);
+
+        for (String order : new String[]{"ASC", "DESC"}) {
+            Comparator<BulkImportUser> comparator = Comparator.comparingLong(user -> user.timeJoined);
+            if (order.equals("DESC")) {
+                comparator = comparator.reversed();
+            }
+            comparator = comparator.thenComparing(user -> user.userId, Comparator.reverseOrder());
+
+            List<String> expected = users.stream().sorted(comparator).map(user -> user.userId)
+                    .collect(Collectors.toList());
+            assertEquals(expected, getAllUserIds(start, order, null));
+
+            RECIPE_ID[] recipeIds = {RECIPE_ID.EMAIL_PASSWORD, RECIPE_ID.PASSWORDLESS};
+            List<String> expectedForRecipes = users.stream()
+                    .filter(user -> user.recipeId != RECIPE_ID.THIRD_PARTY)
+                    .sorted(comparator).map(user -> user.userId).collect(Collectors.toList());
+            assertEquals(expectedForRecipes, getAllUserIds(start, order, recipeIds));
+        }
+
+        try {
+            start.getUsersPage(TenantIdentifier.BASE_TENANT, 10, "ASC", null, "not a cursor");
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            start.getUsersPage(TenantIdentifier.BASE_TENANT, 0, "ASC", null, null);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            start.getUsersPage(TenantIdentifier.BASE_TENANT, 10, "asc; DROP TABLE users", null, null);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatUsersAreLoadedWithParallelRecipeLookups() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_parallel_recipe_lookups", "true");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        List<BulkImportUser> users = new ArrayList<>();
+        users.add(BulkImportUser.emailPassword("user-ep", "ep@example.com", "hash", 1000));
+        users.add(BulkImportUser.thirdParty("user-tp", "tp@example.com", "google", "google-user", 2000));
+        users.add(BulkImportUser.passwordless("user-pl", null, "+919876543210", 3000));
+        assertEquals(3, start.bulkImportUsers(TenantIdentifier.BASE_TENANT, users).importedCount);
+
+        Page<AuthRecipeUserInfo> page = start.getUsersPage(TenantIdentifier.BASE_TENANT, 10, "ASC", null, null);
+        assertNull(page.nextCursor);
+        assertEquals(3, page.results.size());
+        assertEquals("ep@example.com", page.results.get(0).loginMethods[0].email);
+        assertEquals(RECIPE_ID.EMAIL_PASSWORD, page.results.get(0).loginMethods[0].recipeId);
+        assertEquals("google-user", page.results.get(1).loginMethods[0].thirdParty.userId);
+        assertEquals("+919876543210", page.results.get(2).loginMethods[0].phoneNumber);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatParallelRecipeLookupsReadFromThePrimaryRightAfterAWrite() throws Exception {
+        String[] args = { "../" };
+
+        // the primary is listed as a replica, since it reports no replication lag
+        Utils.setValueInConfig("mysql_parallel_recipe_lookups", "true");
+        Utils.setValueInConfig("mysql_read_replica_hosts", "\"localhost:3306\"");
+        Utils.setValueInConfig("mysql_read_replica_max_staleness_ms", "60000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        JsonObject replica = start.getConnectionPoolMetrics().getAsJsonArray("replicas").get(0).getAsJsonObject();
+        for (int i = 0; i < 100 && !replica.get("caughtUp").getAsBoolean(); i++) {
+            Thread.sleep(100);
+            replica = start.getConnectionPoolMetrics().getAsJsonArray("replicas").get(0).getAsJsonObject();
+        }
+        assertTrue(replica.get("caughtUp").getAsBoolean());
+
+        List<BulkImportUser> users = new ArrayList<>();
+        users.add(BulkImportUser.emailPassword("user-ep", "ep@example.com", "hash", 1000));
+        users.add(BulkImportUser.thirdParty("user-tp", "tp@example.com", "google", "google-user", 2000));
+        users.add(BulkImportUser.passwordless("user-pl", null, "+919876543210", 3000));
+        assertEquals(3, start.bulkImportUsers(TenantIdentifier.BASE_TENANT, users).importedCount);
+
+        // this thread just wrote, so the recipe lookups on the other threads must not use the replica either
+        long replicaReads = start.getConnectionPoolMetrics().getAsJsonObject("reads").get("replicas").getAsLong();
+        Page<AuthRecipeUserInfo> page = start.getUsersPage(TenantIdentifier.BASE_TENANT, 10, "ASC", null, null);
+        assertEquals(3, page.results.size());
+        for (AuthRecipeUserInfo user : page.results) {
+            assertEquals(1, user.loginMethods.length);
+        }
+        assertEquals(replicaReads,
+                start.getConnectionPoolMetrics().getAsJsonObject("reads").get("replicas").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static List<String> getAllUserIds(Start start, String order, RECIPE_ID[] recipeIds) throws Exception {
+        List<String> userIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<AuthRecipeUserInfo> page = start.getUsersPage(TenantIdentifier.BASE_TENANT, 7, order, recipeIds,
+                    cursor);
+            assertTrue(page.results.size() <= 7);
+            for (AuthRecipeUserInfo user : page.results) {
+                userIds.add(user.getSupertokensUserId());
+            }
+            cursor = page.nextCursor;
+        } while (cursor != null);
+        return userIds;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.userroles.UserRolesAndPermissions;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class UserRolesAndPermissionsTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testRolesAndPermissionsForUser() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        checkRolesAndPermissionsForUser((Start) StorageLayer.getStorage(process.getProcess()));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testRolesAndPermissionsForUserWithTheUserRolesCache() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_user_roles_cache_size", "100");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        checkRolesAndPermissionsForUser((Start) StorageLayer.getStorage(process.getProcess()));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static void checkRolesAndPermissionsForUser(Start start) throws Exception {
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+
+        start.startTransaction(con -> {
+            try {
+                for (String role : new String[]{"admin", "editor", "viewer"}) {
+                    start.createNewRoleOrDoNothingIfExists_Transaction(appIdentifier, con, role);
+                }
+                start.addPermissionToRoleOrDoNothingIfExists_Transaction(appIdentifier, con, "admin", "delete");
+                start.addPermissionToRoleOrDoNothingIfExists_Transaction(appIdentifier, con, "admin", "write");
+                start.addPermissionToRoleOrDoNothingIfExists_Transaction(appIdentifier, con, "editor", "write");
+                start.addPermissionToRoleOrDoNothingIfExists_Transaction(appIdentifier, con, "editor", "read");
+            } catch (Exception e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            start.commitTransaction(con);
+            return null;
+        });
+
+        assertEquals(0, start.getRolesAndPermissionsForUser(tenantIdentifier, "user1").getNumberOfRoles());
+
+        start.addRoleToUser(tenantIdentifier, "user1", "admin");
+        start.addRoleToUser(tenantIdentifier, "user1", "editor");
+        start.addRoleToUser(tenantIdentifier, "user1", "viewer");
+        start.addRoleToUser(tenantIdentifier, "user2", "editor");
+
+        UserRolesAndPermissions result = start.getRolesAndPermissionsForUser(tenantIdentifier, "user1");
+        Map<String, Set<String>> byRole = new HashMap<>();
+        for (int i = 0; i < result.getNumberOfRoles(); i++) {
+            Set<String> permissions = new HashSet<>();
+            for (int j = 0; j < result.getNumberOfPermissions(i); j++) {
+                permissions.add(result.getPermission(i, j));
+            }
+            assertNull(byRole.put(result.getRole(i), permissions));
+        }
+        Map<String, Set<String>> expected = new HashMap<>();
+        expected.put("admin", Set.of("delete", "write"));
+        expected.put("editor", Set.of("read", "write"));
+        expected.put("viewer", Set.of());
+        assertEquals(expected, byRole);
+
+        // matches what the per role lookups return
+        assertEquals(new HashSet<>(Arrays.asList(start.getRolesForUser(tenantIdentifier, "user1"))),
+                new HashSet<>(Arrays.asList(result.getRoles())));
+        for (String role : result.getRoles()) {
+            assertEquals(new HashSet<>(Arrays.asList(start.getPermissionsForRole(appIdentifier, role))),
+                    new HashSet<>(Arrays.asList(result.getPermissionsForRole(role))));
+        }
+        assertNull(result.getPermissionsForRole("unknown"));
+        assertTrue(result.hasPermission("delete"));
+        assertFalse(result.hasPermission("unknown"));
+        assertEquals(Set.of("delete", "read", "write"), new HashSet<>(Arrays.asList(result.getAllPermissions())));
+        assertEquals(3, result.getAllPermissions().length);
+
+        UserRolesAndPermissions user2 = start.getRolesAndPermissionsForUser(tenantIdentifier, "user2");
+        assertArrayEquals(new String[]{"editor"}, user2.getRoles());
+        assertFalse(user2.hasPermission("delete"));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class UserRolesBulkAssignmentTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static void createRole(Start start, AppIdentifier appIdentifier, String role) throws Exception {
+        start.startTransaction(con -> {
+            try {
+                start.createNewRoleOrDoNothingIfExists_Transaction(appIdentifier, con, role);
+            } catch (Exception e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            start.commitTransaction(con);
+            return null;
+        });
+    }
+
+    @Test
+    public void testAddingAndRemovingARoleForManyUsers() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_user_roles_bulk_chunk_size", "3");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+        createRole(start, appIdentifier, "admin");
+        start.addRoleToUser(tenantIdentifier, "user3", "admin");
+
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            userIds.add("user" + i);
+        }
+        // a duplicate within the list is only counted once
+        userIds.add("user5");
+
+        assertEquals(9, start.addRoleToUsers(tenantIdentifier, userIds, "admin"));
+        Set<String> usersForRole = new HashSet<>(Arrays.asList(start.getUsersForRole(tenantIdentifier, "admin")));
+        assertEquals(new HashSet<>(userIds), usersForRole);
+        assertEquals(0, start.addRoleToUsers(tenantIdentifier, userIds, "admin"));
+        assertEquals(0, start.addRoleToUsers(tenantIdentifier, new ArrayList<>(), "admin"));
+
+        assertEquals(4, start.removeRoleFromUsers(tenantIdentifier, userIds.subList(0, 4), "admin"));
+        assertEquals(0, start.getRolesForUser(tenantIdentifier, "user0").length);
+        assertArrayEquals(new String[]{"admin"}, start.getRolesForUser(tenantIdentifier, "user4"));
+        assertEquals(6, start.removeRoleFromUsers(tenantIdentifier, userIds, "admin"));
+        assertEquals(0, start.getUsersForRole(tenantIdentifier, "admin").length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testAddingAnUnknownRoleOrToAnUnknownTenant() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+        createRole(start, appIdentifier, "admin");
+
+        try {
+            start.addRoleToUsers(tenantIdentifier, List.of("user1", "user2"), "unknown");
+            fail();
+        } catch (UnknownRoleException ignored) {
+        }
+
+        try {
+            start.addRoleToUsers(new TenantIdentifier(null, null, "t1"), List.of("user1", "user2"), "admin");
+            fail();
+        } catch (TenantOrAppNotFoundException ignored) {
+        }
+        assertEquals(0, start.getUsersForRole(tenantIdentifier, "admin").length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatAUserIdThatIsTooLongFailsInsteadOfBeingTruncated() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+        createRole(start, new AppIdentifier(null, null), "admin");
+
+        String tooLong = "u".repeat(200);
+        try {
+            start.addRoleToUsers(tenantIdentifier, List.of("user1", tooLong), "admin");
+            fail();
+        } catch (StorageQueryException ignored) {
+        }
+        // the whole chunk is rolled back
+        assertEquals(0, start.getUsersForRole(tenantIdentifier, "admin").length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatTheChunkSizeIsValidated() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_user_roles_bulk_chunk_size", "0");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("io.supertokens.pluginInterface.exceptions.InvalidConfigException: " +
+                        "'mysql_user_roles_bulk_chunk_size' in the config.yaml file must be between 1 and 10000",
+                e.exception.getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class UserRolesCacheTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static void addPermission(Start start, AppIdentifier appIdentifier, String role, String permission)
+            throws Exception {
+        start.startTransaction(con -> {
+            try {
+                start.createNewRoleOrDoNothingIfExists_Transaction(appIdentifier, con, role);
+                start.addPermissionToRoleOrDoNothingIfExists_Transaction(appIdentifier, con, role, permission);
+            } catch (Exception e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            start.commitTransaction(con);
+            return null;
+        });
+    }
+
+    private static Set<String> setOf(String[] values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    @Test
+    public void testThatRoleAndPermissionChangesInvalidateTheCache() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_user_roles_cache_size", "100");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+
+        addPermission(start, appIdentifier, "admin", "read");
+        addPermission(start, appIdentifier, "user", "comment");
+        assertEquals(Set.of("read"), setOf(start.getPermissionsForRole(appIdentifier, "admin")));
+        // served from the snapshot that was loaded for the app
+        assertEquals(Set.of("comment"), setOf(start.getPermissionsForRole(appIdentifier, "user")));
+        assertEquals(0, start.getPermissionsForRole(appIdentifier, "unknown").length);
+        assertEquals(2, start.getUserRolesCacheStats().get("permissionsHits").getAsLong());
+        assertEquals(1, start.getUserRolesCacheStats().get("permissionsMisses").getAsLong());
+
+        addPermission(start, appIdentifier, "admin", "write");
+        assertEquals(Set.of("read", "write"), setOf(start.getPermissionsForRole(appIdentifier, "admin")));
+
+        start.addRoleToUser(tenantIdentifier, "user1", "admin");
+        assertEquals(Set.of("admin"), setOf(start.getRolesForUser(tenantIdentifier, "user1")));
+        assertEquals(Set.of("admin"), setOf(start.getRolesForUser(appIdentifier, "user1")));
+
+        start.addRoleToUser(tenantIdentifier, "user1", "user");
+        assertEquals(Set.of("admin", "user"), setOf(start.getRolesForUser(tenantIdentifier, "user1")));
+        assertEquals(Set.of("admin", "user"), setOf(start.getRolesForUser(appIdentifier, "user1")));
+
+        start.startTransaction(con -> {
+            start.deleteRoleForUser_Transaction(tenantIdentifier, con, "user1", "user");
+            start.commitTransaction(con);
+            return null;
+        });
+        assertEquals(Set.of("admin"), setOf(start.getRolesForUser(tenantIdentifier, "user1")));
+        assertEquals(Set.of("admin"), setOf(start.getRolesForUser(appIdentifier, "user1")));
+
+        // deleting a role also removes it from its users
+        assertTrue(start.deleteRole(appIdentifier, "admin"));
+        assertEquals(0, start.getPermissionsForRole(appIdentifier, "admin").length);
+        assertEquals(0, start.getRolesForUser(tenantIdentifier, "user1").length);
+        assertEquals(0, start.getRolesForUser(appIdentifier, "user1").length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatCacheMissesAreNotReadFromReplicas() throws Exception {
+        String[] args = { "../" };
+
+        // the primary is listed as a replica, since it reports no replication lag
+        Utils.setValueInConfig("mysql_user_roles_cache_size", "100");
+        Utils.setValueInConfig("mysql_read_replica_hosts", "\"localhost:3306\"");
+        Utils.setValueInConfig("mysql_read_replica_max_staleness_ms", "60000");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+        addPermission(start, appIdentifier, "admin", "read");
+        start.addRoleToUser(tenantIdentifier, "user1", "admin");
+
+        JsonObject replica = start.getConnectionPoolMetrics().getAsJsonArray("replicas").get(0).getAsJsonObject();
+        for (int i = 0; i < 100 && !replica.get("caughtUp").getAsBoolean(); i++) {
+            Thread.sleep(100);
+            replica = start.getConnectionPoolMetrics().getAsJsonArray("replicas").get(0).getAsJsonObject();
+        }
+        assertTrue(replica.get("caughtUp").getAsBoolean());
+
+        // read on a thread that has not written, so that only the cache keeps the reads on the primary
+        long replicaReads = start.getConnectionPoolMetrics().getAsJsonObject("reads").get("replicas").getAsLong();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                assertEquals(Set.of("admin"), setOf(start.getRolesForUser(tenantIdentifier, "user1")));
+                assertEquals(Set.of("admin"), setOf(start.getRolesForUser(appIdentifier, "user1")));
+                assertEquals(Set.of("read"), setOf(start.getPermissionsForRole(appIdentifier, "admin")));
+                return null;
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(replicaReads,
+                start.getConnectionPoolMetrics().getAsJsonObject("reads").get("replicas").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatChangesInARolledBackTransactionDoNotLeaveStaleEntries() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("mysql_user_roles_cache_size", "100");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+
+        addPermission(start, appIdentifier, "admin", "read");
+        assertEquals(Set.of("read"), setOf(start.getPermissionsForRole(appIdentifier, "admin")));
+
+        try {
+            start.startTransaction(con -> {
+                try {
+                    start.addPermissionToRoleOrDoNothingIfExists_Transaction(appIdentifier, con, "admin", "write");
+                } catch (Exception e) {
+                    throw new StorageTransactionLogicException(e);
+                }
+                // a read in between, on another connection, still sees the committed state
+                assertEquals(Set.of("read"), setOf(start.getPermissionsForRole(appIdentifier, "admin")));
+                throw new StorageTransactionLogicException(new Exception("rollback"));
+            });
+            fail();
+        } catch (StorageTransactionLogicException ignored) {
+        }
+        assertEquals(Set.of("read"), setOf(start.getPermissionsForRole(appIdentifier, "admin")));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.pagination.Page;
+import io.supertokens.storage.mysql.pagination.PaginationCursor;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UsersForRolePaginationTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testPagingThroughTheUsersOfARole() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        AppIdentifier appIdentifier = new AppIdentifier(null, null);
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+
+        start.startTransaction(con -> {
+            try {
+                start.createNewRoleOrDoNothingIfExists_Transaction(appIdentifier, con, "member");
+                start.createNewRoleOrDoNothingIfExists_Transaction(appIdentifier, con, "admin");
+            } catch (Exception e) {
+                throw new StorageTransactionLogicException(e);
+            }
+            start.commitTransaction(con);
+            return null;
+        });
+
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            members.add("user" + i);
+        }
+        start.addRoleToUsers(tenantIdentifier, members, "member");
+        start.addRoleToUsers(tenantIdentifier, members.subList(0, 5), "admin");
+
+        assertTrue(start.getUsersForRolePage(tenantIdentifier, "unknown", 10, null).results.isEmpty());
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Page<String> page = start.getUsersForRolePage(tenantIdentifier, "member", 10, cursor);
+            assertTrue(page.results.size() <= 10);
+            paged.addAll(page.results);
+            cursor = page.nextCursor;
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(25, paged.size());
+        assertEquals(new HashSet<>(members), new HashSet<>(paged));
+        assertEquals(new HashSet<>(Arrays.asList(start.getUsersForRole(tenantIdentifier, "member"))),
+                new HashSet<>(paged));
+
+        // an exact multiple of the page size does not leave an empty last page
+        Page<String> admins = start.getUsersForRolePage(tenantIdentifier, "admin", 5, null);
+        assertEquals(5, admins.results.size());
+        assertNull(admins.nextCursor);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testInvalidCursorsAndLimits() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        TenantIdentifier tenantIdentifier = TenantIdentifier.BASE_TENANT;
+
+        try {
+            start.getUsersForRolePage(tenantIdentifier, "member", 10, "not a cursor");
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            start.getUsersForRolePage(tenantIdentifier, "member", 10, PaginationCursor.encode("admin", "user1"));
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            start.getUsersForRolePage(tenantIdentifier, "member", 0, null);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test.multitenancy;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.supertokens.ProcessState;
+import io.supertokens.config.Config;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.storage.mysql.ConnectionPool;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.test.TestingProcessManager;
+import io.supertokens.storage.mysql.test.Utils;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.*;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+public class SharedConnectionPoolTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatTenantsShareAPoolButAreLimitedToTheirOwnPoolSize() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("mysql_shared_connection_pools", "true");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonObject tenantConfig = new JsonObject();
+        tenantConfig.add("mysql_connection_pool_size", new JsonPrimitive(2));
+
+        TenantConfig[] tenants = new TenantConfig[]{
+                new TenantConfig(new TenantIdentifier(null, null, "t1"), new EmailPasswordConfig(false),
+                        new ThirdPartyConfig(false, new ThirdPartyConfig.Provider[0]),
+                        new PasswordlessConfig(false),
+                        tenantConfig)};
+
+        Config.loadAllTenantConfig(process.getProcess(), tenants);
+        StorageLayer.loadAllTenantStorage(process.getProcess(), tenants);
+
+        Start baseStorage = (Start) StorageLayer.getStorage(new TenantIdentifier(null, null, null),
+                process.getProcess());
+        Start tenantStorage = (Start) StorageLayer.getStorage(new TenantIdentifier(null, null, "t1"),
+                process.getProcess());
+        assertNotSame(baseStorage, tenantStorage);
+
+        // both storage instances use the same pool
+        assertEquals(1, ConnectionPool.getNumberOfSharedPools());
+
+        Connection con1 = ConnectionPool.getConnection(tenantStorage);
+        Connection con2 = ConnectionPool.getConnection(tenantStorage);
+        try {
+            ConnectionPool.getConnection(tenantStorage).close();
+            fail();
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("shared pool"));
+        }
+
+        // the other storage instance is not affected
+        try (Connection con = ConnectionPool.getConnection(baseStorage)) {
+            assertTrue(con.isValid(1));
+        }
+
+        // closing a connection gives back its permit, also if it is closed twice
+        con1.close();
+        con1.close();
+        try (Connection con = ConnectionPool.getConnection(tenantStorage)) {
+            assertTrue(con.isValid(1));
+        }
+        con2.close();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+        // the pool is closed once nothing uses it anymore
+        assertEquals(0, ConnectionPool.getNumberOfSharedPools());
+    }
+}
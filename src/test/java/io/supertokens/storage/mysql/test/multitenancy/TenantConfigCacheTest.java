@@ -0,0 +1,94 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test.multitenancy;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.test.TestingProcessManager;
+import io.supertokens.storage.mysql.test.Utils;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TenantConfigCacheTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatTenantsAreCachedUntilTheyChange() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        TenantConfig[] before = start.getAllTenants();
+        TenantConfig[] cached = start.getAllTenants();
+        assertNotSame(before, cached);
+        assertEquals(before.length, cached.length);
+        for (int i = 0; i < before.length; i++) {
+            // same objects, so nothing was read again
+            assertSame(before[i], cached[i]);
+        }
+
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a1", null);
+        TenantConfig tenantConfig = new TenantConfig(tenantIdentifier, new EmailPasswordConfig(true),
+                new ThirdPartyConfig(false, new ThirdPartyConfig.Provider[0]), new PasswordlessConfig(false),
+                new JsonObject());
+        start.createTenant(tenantConfig);
+
+        TenantConfig[] afterCreate = start.getAllTenants();
+        assertEquals(before.length + 1, afterCreate.length);
+        assertTrue(Arrays.asList(afterCreate).contains(tenantConfig));
+
+        start.overwriteTenantConfig(new TenantConfig(tenantIdentifier, new EmailPasswordConfig(false),
+                new ThirdPartyConfig(false, new ThirdPartyConfig.Provider[0]), new PasswordlessConfig(false),
+                new JsonObject()));
+        TenantConfig[] afterOverwrite = start.getAllTenants();
+        for (TenantConfig config : afterOverwrite) {
+            if (config.tenantIdentifier.equals(tenantIdentifier)) {
+                assertFalse(config.emailPasswordConfig.enabled);
+            }
+        }
+
+        assertTrue(start.deleteTenantInfoInBaseStorage(tenantIdentifier));
+        assertEquals(before.length, start.getAllTenants().length);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *    Copyright (c) 2023, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storage.mysql.test.multitenancy;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.pluginInterface.multitenancy.exceptions.DuplicateClientTypeException;
+import io.supertokens.pluginInterface.multitenancy.exceptions.DuplicateThirdPartyIdException;
+import io.supertokens.storage.mysql.Start;
+import io.supertokens.storage.mysql.test.TestingProcessManager;
+import io.supertokens.storage.mysql.test.Utils;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class TenantThirdPartyProvidersTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static ThirdPartyConfig.Provider provider(String thirdPartyId, ThirdPartyConfig.ProviderClient... clients) {
+        return new ThirdPartyConfig.Provider(thirdPartyId, thirdPartyId, clients, null, null, null, null, null, null,
+                null, null, null, null,
+                new ThirdPartyConfig.UserInfoMap(new ThirdPartyConfig.UserInfoMapKeyValue(null, null, null),
+                        new ThirdPartyConfig.UserInfoMapKeyValue(null, null, null)));
+    }
+
+    private static ThirdPartyConfig.ProviderClient client(String clientType, String clientId) {
+        return new ThirdPartyConfig.ProviderClient(clientType, clientId, "secret", new String[]{"email"}, null,
+                new JsonObject());
+    }
+
+    private static TenantConfig tenantConfig(TenantIdentifier tenantIdentifier,
+                                             ThirdPartyConfig.Provider... providers) {
+        return new TenantConfig(tenantIdentifier, new EmailPasswordConfig(false),
+                new ThirdPartyConfig(true, providers), new PasswordlessConfig(false), new JsonObject());
+    }
+
+    private static TenantConfig findTenant(Start start, TenantIdentifier tenantIdentifier) throws Exception {
+        for (TenantConfig config : start.getAllTenants()) {
+            if (config.tenantIdentifier.equals(tenantIdentifier)) {
+                return config;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testCreatingATenantWithManyProvidersAndClients() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a1", null);
+        // the providers and the clients are each inserted with one batch
+        start.createTenant(tenantConfig(tenantIdentifier,
+                provider("google", client("web", "google-web"), client("android", "google-android"),
+                        client("ios", "google-ios")),
+                provider("github", client(null, "github")),
+                provider("apple", client("web", "apple-web"), client("ios", "apple-ios"))));
+
+        TenantConfig created = findTenant(start, tenantIdentifier);
+        assertNotNull(created);
+        assertEquals(3, created.thirdPartyConfig.providers.length);
+        int clients = 0;
+        for (ThirdPartyConfig.Provider provider : created.thirdPartyConfig.providers) {
+            for (ThirdPartyConfig.ProviderClient client : provider.clients) {
+                assertEquals(provider.thirdPartyId, client.clientId.split("-")[0]);
+                clients++;
+            }
+        }
+        assertEquals(6, clients);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatDuplicateProvidersOrClientTypesFailAndCreateNothing() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a1", null);
+        try {
+            start.createTenant(tenantConfig(tenantIdentifier, provider("google", client("web", "google-web")),
+                    provider("github", client(null, "github")), provider("google", client("ios", "google-ios"))));
+            fail();
+        } catch (DuplicateThirdPartyIdException ignored) {
+        }
+        assertNull(findTenant(start, tenantIdentifier));
+
+        try {
+            start.createTenant(tenantConfig(tenantIdentifier,
+                    provider("google", client("web", "google-web"), client("web", "google-web-2"))));
+            fail();
+        } catch (DuplicateClientTypeException ignored) {
+        }
+        assertNull(findTenant(start, tenantIdentifier));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}